@@ -0,0 +1,82 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pathfinder.LocationNode;
+import pathfinder.Map;
+import pathfinder.MapGenerator;
+import pathfinder.Rect;
+import searcher.Searcher;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering one screen of the map with Map.drawClip() into an offscreen BufferedImage, at random positions and with
+ * a route highlighted.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DrawBenchmark {
+
+    // number of precomputed clips, cycled through by the benchmark
+    private static final int CLIPS = 256;
+
+    @Param({"GRID", "GEOMETRIC"})
+    public MapGenerator.Kind kind;
+
+    @Param({"1024", "16384"})
+    public int nodes;
+
+    @Param({"500"})
+    public int screenSize;
+
+    private Map map;
+    private Rect[] clips;
+    private List<LocationNode> path;
+    private BufferedImage image;
+    private Graphics2D graphics;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("java.awt.headless", "true");
+        MapGenerator generated = MapGenerator.generate(kind, nodes, 1);
+        map = generated.toMap();
+        int extent = 0;
+        for (int node = 0; node < generated.getNodeCount(); node++) {
+            extent = Math.max(extent, Math.max(generated.getX(node), generated.getY(node)));
+        }
+        Random random = new Random(2);
+        clips = new Rect[CLIPS];
+        for (int i = 0; i < CLIPS; i++) {
+            int range = Math.max(1, extent - screenSize);
+            clips[i] = new Rect(random.nextInt(range), random.nextInt(range), screenSize, screenSize);
+        }
+        // a long route across the map, as drawn while navigating
+        Searcher<LocationNode> searcher = new Searcher<>(map);
+        do {
+            path = searcher.runSearch(map.getNode(random.nextInt(map.getNodeCount())),
+                    map.getNode(random.nextInt(map.getNodeCount())));
+        } while (path.size() < 2);
+        image = new BufferedImage(screenSize, screenSize, BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage drawClip() {
+        map.drawClip(graphics, clips[next++ & (CLIPS - 1)], path);
+        return image;
+    }
+}
@@ -0,0 +1,71 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pathfinder.CompactMap;
+import pathfinder.Map;
+import pathfinder.MapFile;
+import pathfinder.MapGenerator;
+import pathfinder.MapLoader;
+import pathfinder.MapUtil;
+import pathfinder.MappedMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a map from disk: the text format through MapUtil.loadMap() and MapLoader.loadCompactMap(), and the binary
+ * format through MapFile.open(). The files are written once per trial into the temporary directory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+
+    @Param({"GEOMETRIC"})
+    public MapGenerator.Kind kind;
+
+    @Param({"4096", "65536"})
+    public int nodes;
+
+    private File textFile, binaryFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        MapGenerator generated = MapGenerator.generate(kind, nodes, 1);
+        textFile = File.createTempFile("map", ".txt");
+        generated.writeText(textFile.getPath());
+        binaryFile = File.createTempFile("map", ".smap");
+        MapFile.write(MapLoader.loadCompactMap(textFile.getPath()), binaryFile.getPath());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        textFile.delete();
+        binaryFile.delete();
+    }
+
+    @Benchmark
+    public Map loadMap() throws IOException {
+        return MapUtil.loadMap(textFile.getPath());
+    }
+
+    @Benchmark
+    public CompactMap loadCompactMap() throws IOException {
+        return MapLoader.loadCompactMap(textFile.getPath());
+    }
+
+    // opening takes microseconds but holds on to a mapping until the next GC, so it is timed one call at a time
+    // rather than in a tight loop
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 100)
+    @Measurement(iterations = 100)
+    public MappedMap openMapFile() throws IOException {
+        return MapFile.open(binaryFile.getPath());
+    }
+}
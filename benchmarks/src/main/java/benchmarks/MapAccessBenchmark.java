@@ -0,0 +1,67 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pathfinder.LocationNode;
+import pathfinder.Map;
+import pathfinder.MapGenerator;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Map lookups a search makes for every expanded node: Map.getNeighbors() and Map.getEdgeCost().
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapAccessBenchmark {
+
+    // number of precomputed nodes and edges, cycled through by the benchmarks
+    private static final int SAMPLES = 4096;
+
+    @Param({"GRID", "GEOMETRIC"})
+    public MapGenerator.Kind kind;
+
+    @Param({"1024", "16384"})
+    public int nodes;
+
+    private Map map;
+    private LocationNode[] sampleNodes;
+    // endpoints of sample edges
+    private LocationNode[] edgeStarts, edgeEnds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = MapGenerator.generate(kind, nodes, 1).toMap();
+        Random random = new Random(2);
+        sampleNodes = new LocationNode[SAMPLES];
+        edgeStarts = new LocationNode[SAMPLES];
+        edgeEnds = new LocationNode[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            sampleNodes[i] = map.getNode(random.nextInt(map.getNodeCount()));
+            LocationNode start;
+            do {
+                start = map.getNode(random.nextInt(map.getNodeCount()));
+            } while (start.getNeighbors().isEmpty());
+            List<String> neighbors = start.getNeighbors();
+            edgeStarts[i] = start;
+            edgeEnds[i] = map.getNode(neighbors.get(random.nextInt(neighbors.size())));
+        }
+    }
+
+    @Benchmark
+    public List<LocationNode> getNeighbors() {
+        return map.getNeighbors(sampleNodes[next++ & (SAMPLES - 1)]);
+    }
+
+    @Benchmark
+    public float getEdgeCost() {
+        int sample = next++ & (SAMPLES - 1);
+        return map.getEdgeCost(edgeStarts[sample], edgeEnds[sample]);
+    }
+}
@@ -0,0 +1,55 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pathfinder.LocationNode;
+import pathfinder.Map;
+import pathfinder.MapGenerator;
+import pathfinder.RouteCache;
+import searcher.Searcher;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repeated queries through a RouteCache that already holds every route asked for, i.e. the cost of a cache hit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteCacheBenchmark {
+
+    // number of distinct queries, cycled through by the benchmark
+    private static final int QUERIES = 1024;
+
+    @Param({"4096"})
+    public int nodes;
+
+    private RouteCache cache;
+    private String[] starts, goals;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map map = MapGenerator.generate(MapGenerator.Kind.GRID, nodes, 1).toMap();
+        // room to spare, as routes aren't spread perfectly evenly over the cache's segments
+        cache = new RouteCache(map, new Searcher<>(map), 2 * QUERIES);
+        Random random = new Random(2);
+        starts = new String[QUERIES];
+        goals = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            starts[i] = map.getNode(random.nextInt(map.getNodeCount())).getAddress();
+            goals[i] = map.getNode(random.nextInt(map.getNodeCount())).getAddress();
+            cache.getRoute(starts[i], goals[i]);
+        }
+    }
+
+    @Benchmark
+    public List<LocationNode> getRoute() {
+        int query = next++ & (QUERIES - 1);
+        return cache.getRoute(starts[query], goals[query]);
+    }
+}
@@ -0,0 +1,55 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pathfinder.LocationNode;
+import pathfinder.Map;
+import pathfinder.MapGenerator;
+import searcher.Searcher;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point-to-point queries with Searcher.runSearch() between random pairs of nodes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    // number of precomputed queries, cycled through by the benchmark
+    private static final int QUERIES = 1024;
+
+    @Param({"GRID", "GEOMETRIC"})
+    public MapGenerator.Kind kind;
+
+    @Param({"1024", "4096", "16384"})
+    public int nodes;
+
+    private Searcher<LocationNode> searcher;
+    private LocationNode[] starts, goals;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map map = MapGenerator.generate(kind, nodes, 1).toMap();
+        searcher = new Searcher<>(map);
+        Random random = new Random(2);
+        starts = new LocationNode[QUERIES];
+        goals = new LocationNode[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            starts[i] = map.getNode(random.nextInt(map.getNodeCount()));
+            goals[i] = map.getNode(random.nextInt(map.getNodeCount()));
+        }
+    }
+
+    @Benchmark
+    public List<LocationNode> runSearch() {
+        int query = next++ & (QUERIES - 1);
+        return searcher.runSearch(starts[query], goals[query]);
+    }
+}
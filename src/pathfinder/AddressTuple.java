@@ -43,17 +43,18 @@ public class AddressTuple {
         }
     }
 
-    @Override // basic hash function. Hashes the two addresses independently to get the same value for any tuples that
-    // have the same two addresses
+    @Override // basic hash function. Hashes the two addresses independently and adds the results to get the same
+    // value for any tuples that have the same two addresses, regardless of order
     public int hashCode() {
-        int hash = 0;
+        int hash1 = 0;
         for (int i = 0; i < address1.length(); i++) {
-            hash = 13 * hash + address1.charAt(i);
+            hash1 = 13 * hash1 + address1.charAt(i);
         }
+        int hash2 = 0;
         for (int i = 0; i < address2.length(); i++) {
-            hash += 13 * hash + address2.charAt(i);
+            hash2 = 13 * hash2 + address2.charAt(i);
         }
-        return hash;
+        return hash1 + hash2;
     }
 
     @Override
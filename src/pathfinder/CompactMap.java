@@ -0,0 +1,264 @@
+package pathfinder;
+
+import searcher.IntSearchFramework;
+
+import java.util.*;
+
+/**
+ * A frozen, read-only copy of a Map stored in compressed sparse row (CSR) form. Nodes are identified by int ids
+ * (the same ids the Map assigned), and everything is kept in primitive arrays:
+ *
+ * - xs/ys hold node coordinates, indexed by node id
+ * - the edges leaving node n are numbered edgeOffsets[n] up to (but excluding) edgeOffsets[n + 1]
+ * - edgeTargets, edgeTimes, edgeDistances, edgeSpeedLimits and edgeStreets hold the target node, travel time, length,
+ *   speed limit and street name index of each of those edges
+ *
+ * Every edge of the Map is stored once in each direction. Street names are deduplicated into a single table. Node
+ * addresses are looked up through an array of ids sorted by address, so no per-node hash entries are needed.
+ *
+ * The CompactMap is an IntSearchFramework and can be searched directly with an IntSearcher. Iterating over a node's
+ * neighbors touches one contiguous slice of each array and allocates nothing. The graph itself is immutable, so it
+ * can be shared freely between threads; only the choice of heuristic (see setLandmarks()) can be changed.
+ */
+public class CompactMap implements IntSearchFramework {
+
+    private final String[] addresses;
+    private final int[] xs, ys;
+    private final int[] edgeOffsets;
+    private final int[] edgeTargets;
+    private final float[] edgeTimes;
+    private final float[] edgeDistances;
+    private final float[] edgeSpeedLimits;
+    private final int[] edgeStreets;
+    private final String[] streetNames;
+    // node ids sorted by address, for looking up ids by address
+    private final int[] idsByAddress;
+    // landmark tables used for the heuristic. Straight-line distance is used if null
+    private volatile Landmarks landmarks;
+
+    // builds the CSR arrays from a list of nodes and a list of undirected edges. Edge i connects edgeNodes1[i] and
+    // edgeNodes2[i] and lies on the street streetNames[edgeStreets[i]] with the given speed limit. Only the first
+    // numEdges entries of the edge arrays are used
+    CompactMap(String[] addresses, int[] xs, int[] ys, int numEdges, int[] edgeNodes1, int[] edgeNodes2,
+               float[] speedLimits, int[] edgeStreets, String[] streetNames) {
+        int numNodes = addresses.length;
+        this.addresses = addresses;
+        this.xs = xs;
+        this.ys = ys;
+        this.streetNames = streetNames;
+
+        // count the edges leaving each node, then turn the counts into offsets
+        edgeOffsets = new int[numNodes + 1];
+        for (int i = 0; i < numEdges; i++) {
+            edgeOffsets[edgeNodes1[i] + 1]++;
+            edgeOffsets[edgeNodes2[i] + 1]++;
+        }
+        for (int node = 0; node < numNodes; node++) {
+            edgeOffsets[node + 1] += edgeOffsets[node];
+        }
+        int numArcs = edgeOffsets[numNodes];
+        edgeTargets = new int[numArcs];
+        edgeTimes = new float[numArcs];
+        edgeDistances = new float[numArcs];
+        edgeSpeedLimits = new float[numArcs];
+        this.edgeStreets = new int[numArcs];
+        int[] next = Arrays.copyOf(edgeOffsets, numNodes);
+        for (int i = 0; i < numEdges; i++) {
+            int node1 = edgeNodes1[i], node2 = edgeNodes2[i];
+            float distance = distance(xs[node1], ys[node1], xs[node2], ys[node2]);
+            putArc(next[node1]++, node2, distance, speedLimits[i], edgeStreets[i]);
+            putArc(next[node2]++, node1, distance, speedLimits[i], edgeStreets[i]);
+        }
+
+        idsByAddress = new int[numNodes];
+        Integer[] sorted = new Integer[numNodes];
+        for (int id = 0; id < numNodes; id++) {
+            sorted[id] = id;
+        }
+        Arrays.sort(sorted, Comparator.comparing(id -> addresses[id]));
+        for (int i = 0; i < numNodes; i++) {
+            idsByAddress[i] = sorted[i];
+        }
+    }
+
+    private void putArc(int arc, int target, float distance, float speedLimit, int street) {
+        edgeTargets[arc] = target;
+        edgeDistances[arc] = distance;
+        edgeSpeedLimits[arc] = speedLimit;
+        edgeTimes[arc] = distance / speedLimit;
+        edgeStreets[arc] = street;
+    }
+
+    // creates a CompactMap holding the current contents of the given Map. Node ids are the same in both
+    public static CompactMap fromMap(Map map) {
+        int numNodes = map.getNodeCount();
+        String[] addresses = new String[numNodes];
+        int[] xs = new int[numNodes], ys = new int[numNodes];
+        for (LocationNode node : map.getNodes()) {
+            addresses[node.getId()] = node.getAddress();
+            xs[node.getId()] = node.getX();
+            ys[node.getId()] = node.getY();
+        }
+
+        int numEdges = map.getEdgeCount();
+        int[] edgeNodes1 = new int[numEdges], edgeNodes2 = new int[numEdges], edgeStreets = new int[numEdges];
+        float[] speedLimits = new float[numEdges];
+        HashMap<String, Integer> streetIndices = new HashMap<>();
+        List<String> streetNames = new ArrayList<>();
+        int i = 0;
+        EdgeTable.Slots edges = map.getEdgeTable().getSlots();
+        for (int slot = 0; slot < edges.getCapacity(); slot++) {
+            Edge edge = edges.getEdge(slot);
+            if (edge == null) {
+                continue;
+            }
+            edgeNodes1[i] = edges.getNode1(slot);
+            edgeNodes2[i] = edges.getNode2(slot);
+            speedLimits[i] = edge.getSpeedLimit();
+            String street = edge.getStreetName();
+            Integer streetIndex = streetIndices.get(street);
+            if (streetIndex == null) {
+                streetIndex = streetNames.size();
+                streetIndices.put(street, streetIndex);
+                streetNames.add(street);
+            }
+            edgeStreets[i++] = streetIndex;
+        }
+        return new CompactMap(addresses, xs, ys, numEdges, edgeNodes1, edgeNodes2, speedLimits, edgeStreets,
+                streetNames.toArray(new String[0]));
+    }
+
+    // straight-line distance between two points, computed the same way as LocationNode.straightDistanceTo()
+    static float distance(int x1, int y1, int x2, int y2) {
+        return (float) Math.sqrt((double) (x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2));
+    }
+
+    @Override
+    public int getNodeCount() {
+        return addresses.length;
+    }
+
+    @Override
+    public int getFirstEdge(int node) {
+        return edgeOffsets[node];
+    }
+
+    @Override
+    public int getEdgeTarget(int edge) {
+        return edgeTargets[edge];
+    }
+
+    @Override // edge cost is the time needed to travel the edge
+    public float getEdgeCost(int edge) {
+        return edgeTimes[edge];
+    }
+
+    @Override // ALT bound on travel time to goal if landmarks have been set, straight-line distance otherwise
+    public float getHeuristic(int node, int goal) {
+        Landmarks current = landmarks;
+        if (current != null) {
+            return current.estimate(node, goal);
+        } else {
+            return getStraightDistance(node, goal);
+        }
+    }
+
+    // returns the straight-line distance between two nodes, the heuristic used when no landmarks are set
+    float getStraightDistance(int node, int goal) {
+        return distance(xs[node], ys[node], xs[goal], ys[goal]);
+    }
+
+    // sets landmark tables to use for the heuristic instead of straight-line distance, or null to go back to
+    // straight-line distance. Throws IllegalArgumentException if the tables were computed for a different graph
+    public void setLandmarks(Landmarks landmarks) throws IllegalArgumentException {
+        if (landmarks != null && !landmarks.matches(this)) {
+            throw new IllegalArgumentException("Landmark tables were computed for a different map");
+        }
+        this.landmarks = landmarks;
+    }
+
+    // returns number of directed edges. Every edge of the source Map is counted twice
+    public int getEdgeCount() {
+        return edgeTargets.length;
+    }
+
+    // returns id of the node with the given address, or -1 if there is none
+    public int getId(String address) {
+        int low = 0, high = idsByAddress.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int comparison = addresses[idsByAddress[mid]].compareTo(address);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return idsByAddress[mid];
+            }
+        }
+        return -1;
+    }
+
+    public String getAddress(int node) {
+        return addresses[node];
+    }
+
+    public int getX(int node) {
+        return xs[node];
+    }
+
+    public int getY(int node) {
+        return ys[node];
+    }
+
+    public float getEdgeTime(int edge) {
+        return edgeTimes[edge];
+    }
+
+    public float getEdgeDistance(int edge) {
+        return edgeDistances[edge];
+    }
+
+    public float getSpeedLimit(int edge) {
+        return edgeSpeedLimits[edge];
+    }
+
+    public String getStreetName(int edge) {
+        return streetNames[edgeStreets[edge]];
+    }
+
+    // returns index of the given edge's street name in getStreetNames()
+    int getStreetIndex(int edge) {
+        return edgeStreets[edge];
+    }
+
+    // returns the deduplicated table of street names. Not copied, so it must not be modified
+    String[] getStreetNames() {
+        return streetNames;
+    }
+
+    // returns the edge leading from node1 to node2, or -1 if there is none
+    public int findEdge(int node1, int node2) {
+        for (int edge = edgeOffsets[node1]; edge < edgeOffsets[node1 + 1]; edge++) {
+            if (edgeTargets[edge] == node2) {
+                return edge;
+            }
+        }
+        return -1;
+    }
+
+    // converts a path of node ids (as returned by an IntSearcher) into the corresponding nodes of the given Map
+    public List<LocationNode> toLocationNodes(int[] path, Map map) {
+        List<LocationNode> nodes = new ArrayList<>(path.length);
+        for (int node : path) {
+            nodes.add(map.getNode(addresses[node]));
+        }
+        return nodes;
+    }
+
+    // converts a path of node ids (as returned by an IntSearcher) into a Route through the given Map
+    // throws IllegalArgumentException if the path is empty
+    public Route toRoute(int[] path, Map map) throws IllegalArgumentException {
+        return map.getRoute(toLocationNodes(path, map));
+    }
+}
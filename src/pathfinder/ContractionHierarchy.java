@@ -0,0 +1,581 @@
+package pathfinder;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Contraction Hierarchies built on the edges of a CompactMap, for answering point-to-point queries much faster than
+ * A* once the preprocessing has been done.
+ *
+ * Preprocessing contracts nodes one "level" at a time. Contracting a node removes it from the graph and adds a
+ * shortcut edge between two of its neighbors whenever the path through the node is the only shortest path between
+ * them; a bounded Dijkstra search (the witness search) looks for an alternative. Nodes are ordered by edge
+ * difference (shortcuts added minus edges removed) plus the number of already contracted neighbors. Each round
+ * contracts every node whose priority is lower than that of all its remaining neighbors. These nodes are never
+ * adjacent, so their witness searches run in parallel. A witness only counts if it is strictly shorter than the path
+ * through the contracted node, so two nodes of the same round can never both skip a shortcut by relying on each
+ * other. The shortcuts they produce are then inserted sequentially, and the priorities of the affected neighbors are
+ * recomputed in parallel.
+ *
+ * The result is stored as an upward graph in CSR form: for every node, the edges and shortcuts leading to nodes
+ * contracted after it. A query runs Dijkstra upward from both the start and the goal, and the cheapest node reached
+ * by both is where the shortest path meets. Shortcuts on that path are unpacked into the original edges. Since
+ * every Map edge can be travelled both ways, the same upward graph serves both directions. Nodes that can be reached
+ * more cheaply through a higher-ranked neighbor are not relaxed (stall-on-demand), which keeps the search spaces
+ * small.
+ */
+public class ContractionHierarchy {
+
+    // witness searches give up after settling this many nodes. Giving up early only adds unnecessary shortcuts
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+    // lower limit used when only estimating a node's priority
+    private static final int SIMULATION_SETTLE_LIMIT = 50;
+
+    // graph the hierarchy was built on
+    private final CompactMap graph;
+    // position of each node in the contraction order
+    final int[] ranks;
+    // upward graph: the edges leaving node n are upOffsets[n] .. upOffsets[n + 1] - 1. upMiddles holds the node a
+    // shortcut bypasses, or -1 for an original edge
+    final int[] upOffsets;
+    final int[] upTargets;
+    final float[] upWeights;
+    final int[] upMiddles;
+    private final int numShortcuts;
+    private final ThreadLocal<QueryWorkspace> workspaces;
+
+    private ContractionHierarchy(CompactMap graph, int[] ranks, int[] upOffsets, int[] upTargets, float[] upWeights,
+                                 int[] upMiddles, int numShortcuts) {
+        this.graph = graph;
+        this.ranks = ranks;
+        this.upOffsets = upOffsets;
+        this.upTargets = upTargets;
+        this.upWeights = upWeights;
+        this.upMiddles = upMiddles;
+        this.numShortcuts = numShortcuts;
+        workspaces = ThreadLocal.withInitial(() -> new QueryWorkspace(graph.getNodeCount()));
+    }
+
+    // runs the preprocessing on the given graph, using all available cores
+    public static ContractionHierarchy build(CompactMap graph) {
+        return new Builder(graph).build();
+    }
+
+    // returns ids of the nodes on the fastest path from start to goal, empty if there is none
+    public int[] runSearch(int start, int goal) {
+        QueryWorkspace workspace = workspaces.get();
+        int meeting = search(start, goal, workspace);
+        if (meeting < 0) {
+            return new int[0];
+        }
+        IntList path = new IntList();
+        // walk up the forward tree from the meeting node to the start, then unpack its edges in order
+        IntList upward = new IntList();
+        for (int node = meeting; node != start; node = workspace.forwardParents[node]) {
+            upward.add(node);
+        }
+        path.add(start);
+        int from = start;
+        for (int i = upward.size() - 1; i >= 0; i--) {
+            unpack(from, upward.get(i), path);
+            from = upward.get(i);
+        }
+        // then follow the backward tree down from the meeting node to the goal
+        for (int node = meeting; node != goal; node = workspace.backwardParents[node]) {
+            unpack(node, workspace.backwardParents[node], path);
+        }
+        return path.toArray();
+    }
+
+    // returns the nodes on the fastest path between the given nodes of map, in the same form as
+    // Searcher.runSearch(). The map must be the one the underlying CompactMap was created from
+    // throws NoSuchElementException if either node isn't in the hierarchy, e.g. was added to the map after it was built
+    public List<LocationNode> runSearch(LocationNode start, LocationNode goal, Map map) throws NoSuchElementException {
+        return graph.toLocationNodes(runSearch(getId(start), getId(goal)), map);
+    }
+
+    private int getId(LocationNode node) throws NoSuchElementException {
+        int id = graph.getId(node.getAddress());
+        if (id < 0) {
+            throw new NoSuchElementException("Node \"" + node.getAddress() + "\" is not in the hierarchy");
+        }
+        return id;
+    }
+
+    // returns travel time of the fastest path from start to goal, or Float.POSITIVE_INFINITY if there is none
+    public float getTravelTime(int start, int goal) {
+        QueryWorkspace workspace = workspaces.get();
+        int meeting = search(start, goal, workspace);
+        return meeting < 0 ? Float.POSITIVE_INFINITY :
+                workspace.getForward(meeting) + workspace.getBackward(meeting);
+    }
+
+    // runs the bidirectional upward search and returns the node where the fastest path meets, or -1 if none
+    private int search(int start, int goal, QueryWorkspace workspace) {
+        workspace.reset();
+        workspace.setForward(start, 0, -1);
+        workspace.forwardHeap.push(start, 0);
+        workspace.setBackward(goal, 0, -1);
+        workspace.backwardHeap.push(goal, 0);
+        float best = Float.POSITIVE_INFINITY;
+        int meeting = -1;
+        while (true) {
+            float forwardMin = workspace.forwardHeap.peekKey(), backwardMin = workspace.backwardHeap.peekKey();
+            if (forwardMin >= best && backwardMin >= best) {
+                break;
+            }
+            boolean forward = forwardMin <= backwardMin;
+            IntMinHeap heap = forward ? workspace.forwardHeap : workspace.backwardHeap;
+            float key = heap.peekKey();
+            int node = heap.pop();
+            if (key > (forward ? workspace.getForward(node) : workspace.getBackward(node))) {
+                continue; // stale entry
+            }
+            float other = forward ? workspace.getBackward(node) : workspace.getForward(node);
+            if (key + other < best) {
+                best = key + other;
+                meeting = node;
+            }
+            if (isStalled(node, key, forward, workspace)) {
+                continue;
+            }
+            for (int edge = upOffsets[node]; edge < upOffsets[node + 1]; edge++) {
+                int target = upTargets[edge];
+                float distance = key + upWeights[edge];
+                if (forward && distance < workspace.getForward(target)) {
+                    workspace.setForward(target, distance, node);
+                    heap.push(target, distance);
+                } else if (!forward && distance < workspace.getBackward(target)) {
+                    workspace.setBackward(target, distance, node);
+                    heap.push(target, distance);
+                }
+            }
+        }
+        return meeting;
+    }
+
+    // runs Dijkstra from origin over the upward graph alone, without a goal, until it runs out of nodes. Every node
+    // settled without being stalled is appended to nodes, and its distance from origin is stored at the same index of
+    // the returned array. The meeting node of the fastest path between two nodes is in both of their search spaces
+    float[] searchUpward(int origin, IntList nodes) {
+        QueryWorkspace workspace = workspaces.get();
+        workspace.reset();
+        workspace.setForward(origin, 0, -1);
+        workspace.forwardHeap.push(origin, 0);
+        float[] distances = new float[16];
+        while (!workspace.forwardHeap.isEmpty()) {
+            float key = workspace.forwardHeap.peekKey();
+            int node = workspace.forwardHeap.pop();
+            if (key > workspace.getForward(node) || isStalled(node, key, true, workspace)) {
+                continue;
+            }
+            if (nodes.size() == distances.length) {
+                distances = Arrays.copyOf(distances, nodes.size() * 2);
+            }
+            distances[nodes.size()] = key;
+            nodes.add(node);
+            for (int edge = upOffsets[node]; edge < upOffsets[node + 1]; edge++) {
+                int target = upTargets[edge];
+                float distance = key + upWeights[edge];
+                if (distance < workspace.getForward(target)) {
+                    workspace.setForward(target, distance, node);
+                    workspace.forwardHeap.push(target, distance);
+                }
+            }
+        }
+        return Arrays.copyOf(distances, nodes.size());
+    }
+
+    // returns whether node can be reached more cheaply through a higher-ranked neighbor already reached by the same
+    // search. The upward search only ever enters such a neighbor from below, but the edge between them can be
+    // travelled both ways, so the neighbor's tentative distance plus the edge is also a way to reach node. If it is
+    // shorter, node's distance isn't a shortest one and node can't be on the shortest path, so there is no need to
+    // relax its edges
+    private boolean isStalled(int node, float distance, boolean forward, QueryWorkspace workspace) {
+        for (int edge = upOffsets[node]; edge < upOffsets[node + 1]; edge++) {
+            int neighbor = upTargets[edge];
+            float neighborDistance = forward ? workspace.getForward(neighbor) : workspace.getBackward(neighbor);
+            if (neighborDistance + upWeights[edge] < distance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // appends the original nodes on the (possibly shortcut) edge between from and to, excluding from itself.
+    // Uses an explicit stack since shortcuts can nest deeply
+    private void unpack(int from, int to, IntList path) {
+        IntList stack = new IntList();
+        stack.add(from);
+        stack.add(to);
+        while (stack.size() > 0) {
+            int b = stack.removeLast(), a = stack.removeLast();
+            int edge = ranks[a] < ranks[b] ? findUpEdge(a, b) : findUpEdge(b, a);
+            int middle = upMiddles[edge];
+            if (middle < 0) {
+                path.add(b);
+            } else { // process (a, middle) before (middle, b)
+                stack.add(middle);
+                stack.add(b);
+                stack.add(a);
+                stack.add(middle);
+            }
+        }
+    }
+
+    // returns index of the upward edge from lower to higher
+    private int findUpEdge(int lower, int higher) {
+        for (int edge = upOffsets[lower]; edge < upOffsets[lower + 1]; edge++) {
+            if (upTargets[edge] == higher) {
+                return edge;
+            }
+        }
+        throw new IllegalStateException("No upward edge from " + lower + " to " + higher);
+    }
+
+    public CompactMap getGraph() {
+        return graph;
+    }
+
+    // returns number of shortcut edges added by the preprocessing
+    public int getShortcutCount() {
+        return numShortcuts;
+    }
+
+    /**
+     * Contracts the nodes of a graph and assembles the upward graph. Holds the graph in a mutable adjacency-list
+     * form while contraction is running.
+     */
+    private static final class Builder {
+
+        private final CompactMap graph;
+        private final int numNodes;
+        // remaining edges of each node, including shortcuts. Entries leading to contracted nodes are skipped
+        private final int[][] targets;
+        private final float[][] weights;
+        private final int[][] middles;
+        private final int[] sizes;
+        private final boolean[] contracted;
+        // marks nodes being contracted in the current round
+        private final boolean[] contracting;
+        private final int[] deletedNeighbors;
+        private final float[] priorities;
+        private final ThreadLocal<WitnessSearch> witnessSearches;
+
+        Builder(CompactMap graph) {
+            this.graph = graph;
+            numNodes = graph.getNodeCount();
+            targets = new int[numNodes][];
+            weights = new float[numNodes][];
+            middles = new int[numNodes][];
+            sizes = new int[numNodes];
+            contracted = new boolean[numNodes];
+            contracting = new boolean[numNodes];
+            deletedNeighbors = new int[numNodes];
+            priorities = new float[numNodes];
+            witnessSearches = ThreadLocal.withInitial(() -> new WitnessSearch(numNodes));
+            for (int node = 0; node < numNodes; node++) {
+                int degree = graph.getFirstEdge(node + 1) - graph.getFirstEdge(node);
+                targets[node] = new int[Math.max(degree, 2)];
+                weights[node] = new float[Math.max(degree, 2)];
+                middles[node] = new int[Math.max(degree, 2)];
+                for (int edge = graph.getFirstEdge(node); edge < graph.getFirstEdge(node + 1); edge++) {
+                    addEdge(node, graph.getEdgeTarget(edge), graph.getEdgeCost(edge), -1);
+                }
+            }
+        }
+
+        ContractionHierarchy build() {
+            IntStream.range(0, numNodes).parallel().forEach(node -> priorities[node] = computePriority(node));
+
+            int[] ranks = new int[numNodes];
+            // upward edges of each node, recorded when the node is contracted
+            int[][] upTargets = new int[numNodes][];
+            float[][] upWeights = new float[numNodes][];
+            int[][] upMiddles = new int[numNodes][];
+            int numShortcuts = 0;
+            int nextRank = 0;
+            int[] remaining = IntStream.range(0, numNodes).toArray();
+
+            while (remaining.length > 0) {
+                // contract every node whose priority is a local minimum among its remaining neighbors
+                int[] round = Arrays.stream(remaining).parallel().filter(this::isLocalMinimum).toArray();
+                for (int node : round) {
+                    contracting[node] = true;
+                }
+                WitnessResult[] results = new WitnessResult[round.length];
+                IntStream.range(0, round.length).parallel().forEach(i ->
+                        results[i] = witnessSearches.get().findShortcuts(round[i], false));
+
+                for (int i = 0; i < round.length; i++) {
+                    int node = round[i];
+                    ranks[node] = nextRank++;
+                    // the node's remaining edges all lead to nodes contracted later, so they become its upward edges
+                    IntList upward = new IntList();
+                    for (int j = 0; j < sizes[node]; j++) {
+                        if (!contracted[targets[node][j]] && !contracting[targets[node][j]]) {
+                            upward.add(j);
+                        }
+                    }
+                    upTargets[node] = new int[upward.size()];
+                    upWeights[node] = new float[upward.size()];
+                    upMiddles[node] = new int[upward.size()];
+                    for (int j = 0; j < upward.size(); j++) {
+                        upTargets[node][j] = targets[node][upward.get(j)];
+                        upWeights[node][j] = weights[node][upward.get(j)];
+                        upMiddles[node][j] = middles[node][upward.get(j)];
+                        deletedNeighbors[upTargets[node][j]]++;
+                    }
+                }
+                for (int i = 0; i < round.length; i++) {
+                    for (Shortcut shortcut : results[i].shortcuts) {
+                        boolean added = addEdge(shortcut.from, shortcut.to, shortcut.weight, round[i]);
+                        added |= addEdge(shortcut.to, shortcut.from, shortcut.weight, round[i]);
+                        if (added) {
+                            numShortcuts++;
+                        }
+                    }
+                }
+                for (int node : round) {
+                    contracting[node] = false;
+                    contracted[node] = true;
+                }
+
+                // recompute priorities of the neighbors of contracted nodes
+                remaining = Arrays.stream(remaining).filter(node -> !contracted[node]).toArray();
+                boolean[] affected = new boolean[numNodes];
+                for (int node : round) {
+                    for (int j = 0; j < sizes[node]; j++) {
+                        affected[targets[node][j]] = true;
+                    }
+                }
+                Arrays.stream(remaining).parallel().filter(node -> affected[node])
+                        .forEach(node -> priorities[node] = computePriority(node));
+            }
+
+            // assemble the upward graph in CSR form
+            int[] offsets = new int[numNodes + 1];
+            for (int node = 0; node < numNodes; node++) {
+                offsets[node + 1] = offsets[node] + upTargets[node].length;
+            }
+            int[] allTargets = new int[offsets[numNodes]];
+            float[] allWeights = new float[offsets[numNodes]];
+            int[] allMiddles = new int[offsets[numNodes]];
+            for (int node = 0; node < numNodes; node++) {
+                System.arraycopy(upTargets[node], 0, allTargets, offsets[node], upTargets[node].length);
+                System.arraycopy(upWeights[node], 0, allWeights, offsets[node], upWeights[node].length);
+                System.arraycopy(upMiddles[node], 0, allMiddles, offsets[node], upMiddles[node].length);
+            }
+            return new ContractionHierarchy(graph, ranks, offsets, allTargets, allWeights, allMiddles, numShortcuts);
+        }
+
+        // returns whether node has a lower (priority, id) than all of its remaining neighbors
+        private boolean isLocalMinimum(int node) {
+            for (int j = 0; j < sizes[node]; j++) {
+                int neighbor = targets[node][j];
+                if (!contracted[neighbor] && (priorities[neighbor] < priorities[node] ||
+                        (priorities[neighbor] == priorities[node] && tieBreak(neighbor) < tieBreak(node)))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // scrambles node ids so that ties between equal priorities are broken evenly across the graph instead of
+        // following the order nodes were added in
+        private static int tieBreak(int node) {
+            int hash = node * 0x9E3779B1;
+            return hash ^ (hash >>> 16);
+        }
+
+        // edge difference plus number of contracted neighbors
+        private float computePriority(int node) {
+            WitnessResult result = witnessSearches.get().findShortcuts(node, true);
+            return result.numShortcuts - result.degree + deletedNeighbors[node];
+        }
+
+        // adds an edge from node to target, or lowers the weight of the existing one. Returns whether anything
+        // changed
+        private boolean addEdge(int node, int target, float weight, int middle) {
+            for (int j = 0; j < sizes[node]; j++) {
+                if (targets[node][j] == target) {
+                    if (weight < weights[node][j]) {
+                        weights[node][j] = weight;
+                        middles[node][j] = middle;
+                        return true;
+                    }
+                    return false;
+                }
+            }
+            if (sizes[node] == targets[node].length) {
+                int capacity = sizes[node] * 2;
+                targets[node] = Arrays.copyOf(targets[node], capacity);
+                weights[node] = Arrays.copyOf(weights[node], capacity);
+                middles[node] = Arrays.copyOf(middles[node], capacity);
+            }
+            targets[node][sizes[node]] = target;
+            weights[node][sizes[node]] = weight;
+            middles[node][sizes[node]] = middle;
+            sizes[node]++;
+            return true;
+        }
+
+        /**
+         * Per-thread state for witness searches: tentative distances with generation stamps, so nothing needs to
+         * be cleared between searches.
+         */
+        private final class WitnessSearch {
+            private final float[] distances;
+            private final int[] stamps;
+            private int generation;
+            private final IntMinHeap heap = new IntMinHeap();
+
+            WitnessSearch(int numNodes) {
+                distances = new float[numNodes];
+                stamps = new int[numNodes];
+            }
+
+            private float getDistance(int node) {
+                return stamps[node] == generation ? distances[node] : Float.POSITIVE_INFINITY;
+            }
+
+            // finds the shortcuts contracting node would require. If simulate is true, only counts them using
+            // cheaper witness searches
+            WitnessResult findShortcuts(int node, boolean simulate) {
+                WitnessResult result = new WitnessResult();
+                IntList neighbors = new IntList();
+                float maxWeight = 0;
+                for (int j = 0; j < sizes[node]; j++) {
+                    int neighbor = targets[node][j];
+                    if (!contracted[neighbor] && !contracting[neighbor]) {
+                        neighbors.add(j);
+                        maxWeight = Math.max(maxWeight, weights[node][j]);
+                    }
+                }
+                result.degree = neighbors.size();
+                for (int i = 0; i < neighbors.size(); i++) {
+                    int source = targets[node][neighbors.get(i)];
+                    float sourceWeight = weights[node][neighbors.get(i)];
+                    search(source, node, sourceWeight + maxWeight,
+                            simulate ? SIMULATION_SETTLE_LIMIT : WITNESS_SETTLE_LIMIT);
+                    for (int k = i + 1; k < neighbors.size(); k++) {
+                        int target = targets[node][neighbors.get(k)];
+                        float viaNode = sourceWeight + weights[node][neighbors.get(k)];
+                        if (getDistance(target) >= viaNode) {
+                            result.numShortcuts++;
+                            if (!simulate) {
+                                result.shortcuts.add(new Shortcut(source, target, viaNode));
+                            }
+                        }
+                    }
+                }
+                return result;
+            }
+
+            // bounded Dijkstra from source that avoids the node being contracted and every contracted node
+            private void search(int source, int avoided, float maxDistance, int settleLimit) {
+                if (++generation == Integer.MAX_VALUE) {
+                    Arrays.fill(stamps, 0);
+                    generation = 1;
+                }
+                heap.clear();
+                stamps[source] = generation;
+                distances[source] = 0;
+                heap.push(source, 0);
+                int settled = 0;
+                while (!heap.isEmpty() && settled < settleLimit) {
+                    float key = heap.peekKey();
+                    int current = heap.pop();
+                    if (key > getDistance(current)) {
+                        continue;
+                    } else if (key > maxDistance) {
+                        break;
+                    }
+                    settled++;
+                    for (int j = 0; j < sizes[current]; j++) {
+                        int neighbor = targets[current][j];
+                        if (neighbor == avoided || contracted[neighbor]) {
+                            continue;
+                        }
+                        float distance = key + weights[current][j];
+                        if (distance < getDistance(neighbor)) {
+                            stamps[neighbor] = generation;
+                            distances[neighbor] = distance;
+                            heap.push(neighbor, distance);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // outcome of the witness searches for one node
+    private static final class WitnessResult {
+        int degree;
+        int numShortcuts;
+        // shortcuts required to contract the node. Left empty when only simulating
+        final List<Shortcut> shortcuts = new ArrayList<>();
+    }
+
+    // a shortcut between two neighbors of a node being contracted
+    private static final class Shortcut {
+        final int from, to;
+        final float weight;
+
+        Shortcut(int from, int to, float weight) {
+            this.from = from;
+            this.to = to;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Per-thread query state. Distances are only valid if their stamp matches the current generation.
+     */
+    private static final class QueryWorkspace {
+        final float[] forwardDistances, backwardDistances;
+        final int[] forwardParents, backwardParents;
+        final int[] forwardStamps, backwardStamps;
+        final IntMinHeap forwardHeap = new IntMinHeap(), backwardHeap = new IntMinHeap();
+        int generation;
+
+        QueryWorkspace(int numNodes) {
+            forwardDistances = new float[numNodes];
+            backwardDistances = new float[numNodes];
+            forwardParents = new int[numNodes];
+            backwardParents = new int[numNodes];
+            forwardStamps = new int[numNodes];
+            backwardStamps = new int[numNodes];
+        }
+
+        void reset() {
+            forwardHeap.clear();
+            backwardHeap.clear();
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(forwardStamps, 0);
+                Arrays.fill(backwardStamps, 0);
+                generation = 1;
+            }
+        }
+
+        float getForward(int node) {
+            return forwardStamps[node] == generation ? forwardDistances[node] : Float.POSITIVE_INFINITY;
+        }
+
+        float getBackward(int node) {
+            return backwardStamps[node] == generation ? backwardDistances[node] : Float.POSITIVE_INFINITY;
+        }
+
+        void setForward(int node, float distance, int parent) {
+            forwardStamps[node] = generation;
+            forwardDistances[node] = distance;
+            forwardParents[node] = parent;
+        }
+
+        void setBackward(int node, float distance, int parent) {
+            backwardStamps[node] = generation;
+            backwardDistances[node] = distance;
+            backwardParents[node] = parent;
+        }
+    }
+}
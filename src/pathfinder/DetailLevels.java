@@ -0,0 +1,385 @@
+package pathfinder;
+
+import java.awt.*;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Simplified geometry of a Map for drawing it zoomed out. At zoom level z, a point (x, y) of the map is drawn at
+ * (x / 2^z, y / 2^z), so one pixel covers 2^z map units. Each level above 0 has its own geometry, built the first time
+ * the level is drawn:
+ * - Minor roads are dropped. Edges are ranked by speed limit, and level z keeps the fastest 1 / 2^(z - 1) of them
+ *   (ties included), so level 1 keeps every road and each level above keeps about half as many.
+ * - Node markers are dropped.
+ * - Kept edges are merged into polylines, one per run of edges along the same street between junctions.
+ * - Every polyline is simplified (Douglas-Peucker) to within half a pixel of the level, and polylines smaller than a
+ *   pixel are dropped.
+ * The polylines of each level are indexed with a SpatialIndex, so drawing a region only touches the lines passing
+ * through it. As roads are dropped and polylines simplified in step with the scale, the work of drawing a region
+ * depends on how many pixels it covers rather than on how much of the map it shows.
+ *
+ * DetailLevels copies what it needs from the Map, so the Map can change afterwards; Map builds a new one when it does.
+ * If only speed limits have changed, the new one shares the copied nodes and edges and keeps every level already built
+ * that still keeps the same roads (see update()).
+ */
+class DetailLevels {
+
+    // highest zoom level supported: 2^MAX_ZOOM_LEVEL map units per pixel
+    static final int MAX_ZOOM_LEVEL = 8;
+
+    // version of the map the geometry was copied from
+    private final long mapVersion;
+    // coordinates of every node, by id
+    private final int[] xs, ys;
+    // nodes, street (as an index) and speed limit of every edge
+    private final int[] edgeNodes1, edgeNodes2, edgeStreets;
+    private final float[] edgeSpeeds;
+    // geometry of every level, null until first needed. Level 0 is drawn from the map itself
+    private final Level[] levels = new Level[MAX_ZOOM_LEVEL + 1];
+
+    DetailLevels(Map map) {
+        mapVersion = map.getVersion();
+        int numNodes = map.getNodeCount();
+        xs = new int[numNodes];
+        ys = new int[numNodes];
+        for (int id = 0; id < numNodes; id++) {
+            xs[id] = map.getNode(id).getX();
+            ys[id] = map.getNode(id).getY();
+        }
+        EdgeTable.Slots edges = map.getEdgeTable().getSlots();
+        int numEdges = map.getEdgeCount();
+        edgeNodes1 = new int[numEdges];
+        edgeNodes2 = new int[numEdges];
+        edgeStreets = new int[numEdges];
+        edgeSpeeds = new float[numEdges];
+        HashMap<String, Integer> streetIndices = new HashMap<>();
+        int edge = 0;
+        for (int slot = 0; slot < edges.getCapacity(); slot++) {
+            Edge value = edges.getEdge(slot);
+            if (value != null) {
+                edgeNodes1[edge] = edges.getNode1(slot);
+                edgeNodes2[edge] = edges.getNode2(slot);
+                edgeStreets[edge] = streetIndices.computeIfAbsent(value.getStreetName(), name -> streetIndices.size());
+                edgeSpeeds[edge++] = value.getSpeedLimit();
+            }
+        }
+    }
+
+    // copies the given speed limits, sharing the nodes and edges of old. Levels old has built are kept if they keep the
+    // same edges with the new speeds
+    private DetailLevels(DetailLevels old, long mapVersion, float[] edgeSpeeds) {
+        this.mapVersion = mapVersion;
+        xs = old.xs;
+        ys = old.ys;
+        edgeNodes1 = old.edgeNodes1;
+        edgeNodes2 = old.edgeNodes2;
+        edgeStreets = old.edgeStreets;
+        this.edgeSpeeds = edgeSpeeds;
+        synchronized (old) {
+            for (int zoomLevel = 1; zoomLevel <= MAX_ZOOM_LEVEL; zoomLevel++) {
+                if (old.levels[zoomLevel] != null
+                        && Arrays.equals(old.getKeptEdges(zoomLevel), getKeptEdges(zoomLevel))) {
+                    levels[zoomLevel] = old.levels[zoomLevel];
+                }
+            }
+        }
+    }
+
+    // returns geometry for the map as it is now. If the map still has the same nodes and edges, and only speed limits
+    // have changed, they are shared with this one, and so are the levels whose roads are unchanged. Otherwise
+    // everything is copied again
+    DetailLevels update(Map map) {
+        long version = map.getVersion();
+        if (map.getNodeCount() != xs.length || map.getEdgeCount() != edgeNodes1.length) {
+            return new DetailLevels(map);
+        }
+        EdgeTable.Slots edges = map.getEdgeTable().getSlots();
+        float[] speeds = new float[edgeNodes1.length];
+        int edge = 0;
+        for (int slot = 0; slot < edges.getCapacity(); slot++) {
+            Edge value = edges.getEdge(slot);
+            if (value != null) {
+                // edges are replaced in place, so they are found in the same order unless the table has changed
+                if (edge == speeds.length || edges.getNode1(slot) != edgeNodes1[edge]
+                        || edges.getNode2(slot) != edgeNodes2[edge]) {
+                    return new DetailLevels(map);
+                }
+                speeds[edge++] = value.getSpeedLimit();
+            }
+        }
+        return edge == speeds.length ? new DetailLevels(this, version, speeds) : new DetailLevels(map);
+    }
+
+    // returns the version of the map the geometry was copied from
+    long getMapVersion() {
+        return mapVersion;
+    }
+
+    // draws the roads of the given zoom level within the clip, which is in the level's coordinates, translated so
+    // that the clip's top-left is at (0,0). Colors and stroke are left as set on the Graphics
+    // throws IllegalArgumentException if zoomLevel is not between 1 and MAX_ZOOM_LEVEL
+    void draw(Graphics drawFrame, Rect clip, int zoomLevel) throws IllegalArgumentException {
+        getLevel(zoomLevel).draw(drawFrame, clip, zoomLevel);
+    }
+
+    // returns the geometry of the given zoom level, building it if this is the first time it is needed
+    private synchronized Level getLevel(int zoomLevel) throws IllegalArgumentException {
+        if (zoomLevel < 1 || zoomLevel > MAX_ZOOM_LEVEL) {
+            throw new IllegalArgumentException("Zoom level must be between 1 and " + MAX_ZOOM_LEVEL);
+        }
+        if (levels[zoomLevel] == null) {
+            levels[zoomLevel] = buildLevel(zoomLevel);
+        }
+        return levels[zoomLevel];
+    }
+
+    // returns which edges the given zoom level keeps: the fastest, those at least as fast as the edge ranked at the
+    // cut-off
+    private boolean[] getKeptEdges(int zoomLevel) {
+        int numEdges = edgeNodes1.length;
+        boolean[] kept = new boolean[numEdges];
+        if (numEdges > 0) {
+            float[] speeds = edgeSpeeds.clone();
+            Arrays.sort(speeds);
+            float threshold = speeds[Math.min(numEdges - 1, (int) (numEdges * (1 - 1.0 / (1 << (zoomLevel - 1)))))];
+            for (int edge = 0; edge < numEdges; edge++) {
+                kept[edge] = edgeSpeeds[edge] >= threshold;
+            }
+        }
+        return kept;
+    }
+
+    private Level buildLevel(int zoomLevel) {
+        int numNodes = xs.length, numEdges = edgeNodes1.length;
+        boolean[] kept = getKeptEdges(zoomLevel);
+
+        // adjacency of the kept edges: the edges of node n are at adjacent[offsets[n]] .. adjacent[offsets[n + 1] - 1]
+        int[] offsets = new int[numNodes + 1];
+        for (int edge = 0; edge < numEdges; edge++) {
+            if (kept[edge]) {
+                offsets[edgeNodes1[edge] + 1]++;
+                offsets[edgeNodes2[edge] + 1]++;
+            }
+        }
+        for (int node = 0; node < numNodes; node++) {
+            offsets[node + 1] += offsets[node];
+        }
+        int[] adjacent = new int[offsets[numNodes]];
+        int[] next = Arrays.copyOf(offsets, numNodes);
+        for (int edge = 0; edge < numEdges; edge++) {
+            if (kept[edge]) {
+                adjacent[next[edgeNodes1[edge]]++] = edge;
+                adjacent[next[edgeNodes2[edge]]++] = edge;
+            }
+        }
+
+        // merge edges into polylines. A polyline runs between junctions: nodes where anything but two edges of the
+        // same street meet. Walking out of every junction covers every polyline twice, once from each end, so
+        // edges are marked as they are taken. Loops with no junction on them are walked afterwards
+        LevelBuilder builder = new LevelBuilder((1 << zoomLevel) / 2.0, 1 << zoomLevel);
+        boolean[] taken = new boolean[numEdges];
+        for (int node = 0; node < numNodes; node++) {
+            if (isJunction(node, offsets, adjacent)) {
+                for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+                    if (!taken[adjacent[i]]) {
+                        walk(node, adjacent[i], offsets, adjacent, taken, builder);
+                    }
+                }
+            }
+        }
+        for (int edge = 0; edge < numEdges; edge++) {
+            if (kept[edge] && !taken[edge]) {
+                walk(edgeNodes1[edge], edge, offsets, adjacent, taken, builder);
+            }
+        }
+        return builder.build();
+    }
+
+    private boolean isJunction(int node, int[] offsets, int[] adjacent) {
+        int start = offsets[node];
+        return offsets[node + 1] - start != 2 || edgeStreets[adjacent[start]] != edgeStreets[adjacent[start + 1]];
+    }
+
+    // follows edges from node, starting with the given edge, until reaching a junction or an edge already taken, and
+    // adds the polyline to builder
+    private void walk(int node, int edge, int[] offsets, int[] adjacent, boolean[] taken, LevelBuilder builder) {
+        builder.startLine(xs[node], ys[node]);
+        while (true) {
+            taken[edge] = true;
+            node = edgeNodes1[edge] == node ? edgeNodes2[edge] : edgeNodes1[edge];
+            builder.addPoint(xs[node], ys[node]);
+            if (isJunction(node, offsets, adjacent)) {
+                break;
+            }
+            // carry on along the node's other edge
+            int other = adjacent[offsets[node]] == edge ? adjacent[offsets[node] + 1] : adjacent[offsets[node]];
+            if (taken[other]) {
+                break;
+            }
+            edge = other;
+        }
+        builder.endLine();
+    }
+
+    /**
+     * Polylines of one zoom level, stored as runs of points in flat arrays, with a SpatialIndex over their bounds.
+     */
+    private static final class Level {
+        // points of line i are at lineOffsets[i] .. lineOffsets[i + 1] - 1
+        final int[] lineOffsets, pointXs, pointYs;
+        final SpatialIndex index;
+
+        Level(int[] lineOffsets, int[] pointXs, int[] pointYs, SpatialIndex index) {
+            this.lineOffsets = lineOffsets;
+            this.pointXs = pointXs;
+            this.pointYs = pointYs;
+            this.index = index;
+        }
+
+        void draw(Graphics drawFrame, Rect clip, int zoomLevel) {
+            // the clip in map coordinates
+            IntList found = new IntList();
+            index.search(clip.getX0() << zoomLevel, clip.getY0() << zoomLevel, clip.getX1() << zoomLevel,
+                    clip.getY1() << zoomLevel, found);
+            int[] screenXs = new int[16], screenYs = new int[16];
+            for (int i = 0; i < found.size(); i++) {
+                int line = found.get(i);
+                int count = 0;
+                for (int point = lineOffsets[line]; point < lineOffsets[line + 1]; point++) {
+                    // shifting rounds towards negative infinity, like the division it stands for
+                    int x = (pointXs[point] >> zoomLevel) - clip.getX0(), y = (pointYs[point] >> zoomLevel) - clip.getY0();
+                    // successive points falling on the same pixel are drawn once
+                    if (count > 0 && x == screenXs[count - 1] && y == screenYs[count - 1]) {
+                        continue;
+                    }
+                    if (count == screenXs.length) {
+                        screenXs = Arrays.copyOf(screenXs, count * 2);
+                        screenYs = Arrays.copyOf(screenYs, count * 2);
+                    }
+                    screenXs[count] = x;
+                    screenYs[count++] = y;
+                }
+                if (count == 1) {
+                    drawFrame.drawLine(screenXs[0], screenYs[0], screenXs[0], screenYs[0]);
+                } else {
+                    drawFrame.drawPolyline(screenXs, screenYs, count);
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the polylines of a level, simplifying each as it is finished.
+     */
+    private static final class LevelBuilder {
+        // largest distance a simplified line may stray from the original
+        private final double tolerance;
+        // lines whose bounds are smaller than this in both directions are dropped
+        private final int minSize;
+        // points of the line being built
+        private int[] lineXs = new int[16], lineYs = new int[16];
+        private int lineLength;
+        // points of the finished lines
+        private IntList offsets = new IntList(), pointXs = new IntList(), pointYs = new IntList();
+        // bounds of the finished lines
+        private IntList minXs = new IntList(), minYs = new IntList(), maxXs = new IntList(), maxYs = new IntList();
+
+        LevelBuilder(double tolerance, int minSize) {
+            this.tolerance = tolerance;
+            this.minSize = minSize;
+            offsets.add(0);
+        }
+
+        void startLine(int x, int y) {
+            lineLength = 0;
+            addPoint(x, y);
+        }
+
+        void addPoint(int x, int y) {
+            if (lineLength == lineXs.length) {
+                lineXs = Arrays.copyOf(lineXs, lineLength * 2);
+                lineYs = Arrays.copyOf(lineYs, lineLength * 2);
+            }
+            lineXs[lineLength] = x;
+            lineYs[lineLength++] = y;
+        }
+
+        void endLine() {
+            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+            for (int i = 0; i < lineLength; i++) {
+                minX = Math.min(minX, lineXs[i]);
+                minY = Math.min(minY, lineYs[i]);
+                maxX = Math.max(maxX, lineXs[i]);
+                maxY = Math.max(maxY, lineYs[i]);
+            }
+            if (maxX - minX < minSize && maxY - minY < minSize) {
+                return;
+            }
+            boolean[] keep = simplify();
+            for (int i = 0; i < lineLength; i++) {
+                if (keep[i]) {
+                    pointXs.add(lineXs[i]);
+                    pointYs.add(lineYs[i]);
+                }
+            }
+            offsets.add(pointXs.size());
+            minXs.add(minX);
+            minYs.add(minY);
+            maxXs.add(maxX);
+            maxYs.add(maxY);
+        }
+
+        // Douglas-Peucker: keeps the ends of the line, then recursively the point furthest from the segment between
+        // the kept points around it, as long as that is further than tolerance
+        private boolean[] simplify() {
+            boolean[] keep = new boolean[lineLength];
+            keep[0] = true;
+            keep[lineLength - 1] = true;
+            // pairs of (first, last) point of the stretches still to simplify
+            int[] stack = new int[32];
+            int stackSize = 0;
+            stack[stackSize++] = 0;
+            stack[stackSize++] = lineLength - 1;
+            double toleranceSquared = tolerance * tolerance;
+            while (stackSize > 0) {
+                int last = stack[--stackSize], first = stack[--stackSize];
+                int furthest = -1;
+                double furthestDistance = toleranceSquared;
+                for (int i = first + 1; i < last; i++) {
+                    double distance = distanceSquared(i, first, last);
+                    if (distance > furthestDistance) {
+                        furthestDistance = distance;
+                        furthest = i;
+                    }
+                }
+                if (furthest >= 0) {
+                    keep[furthest] = true;
+                    if (stackSize + 4 > stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[stackSize++] = first;
+                    stack[stackSize++] = furthest;
+                    stack[stackSize++] = furthest;
+                    stack[stackSize++] = last;
+                }
+            }
+            return keep;
+        }
+
+        // squared distance from point i of the line to the segment between points a and b
+        private double distanceSquared(int i, int a, int b) {
+            double dx = lineXs[b] - lineXs[a], dy = lineYs[b] - lineYs[a];
+            double px = lineXs[i] - lineXs[a], py = lineYs[i] - lineYs[a];
+            double lengthSquared = dx * dx + dy * dy;
+            double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, (px * dx + py * dy) / lengthSquared));
+            double ex = px - t * dx, ey = py - t * dy;
+            return ex * ex + ey * ey;
+        }
+
+        Level build() {
+            int numLines = offsets.size() - 1;
+            return new Level(offsets.toArray(), pointXs.toArray(), pointYs.toArray(),
+                    new SpatialIndex(minXs.toArray(), minYs.toArray(), maxXs.toArray(), maxYs.toArray(), numLines));
+        }
+    }
+}
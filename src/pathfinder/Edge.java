@@ -6,9 +6,9 @@ package pathfinder;
  */
 public class Edge {
 
-    private float distance;
-    private String streetName;
-    private float speedLimit;
+    private final float distance;
+    private final String streetName;
+    private final float speedLimit;
 
     public Edge(float distance, String streetName, float speedLimit) {
         this.distance = distance;
@@ -0,0 +1,82 @@
+package pathfinder;
+
+/**
+ * A point snapped onto the nearest edge of a Map: the edge, the two nodes it spans, and the point on it nearest to
+ * the given coordinates, as a fraction of the way from node1 to node2.
+ *
+ * A route can start mid-street from a snapped point: the trip to node1 takes getTimeToNode1() and the trip to node2
+ * getTimeToNode2(), so the fastest route to a goal is the faster of the two totals found by searching from either
+ * node. Arriving at a snapped point works the same way in reverse.
+ */
+public class EdgeSnap {
+
+    private final LocationNode node1, node2;
+    private final Edge edge;
+    // fraction of the way from node1 to node2, between 0 and 1
+    private final double fraction;
+    // snapped point on the edge
+    private final double x, y;
+    // distance from the given coordinates to the snapped point
+    private final double distance;
+
+    EdgeSnap(LocationNode node1, LocationNode node2, Edge edge, double fraction, double x, double y,
+             double distance) {
+        this.node1 = node1;
+        this.node2 = node2;
+        this.edge = edge;
+        this.fraction = fraction;
+        this.x = x;
+        this.y = y;
+        this.distance = distance;
+    }
+
+    public LocationNode getNode1() {
+        return node1;
+    }
+
+    public LocationNode getNode2() {
+        return node2;
+    }
+
+    public Edge getEdge() {
+        return edge;
+    }
+
+    // returns how far along the edge the snapped point is: 0 at node1, 1 at node2
+    public double getFraction() {
+        return fraction;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    // returns straight-line distance from the coordinates that were snapped to the snapped point
+    public double getDistance() {
+        return distance;
+    }
+
+    // returns time to travel from the snapped point to node1 along the edge
+    public float getTimeToNode1() {
+        return (float) (fraction * edge.getTime());
+    }
+
+    // returns time to travel from the snapped point to node2 along the edge
+    public float getTimeToNode2() {
+        return (float) ((1 - fraction) * edge.getTime());
+    }
+
+    // returns whichever of the edge's nodes is nearer to the snapped point along the edge
+    public LocationNode getNearerNode() {
+        return fraction <= 0.5 ? node1 : node2;
+    }
+
+    @Override
+    public String toString() {
+        return "EdgeSnap(" + node1.getAddress() + "-" + node2.getAddress() + " at " + fraction + ")";
+    }
+}
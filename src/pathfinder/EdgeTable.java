@@ -0,0 +1,147 @@
+package pathfinder;
+
+/**
+ * Hash table from an unordered pair of node ids to the Edge between them. The pair is packed into a single long (the
+ * smaller id in the high half), so a lookup hashes one long and compares one long per probe: no key objects are
+ * allocated and no strings are touched. Collisions are resolved by linear probing, and the table doubles once it is
+ * half full. Edges are never removed.
+ *
+ * Slots can be walked through a Slots snapshot (0 .. getCapacity() - 1, skipping those whose getEdge() is null) to
+ * visit every edge.
+ *
+ * Lookups may run while edges are replaced (see Map.setSpeedLimit()): a replacement writes the new edge into the slot of
+ * the old one, and a resize builds the larger arrays on the side and publishes them together, so a reader always sees a
+ * complete table and either the old or the new edge. Edges are added by one thread at a time, and a lookup running
+ * meanwhile may not find an edge that is being added.
+ */
+class EdgeTable {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // the arrays of the table, replaced as a whole when it grows
+    private volatile Slots slots;
+    private int size;
+
+    EdgeTable() {
+        slots = new Slots(INITIAL_CAPACITY);
+    }
+
+    // returns the edge between the two nodes, or null if there is none
+    Edge get(int node1, int node2) {
+        Slots current = slots;
+        long key = key(node1, node2);
+        int mask = current.keys.length - 1;
+        for (int slot = hash(key) & mask; current.edges[slot] != null; slot = (slot + 1) & mask) {
+            if (current.keys[slot] == key) {
+                return current.edges[slot];
+            }
+        }
+        return null;
+    }
+
+    // stores the edge between the two nodes, replacing any previous one. Returns the previous edge, or null.
+    // Replacing an edge never resizes the table
+    Edge put(int node1, int node2, Edge edge) {
+        long key = key(node1, node2);
+        Slots current = slots;
+        int mask = current.keys.length - 1;
+        int slot = hash(key) & mask;
+        for (; current.edges[slot] != null; slot = (slot + 1) & mask) {
+            if (current.keys[slot] == key) {
+                Edge previous = current.edges[slot];
+                current.edges[slot] = edge;
+                return previous;
+            }
+        }
+        // a new key: make room for it first if the table would be more than half full
+        if (2 * (size + 1) > current.keys.length) {
+            current = resize(current, current.keys.length * 2);
+            mask = current.keys.length - 1;
+            slot = hash(key) & mask;
+            while (current.edges[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+        }
+        // plain array stores, so a concurrent reader may miss the edge while it is being added
+        current.keys[slot] = key;
+        current.edges[slot] = edge;
+        size++;
+        return null;
+    }
+
+    // copies the edges into a table of the given capacity and publishes it
+    private Slots resize(Slots old, int capacity) {
+        Slots resized = new Slots(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < old.keys.length; i++) {
+            if (old.edges[i] != null) {
+                int slot = hash(old.keys[i]) & mask;
+                while (resized.edges[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                resized.keys[slot] = old.keys[i];
+                resized.edges[slot] = old.edges[i];
+            }
+        }
+        slots = resized;
+        return resized;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // returns the current arrays of the table, for walking its slots. Unaffected by later resizes
+    Slots getSlots() {
+        return slots;
+    }
+
+    // packs the pair with the smaller id first, so that both orders give the same key
+    private static long key(int node1, int node2) {
+        return node1 < node2 ? (long) node1 << 32 | node2 : (long) node2 << 32 | node1;
+    }
+
+    // murmur3 64-bit finaliser. Mixes both ids into the low bits used for the slot
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * The arrays of an EdgeTable at one capacity: the key and edge in each slot.
+     */
+    static final class Slots {
+
+        private final long[] keys;
+        private final Edge[] edges;
+
+        private Slots(int capacity) {
+            keys = new long[capacity];
+            edges = new Edge[capacity];
+        }
+
+        // returns number of slots
+        int getCapacity() {
+            return keys.length;
+        }
+
+        // returns edge stored in the given slot, or null if the slot is empty
+        Edge getEdge(int slot) {
+            return edges[slot];
+        }
+
+        // returns the smaller node id of the edge in the given slot
+        int getNode1(int slot) {
+            return (int) (keys[slot] >>> 32);
+        }
+
+        // returns the larger node id of the edge in the given slot
+        int getNode2(int slot) {
+            return (int) keys[slot];
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package pathfinder;
+
+/**
+ * Render times of the most recent frames of a MapDisplay (up to the last 1024), and the number of frames rendered and
+ * skipped since it was created. A frame is skipped when rendering falls behind and the animation is advanced more
+ * than once between two rendered frames. Obtained from MapDisplay.getFrameStats(); the values don't change afterwards.
+ */
+public class FrameStats {
+
+    // render times of the recent frames, in ascending order
+    private final long[] sortedNanos;
+    private final long renderedFrames, skippedFrames;
+
+    FrameStats(long[] sortedNanos, long renderedFrames, long skippedFrames) {
+        this.sortedNanos = sortedNanos;
+        this.renderedFrames = renderedFrames;
+        this.skippedFrames = skippedFrames;
+    }
+
+    // returns the render time (ns) that the given percentage of recent frames took at most, e.g. 50 for the median or
+    // 99 for the 99th percentile. Returns 0 if no frame has been rendered yet
+    // throws IllegalArgumentException if percentile is not between 0 and 100
+    public long getPercentileNanos(double percentile) throws IllegalArgumentException {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        } else if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)];
+    }
+
+    // returns the longest render time (ns) of the recent frames
+    public long getMaxNanos() {
+        return sortedNanos.length == 0 ? 0 : sortedNanos[sortedNanos.length - 1];
+    }
+
+    // returns number of recent frames the percentiles are taken over
+    public int getSampleCount() {
+        return sortedNanos.length;
+    }
+
+    public long getRenderedFrameCount() {
+        return renderedFrames;
+    }
+
+    public long getSkippedFrameCount() {
+        return skippedFrames;
+    }
+
+    @Override
+    public String toString() {
+        return "FrameStats(rendered=" + renderedFrames + ", skipped=" + skippedFrames + ", p50=" +
+                getPercentileNanos(50) / 1000 + "us, p95=" + getPercentileNanos(95) / 1000 + "us, p99=" +
+                getPercentileNanos(99) / 1000 + "us, max=" + getMaxNanos() / 1000 + "us)";
+    }
+}
@@ -0,0 +1,31 @@
+package pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * Records the render times of the most recent frames in a ring buffer, along with the number of frames rendered and
+ * skipped. Written by the render thread and read by any thread.
+ */
+class FrameTimes {
+
+    // number of recent frames whose render times are kept
+    static final int CAPACITY = 1024;
+
+    private final long[] renderNanos = new long[CAPACITY];
+    // total frames recorded. The latest is at (frames - 1) % CAPACITY
+    private long frames, skippedFrames;
+
+    // records a frame that took renderNanos to render, with skipped frames left out before it to catch up
+    synchronized void record(long renderNanos, int skipped) {
+        this.renderNanos[(int) (frames % CAPACITY)] = renderNanos;
+        frames++;
+        skippedFrames += skipped;
+    }
+
+    synchronized FrameStats getStats() {
+        int count = (int) Math.min(frames, CAPACITY);
+        long[] sorted = Arrays.copyOf(renderNanos, count);
+        Arrays.sort(sorted);
+        return new FrameStats(sorted, frames, skippedFrames);
+    }
+}
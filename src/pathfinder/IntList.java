@@ -0,0 +1,55 @@
+package pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of ints, used in place of a List of Integers wherever ids are collected in bulk (search results,
+ * paths, index queries), so that no values are boxed.
+ */
+final class IntList {
+
+    private int[] values = new int[16];
+    private int size;
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    void set(int index, int value) {
+        values[index] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // removes the last value and returns it
+    int removeLast() {
+        return values[--size];
+    }
+
+    // drops every value from index size on
+    void truncate(int size) {
+        this.size = size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    // sorts the values in ascending order
+    void sort() {
+        Arrays.sort(values, 0, size);
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,73 @@
+package pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of (key, node) pairs without decrease-key: a node is pushed again when its distance improves,
+ * and callers skip entries whose key no longer matches the node's distance.
+ */
+final class IntMinHeap {
+
+    private float[] keys = new float[64];
+    private int[] nodes = new int[64];
+    private int size;
+
+    void push(int node, float key) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            nodes = Arrays.copyOf(nodes, size * 2);
+        }
+        int index = size++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            keys[index] = keys[parent];
+            nodes[index] = nodes[parent];
+            index = parent;
+        }
+        keys[index] = key;
+        nodes[index] = node;
+    }
+
+    // removes the entry with the lowest key and returns its node
+    int pop() {
+        int min = nodes[0];
+        size--;
+        float key = keys[size];
+        int node = nodes[size];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if (keys[child] >= key) {
+                break;
+            }
+            keys[index] = keys[child];
+            nodes[index] = nodes[child];
+            index = child;
+        }
+        keys[index] = key;
+        nodes[index] = node;
+        return min;
+    }
+
+    // returns the lowest key, or Float.POSITIVE_INFINITY if the heap is empty
+    float peekKey() {
+        return size == 0 ? Float.POSITIVE_INFINITY : keys[0];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
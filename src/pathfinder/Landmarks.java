@@ -0,0 +1,297 @@
+package pathfinder;
+
+import searcher.IntSearchFramework;
+import searcher.IntSearcher;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Precomputed travel times between a small set of landmark nodes and every other node, used for the ALT
+ * (A*, Landmarks, Triangle inequality) heuristic. For any landmark L, node v and goal t, the triangle inequality
+ * gives |d(L, t) - d(L, v)| <= d(v, t), so the largest such difference over all landmarks is a lower bound on the
+ * remaining travel time. Unlike straight-line distance, this bound accounts for speed limits and road layout, and it
+ * is admissible and consistent. Map, CompactMap and MappedMap use it in place of straight-line distance once
+ * setLandmarks() has been called.
+ *
+ * Landmarks are chosen with one of two strategies:
+ * - FARTHEST repeatedly picks the node farthest (in travel time) from all landmarks chosen so far.
+ * - AVOID grows a shortest path tree from a random root, weights every node by how poorly the current landmarks
+ *   bound its distance to the root, and descends into the heaviest subtree that contains no landmark. The leaf it
+ *   reaches becomes the next landmark. This tends to cover the regions where the heuristic is weakest. If the root
+ *   is a landmark already, or every subtree under it holds one, FARTHEST's choice is taken instead.
+ *
+ * Tables are only valid for the graph they were computed on, since they are indexed by node id. They can be saved
+ * next to the map file (see getTableFileName()) and loaded again instead of being recomputed. Distances are stored
+ * node-major, so estimating a node's bound reads one contiguous run of floats.
+ */
+public class Landmarks {
+
+    public enum Selection {
+        FARTHEST, AVOID
+    }
+
+    // identifies a landmark table file and the version of its layout
+    private static final int MAGIC = 0x4C4D4B53;
+    private static final int VERSION = 1;
+
+    // ids of the landmark nodes
+    private final int[] landmarks;
+    // distances[node * landmarks.length + i] is the travel time between landmark i and node
+    private final float[] distances;
+    private final int numNodes, numEdges;
+
+    private Landmarks(int[] landmarks, float[] distances, int numNodes, int numEdges) {
+        this.landmarks = landmarks;
+        this.distances = distances;
+        this.numNodes = numNodes;
+        this.numEdges = numEdges;
+    }
+
+    // chooses count landmarks on the given graph with the given strategy and computes their distance tables.
+    // The seed makes the choice reproducible. Assumes edges can be travelled in both directions, as in every Map
+    public static Landmarks select(IntSearchFramework graph, int count, Selection strategy, long seed)
+            throws IllegalArgumentException {
+        int numNodes = graph.getNodeCount();
+        if (count < 1 || count > numNodes) {
+            throw new IllegalArgumentException("Landmark count must be between 1 and the number of nodes");
+        }
+        IntSearcher searcher = new IntSearcher(graph);
+        Random random = new Random(seed);
+        int[] landmarks = new int[count];
+        float[][] tables = new float[count][numNodes];
+        float[] scratch = new float[numNodes];
+        int[] parents = new int[numNodes];
+
+        if (strategy == Selection.FARTHEST) {
+            // the node farthest from a random start becomes the first landmark
+            searcher.computeDistances(random.nextInt(numNodes), scratch, null);
+            landmarks[0] = farthest(scratch, null);
+            for (int i = 0; i < count; i++) {
+                searcher.computeDistances(landmarks[i], tables[i], null);
+                if (i + 1 < count) {
+                    // next landmark is the node whose closest landmark is farthest away
+                    Arrays.fill(scratch, Float.POSITIVE_INFINITY);
+                    for (int j = 0; j <= i; j++) {
+                        for (int node = 0; node < numNodes; node++) {
+                            scratch[node] = Math.min(scratch[node], tables[j][node]);
+                        }
+                    }
+                    landmarks[i + 1] = farthest(scratch, Arrays.copyOf(landmarks, i + 1));
+                }
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                int root = random.nextInt(numNodes);
+                int landmark = avoid(searcher, graph, root, landmarks, tables, i, scratch, parents);
+                int[] chosen = Arrays.copyOf(landmarks, i);
+                if (contains(chosen, landmark)) {
+                    // the root is a landmark, or every subtree under it holds one: take the node whose closest
+                    // landmark is farthest away instead
+                    Arrays.fill(scratch, Float.POSITIVE_INFINITY);
+                    for (int j = 0; j < i; j++) {
+                        for (int node = 0; node < numNodes; node++) {
+                            scratch[node] = Math.min(scratch[node], tables[j][node]);
+                        }
+                    }
+                    landmark = farthest(scratch, chosen);
+                }
+                landmarks[i] = landmark;
+                searcher.computeDistances(landmarks[i], tables[i], null);
+            }
+        }
+
+        float[] distances = new float[numNodes * count];
+        for (int node = 0; node < numNodes; node++) {
+            for (int i = 0; i < count; i++) {
+                distances[node * count + i] = tables[i][node];
+            }
+        }
+        return new Landmarks(landmarks, distances, numNodes, graph.getFirstEdge(numNodes));
+    }
+
+    // returns the reachable node with the largest distance that isn't one of the excluded nodes, or the first node
+    // that isn't excluded if none of them is reachable
+    private static int farthest(float[] distances, int[] excluded) {
+        int best = -1;
+        float bestDistance = -1;
+        for (int node = 0; node < distances.length; node++) {
+            if (excluded != null && contains(excluded, node)) {
+                continue;
+            }
+            float distance = distances[node];
+            if (best < 0 || (distance != Float.POSITIVE_INFINITY && distance > bestDistance)) {
+                best = node;
+                bestDistance = distance == Float.POSITIVE_INFINITY ? -1 : distance;
+            }
+        }
+        return best;
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // picks the next landmark with the AVOID strategy, given the first numChosen landmarks and their tables.
+    // scratch and parents are used to hold the shortest path tree from root
+    private static int avoid(IntSearcher searcher, IntSearchFramework graph, int root, int[] landmarks, float[][] tables,
+                             int numChosen, float[] scratch, int[] parents) {
+        int numNodes = graph.getNodeCount();
+        int reached = searcher.computeDistances(root, scratch, parents);
+
+        // weight of each node: how much the current landmarks underestimate its distance from root
+        double[] size = new double[numNodes];
+        boolean[] hasLandmark = new boolean[numNodes];
+        Integer[] order = new Integer[reached];
+        int count = 0;
+        for (int node = 0; node < numNodes; node++) {
+            if (scratch[node] != Float.POSITIVE_INFINITY) {
+                float bound = 0;
+                for (int i = 0; i < numChosen; i++) {
+                    if (tables[i][node] != Float.POSITIVE_INFINITY && tables[i][root] != Float.POSITIVE_INFINITY) {
+                        bound = Math.max(bound, Math.abs(tables[i][node] - tables[i][root]));
+                    }
+                }
+                size[node] = scratch[node] - bound;
+                order[count++] = node;
+            }
+        }
+        for (int i = 0; i < numChosen; i++) {
+            hasLandmark[landmarks[i]] = true;
+        }
+        // sum weights up the tree, children before parents. Subtrees containing a landmark get size 0
+        Arrays.sort(order, (a, b) -> Float.compare(scratch[b], scratch[a]));
+        for (int node : order) {
+            int parent = parents[node];
+            if (hasLandmark[node]) {
+                size[node] = 0;
+                if (parent >= 0) {
+                    hasLandmark[parent] = true;
+                }
+            } else if (parent >= 0) {
+                size[parent] += size[node];
+            }
+        }
+
+        // children of each node in the tree, grouped in CSR form
+        int[] childOffsets = new int[numNodes + 1];
+        for (int node : order) {
+            if (parents[node] >= 0) {
+                childOffsets[parents[node] + 1]++;
+            }
+        }
+        for (int node = 0; node < numNodes; node++) {
+            childOffsets[node + 1] += childOffsets[node];
+        }
+        int[] children = new int[childOffsets[numNodes]];
+        int[] next = Arrays.copyOf(childOffsets, numNodes);
+        for (int node : order) {
+            if (parents[node] >= 0) {
+                children[next[parents[node]]++] = node;
+            }
+        }
+
+        // descend into the heaviest landmark-free subtree until reaching a leaf
+        int current = root;
+        while (true) {
+            int heaviest = -1;
+            for (int i = childOffsets[current]; i < childOffsets[current + 1]; i++) {
+                int child = children[i];
+                if (!hasLandmark[child] && size[child] > 0 && (heaviest < 0 || size[child] > size[heaviest])) {
+                    heaviest = child;
+                }
+            }
+            if (heaviest < 0) {
+                return current;
+            }
+            current = heaviest;
+        }
+    }
+
+    // returns a lower bound on the travel time between node and goal
+    public float estimate(int node, int goal) {
+        int count = landmarks.length;
+        int nodeBase = node * count, goalBase = goal * count;
+        float bound = 0;
+        for (int i = 0; i < count; i++) {
+            float fromNode = distances[nodeBase + i], fromGoal = distances[goalBase + i];
+            if (fromNode != Float.POSITIVE_INFINITY && fromGoal != Float.POSITIVE_INFINITY) {
+                bound = Math.max(bound, Math.abs(fromGoal - fromNode));
+            }
+        }
+        return bound;
+    }
+
+    // returns ids of the landmark nodes
+    public int[] getLandmarks() {
+        return landmarks.clone();
+    }
+
+    // returns number of nodes in the graph the tables were computed for
+    public int getNodeCount() {
+        return numNodes;
+    }
+
+    // returns whether these tables were computed for a graph of the same size as the given one
+    public boolean matches(IntSearchFramework graph) {
+        return graph.getNodeCount() == numNodes && graph.getFirstEdge(graph.getNodeCount()) == numEdges;
+    }
+
+    // returns name of the file the landmark tables for the given map file are stored in
+    public static String getTableFileName(String mapFileName) {
+        return mapFileName + ".landmarks";
+    }
+
+    // writes the landmark tables to the given file
+    // throws IOException if there was an error writing the file
+    public void save(String fileName) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(numNodes);
+            out.writeInt(numEdges);
+            out.writeInt(landmarks.length);
+            for (int landmark : landmarks) {
+                out.writeInt(landmark);
+            }
+            for (float distance : distances) {
+                out.writeFloat(distance);
+            }
+        }
+    }
+
+    // reads landmark tables previously written by save() for the given graph.
+    // Throws IOException if file cannot be read.
+    // Throws IllegalArgumentException if the file isn't a landmark table or was computed for a different graph
+    public static Landmarks load(String fileName, IntSearchFramework graph) throws IOException, IllegalArgumentException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalArgumentException("\"" + fileName + "\" is not a landmark table file");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported landmark table version " + version);
+            }
+            int numNodes = in.readInt(), numEdges = in.readInt();
+            if (numNodes != graph.getNodeCount() || numEdges != graph.getFirstEdge(graph.getNodeCount())) {
+                throw new IllegalArgumentException("Landmark tables in \"" + fileName + "\" were computed for a " +
+                        "different map (" + numNodes + " nodes, " + numEdges + " edges)");
+            }
+            int[] landmarks = new int[in.readInt()];
+            for (int i = 0; i < landmarks.length; i++) {
+                landmarks[i] = in.readInt();
+            }
+            float[] distances = new float[numNodes * landmarks.length];
+            for (int i = 0; i < distances.length; i++) {
+                distances[i] = in.readFloat();
+            }
+            return new Landmarks(landmarks, distances, numNodes, numEdges);
+        }
+    }
+}
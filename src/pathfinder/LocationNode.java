@@ -1,6 +1,5 @@
 package pathfinder;
 
-import com.sun.istack.internal.Nullable;
 import searcher.Node;
 
 import java.awt.*;
@@ -9,17 +8,25 @@ import java.util.List;
 
 /**
  * A LocationNode represents a point on a map at specified coordinates (x,y). It has a unique address, a String,
- * and a list of addresses of neighbors it connects to. It may optionally have a shape, a rectangle
+ * a unique id assigned by the Map in insertion order, and a list of addresses of neighbors it connects to. It may optionally have a shape, a rectangle
  * that may be drawn onto the map with the specified shapeColor.
  */
 public class LocationNode extends Node {
 
+    // id of the node within its Map (0 for the first node added, 1 for the second, and so on)
+    private int id;
     // coordinates of node
     private int x, y;
     // node's address
     private String address;
     // addresses accessible to this node
     private List<String> neighbors;
+    // nodes accessible to this node, in the same order as neighbors. Lets a search expand the node without looking
+    // up any addresses
+    private List<LocationNode> neighborNodes;
+    private List<LocationNode> neighborNodesView;
+    // hash of the address, computed once as addresses never change
+    private final int hash;
     // shape representation on the map
     private Rect shape;
     // shapeColor of shape on the map
@@ -45,24 +52,34 @@ public class LocationNode extends Node {
         LocationNode.nodeRadius = nodeRadius;
     }
 
-    // creates node with given address and coordinates, as well as optional shape/color
-    public LocationNode(String address, int x, int y, @Nullable Rect shape, @Nullable Color shapeColor) {
+    // creates node with given id, address and coordinates, as well as optional shape/color (either may be null)
+    public LocationNode(int id, String address, int x, int y, Rect shape, Color shapeColor) {
+        this.id = id;
         this.address = address;
         this.x = x;
         this.y = y;
-        neighbors = new LinkedList<>();
+        neighbors = new ArrayList<>();
+        neighborNodes = new ArrayList<>();
+        neighborNodesView = Collections.unmodifiableList(neighborNodes);
+        hash = hashAddress(address);
         this.shape = shape;
         this.shapeColor = shapeColor;
     }
 
     // adds the given node as a neighbor. This means adding it to the list of neighbors
-    public void addNeighbor(String neighborAddress) {
-        neighbors.add(neighborAddress);
+    void addNeighbor(LocationNode neighbor) {
+        neighbors.add(neighbor.getAddress());
+        neighborNodes.add(neighbor);
     }
 
-    // returns set of all LocationNodes that this node has edges to
+    // returns addresses of all LocationNodes that this node has edges to
     public List<String> getNeighbors() {
-        return neighbors;
+        return Collections.unmodifiableList(neighbors);
+    }
+
+    // returns all LocationNodes that this node has edges to. The list is read-only and is not copied
+    List<LocationNode> getNeighborNodes() {
+        return neighborNodesView;
     }
 
     // calculates straight-line distance between given nodes
@@ -80,6 +97,10 @@ public class LocationNode extends Node {
         return y;
     }
 
+    public int getId() {
+        return id;
+    }
+
     public String getAddress() {
         return address;
     }
@@ -97,8 +118,13 @@ public class LocationNode extends Node {
         }
     }
 
-    @Override // hashes string using standard method. 13 is used as the base because addresses might be long
+    @Override // returns hash of the address, computed when the node was created
     public int hashCode() {
+        return hash;
+    }
+
+    // hashes string using standard method. 13 is used as the base because addresses might be long
+    private static int hashAddress(String address) {
         int value = 0;
         for (int i = 0; i < address.length(); i++) {
             value = 13 * value + address.charAt(i);
@@ -36,6 +36,8 @@ public class Main extends JPanel {
             }
         } catch (IOException e) {
             System.out.println("File not found");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error parsing file: " + e.getMessage());
         }
     }
 
@@ -1,12 +1,12 @@
 package pathfinder;
 
-import com.sun.istack.internal.Nullable;
 import searcher.SearchFramework;
 
 import java.awt.*;
 import java.util.*;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
 
 /**
  * Represents a street map in coordinate space. Each node is indexed by its address in the addresses HashMap.
@@ -14,52 +14,69 @@ import java.util.stream.Collectors;
  * name and a speedlimit (used in calculating edge costs).
  *
  * The Map can be read in from a file (in a determined format) and saved to a file via the MapUtil loadMap
- * and saveMap methods.
+ * and saveToFile methods.
  *
  * The Map functions as a SearchFramework, implementing methods that are used by the Searcher for pathfinding.
+ * Once it has been built, a Map is only read during a search, so a single instance can be shared by many threads
+ * as long as their queries pass the goal to Searcher.runSearch(start, goal) instead of calling setGoal().
  */
 public class Map implements SearchFramework<LocationNode> {
 
+    // highest zoom level the map can be drawn at. At zoom level z, one pixel covers 2^z map units
+    public static final int MAX_ZOOM_LEVEL = DetailLevels.MAX_ZOOM_LEVEL;
+
     // stores (address, node) pairs
     private HashMap<String, LocationNode> addresses = new HashMap<>();
-    // stores all edges in the map. Key is an AddressTuple, value is an Edge object
-    private HashMap<AddressTuple, Edge> edges = new HashMap<>();
-    // stores MapSector with list of addresses contained in it
-    private HashMap<MapSector, List<String>> sectorNodes = new HashMap<>();
-    // stores MapSector with list of AddressTuples defining Edges that pass through the sector
-    private HashMap<MapSector, List<AddressTuple>> sectorEdges = new HashMap<>();
+    // stores all nodes, indexed by id
+    private ArrayList<LocationNode> nodesById = new ArrayList<>();
+    // stores all edges in the map, keyed by the ids of the two nodes they span
+    private EdgeTable edges = new EdgeTable();
+    // spatial index of the nodes and edges, for finding those inside a region. Built when first needed, and again
+    // once nodes or edges have been added
+    private volatile RegionIndex regionIndex;
+    // simplified geometry for drawing the map zoomed out. Built when first needed, and updated once the map changes
+    private volatile DetailLevels detailLevels;
     // node to be reached in goal state of navigation
     private LocationNode goalNode;
+    // landmark tables used for the heuristic. Straight-line distance is used if null. Dropped when an edge gets
+    // faster, see setSpeedLimit()
+    private volatile Landmarks landmarks;
+    // incremented by every change to the nodes or edges, so that results computed on the map can be invalidated.
+    // Atomic, so that changes made at the same time each bump it
+    private final AtomicLong version = new AtomicLong();
 
     // empty constructor
     public Map() {
     }
 
-    @Override // returns neighbors of given node
-    public List<LocationNode> getNeighbors(LocationNode node) { // todo: performance?
-        return node.getNeighbors().stream()
-                .map(address -> addresses.get(address))
-                .collect(Collectors.toList());
+    @Override // returns neighbors of given node. The list is the node's own and must not be modified
+    public List<LocationNode> getNeighbors(LocationNode node) {
+        return node.getNeighborNodes();
     }
 
-    // looks up edge corresponding to the two given LocationNodes, converting them into an AddressTuple for use
-    // with getEdge(AddressTuple). Throws NoSuchElementException if no such edge exists.
+    // looks up edge corresponding to the two given LocationNodes by their ids. Throws NoSuchElementException if no
+    // such edge exists.
     public Edge getEdge(LocationNode node1, LocationNode node2) throws NoSuchElementException {
-        return getEdge(new AddressTuple(node1.getAddress(), node2.getAddress()));
+        Edge edge = edges.get(node1.getId(), node2.getId());
+        if (edge == null) {
+            throw new NoSuchElementException("No Such Edge Exists");
+        }
+        return edge;
     }
 
     // looks up edge corresponding to given AddressTuple. Throws NoSuchElementException if none exists
     public Edge getEdge(AddressTuple endNodes) throws NoSuchElementException {
-        if (!edges.containsKey(endNodes)) {
+        LocationNode node1 = addresses.get(endNodes.getAddress1()), node2 = addresses.get(endNodes.getAddress2());
+        if (node1 == null || node2 == null) {
             throw new NoSuchElementException("No Such Edge Exists");
-        } else {
-            return edges.get(endNodes);
         }
+        return getEdge(node1, node2);
     }
 
-    @Override // returns edge cost to get from node1 to node2 (time)
+    @Override // returns edge cost to get from node1 to node2 (time). Looks the edge up by node ids, so nothing is
+    // allocated or hashed apart from a single long
     public float getEdgeCost(LocationNode node1, LocationNode node2) {
-        Edge edge = edges.get(new AddressTuple(node1.getAddress(), node2.getAddress()));
+        Edge edge = edges.get(node1.getId(), node2.getId());
         if (edge == null) { // return max value if no edge exists between the two
             return Float.MAX_VALUE;
         } else {
@@ -67,16 +84,44 @@ public class Map implements SearchFramework<LocationNode> {
         }
     }
 
-    @Override // heuristic used to guide A* search of the map. Uses straight-line distance to goal-node.
-    // throws IllegalStateException if no goalNode has been set todo: improve, factor in speed limits
+    @Override // heuristic used to guide A* search of the map. Uses the heuristic towards goal-node.
+    // throws IllegalStateException if no goalNode has been set
     public float getHeuristic(LocationNode node) throws IllegalStateException {
         if (goalNode == null) {
             throw new IllegalStateException("Map must have a goal set before it can be searched");
         } else {
-            return node.straightDistanceTo(goalNode);
+            return getHeuristic(node, goalNode);
         }
     }
 
+    @Override // estimate of travel time from node to the given goal. Uses the ALT bound if landmarks have been set,
+    // straight-line distance otherwise. Doesn't touch the goal set via setGoal(), so it is safe for concurrent queries
+    public float getHeuristic(LocationNode node, LocationNode goal) {
+        Landmarks current = landmarks;
+        if (current != null) {
+            return current.estimate(node.getId(), goal.getId());
+        } else {
+            return node.straightDistanceTo(goal);
+        }
+    }
+
+    @Override // the landmark tables, or null while straight-line distance is used
+    public Object getHeuristicSource() {
+        return landmarks;
+    }
+
+    // sets landmark tables to use for the heuristic instead of straight-line distance, or null to go back to
+    // straight-line distance. The tables must have been computed on a CompactMap of this Map in its current state.
+    // Any change that makes a trip faster (adding an edge, raising a speed limit) drops them again, as their bound
+    // could then overestimate
+    // throws IllegalArgumentException if the tables were computed for a map with a different number of nodes
+    public void setLandmarks(Landmarks landmarks) throws IllegalArgumentException {
+        if (landmarks != null && landmarks.getNodeCount() != getNodeCount()) {
+            throw new IllegalArgumentException("Landmark tables were computed for a different map");
+        }
+        this.landmarks = landmarks;
+    }
+
     @Override // checks whether the given node is the goal state, i.e. the address we're searching for.
     // does this by checking whether the addresses match up (addresses are assumed to be unique)
     // throws IllegalStateException if goalNode hasn't been set
@@ -93,6 +138,132 @@ public class Map implements SearchFramework<LocationNode> {
         return addresses.get(address);
     }
 
+    // returns node with specified id. Throws IndexOutOfBoundsException if there is no such node
+    public LocationNode getNode(int id) throws IndexOutOfBoundsException {
+        return nodesById.get(id);
+    }
+
+    // returns all nodes, ordered by id
+    public List<LocationNode> getNodes() {
+        return Collections.unmodifiableList(nodesById);
+    }
+
+    public int getNodeCount() {
+        return nodesById.size();
+    }
+
+    // returns number of edges. Each edge can be travelled in both directions but is counted once
+    public int getEdgeCount() {
+        return edges.size();
+    }
+
+    // returns a counter that changes whenever a node or edge is added or an edge's speed limit is changed. Results
+    // computed while the version was the same are still valid
+    public long getVersion() {
+        return version.get();
+    }
+
+    // returns the table of edges, for walking over every edge along with the ids of the nodes it spans
+    EdgeTable getEdgeTable() {
+        return edges;
+    }
+
+    // returns all nodes inside the given region, border included
+    public List<LocationNode> getNodesInRegion(Rect region) {
+        IntList ids = new IntList();
+        getRegionIndex().findNodes(region, ids);
+        List<LocationNode> found = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            found.add(nodesById.get(ids.get(i)));
+        }
+        return found;
+    }
+
+    // returns all edges whose line passes through the given region, border included, as the addresses of the two
+    // nodes they span. Edges whose endpoints are both outside the region are found as well
+    public List<AddressTuple> getEdgesInRegion(Rect region) {
+        RegionIndex index = getRegionIndex();
+        IntList found = new IntList();
+        index.findEdges(region, found);
+        List<AddressTuple> tuples = new ArrayList<>(found.size());
+        for (int i = 0; i < found.size(); i++) {
+            tuples.add(new AddressTuple(nodesById.get(index.getNode1(found.get(i))).getAddress(),
+                    nodesById.get(index.getNode2(found.get(i))).getAddress()));
+        }
+        return tuples;
+    }
+
+    // returns the node nearest to (x, y), or null if the map has no nodes
+    public LocationNode getNearestNode(double x, double y) {
+        List<LocationNode> nearest = getNearestNodes(x, y, 1);
+        return nearest.isEmpty() ? null : nearest.get(0);
+    }
+
+    // returns the k nodes nearest to (x, y), nearest first. Returns fewer if the map has fewer than k nodes
+    public List<LocationNode> getNearestNodes(double x, double y, int k) {
+        IntList ids = new IntList();
+        getRegionIndex().findNearestNodes(x, y, k, Float.POSITIVE_INFINITY, ids);
+        List<LocationNode> found = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            found.add(nodesById.get(ids.get(i)));
+        }
+        return found;
+    }
+
+    // snaps (x, y) onto the nearest point of the nearest edge. Returns null if the map has no edges
+    public EdgeSnap snapToEdge(double x, double y) {
+        return snapToEdge(getRegionIndex(), x, y, Float.POSITIVE_INFINITY);
+    }
+
+    // snaps every point (xs[i], ys[i]) onto the nearest edge, in parallel on the common ForkJoinPool. Points further
+    // than maxDistance from every edge get null
+    // throws IllegalArgumentException if the arrays differ in length
+    public EdgeSnap[] snapToEdges(double[] xs, double[] ys, float maxDistance) throws IllegalArgumentException {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Got " + xs.length + " x coordinates but " + ys.length + " y coordinates");
+        }
+        RegionIndex index = getRegionIndex();
+        EdgeSnap[] snaps = new EdgeSnap[xs.length];
+        IntStream.range(0, xs.length).parallel().forEach(i -> snaps[i] = snapToEdge(index, xs[i], ys[i], maxDistance));
+        return snaps;
+    }
+
+    private EdgeSnap snapToEdge(RegionIndex index, double x, double y, float maxDistance) {
+        int edge = index.findNearestEdge(x, y, maxDistance);
+        if (edge < 0) {
+            return null;
+        }
+        LocationNode node1 = nodesById.get(index.getNode1(edge)), node2 = nodesById.get(index.getNode2(edge));
+        double fraction = index.project(edge, x, y);
+        double snappedX = index.pointX(edge, fraction), snappedY = index.pointY(edge, fraction);
+        double distance = Math.sqrt((x - snappedX) * (x - snappedX) + (y - snappedY) * (y - snappedY));
+        return new EdgeSnap(node1, node2, edges.get(node1.getId(), node2.getId()), fraction, snappedX, snappedY,
+                distance);
+    }
+
+    // returns the spatial index, building it first if nodes or edges have been added since it was last built
+    private RegionIndex getRegionIndex() {
+        RegionIndex index = regionIndex;
+        if (index == null || !index.covers(this)) {
+            synchronized (this) {
+                index = regionIndex;
+                if (index == null || !index.covers(this)) {
+                    index = new RegionIndex(this);
+                    regionIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    // freezes a path of this map (e.g. one returned by a Searcher) into a Route, which answers a navigator's questions
+    // about it without any further lookups
+    // throws IllegalArgumentException if the path is empty
+    // throws NoSuchElementException if two successive nodes of the path don't share an edge
+    public Route getRoute(List<LocationNode> path) throws IllegalArgumentException, NoSuchElementException {
+        return new Route(this, path);
+    }
+
     // sets address of node we're searching for if we were to use a Searcher
     // throws NoSuchElementException if there is no node for the given address
     public void setGoal(String address) throws NoSuchElementException {
@@ -103,22 +274,20 @@ public class Map implements SearchFramework<LocationNode> {
         }
     }
 
-    // creates node from given information and stores it in addresses map. Also determines sector it is in and records
-    // that in the sectorNodes map.
+    // creates node from given information and stores it in addresses map. The node's id is the number of nodes added
+    // before it.
     public void addNode(String address, int x, int y) throws DuplicateKeyException {
         if (addresses.containsKey(address)) {
             throw new DuplicateKeyException("Key \"" + address + "\" has already been registered and cannot be added twice");
         } else {
-            addresses.put(address, new LocationNode(address, x, y, null, null));
-            MapSector sector = MapSector.getSector(addresses.get(address));
-            if (!sectorNodes.containsKey(sector)) {
-                sectorNodes.put(sector, new LinkedList<>()); // todo: shapes hashmap and HashMap<Sector, List<address>> shapes
-            }
-            sectorNodes.get(sector).add(address);
+            LocationNode node = new LocationNode(nodesById.size(), address, x, y, null, null);
+            addresses.put(address, node);
+            nodesById.add(node);
+            version.incrementAndGet();
         }
     }
 
-    // takes the two given addresses. Registers the existence of the edge under an AddressTuple in the edges HashMap.
+    // takes the two given addresses. Registers the existence of the edge under the ids of its nodes in the edges table.
     // Pairs this with an Edge object built with the given streetName and speedLimit. Throws NullPointerException if
     // an address is encountered that hasn't already been registered via addNode().
     public void addEdge(String address1, String address2, String streetName, float speedLimit) throws NullPointerException {
@@ -129,21 +298,37 @@ public class Map implements SearchFramework<LocationNode> {
         } else if (node2 == null) {
             throw new NullPointerException("The given address \"" + address2 + "\" is invalid");
         } else {
-            // update both nodes neighbor lists as well as the edges HashMap
-            node1.addNeighbor(address2);
-            node2.addNeighbor(address1);
-            AddressTuple tuple = new AddressTuple(address1, address2);
-            edges.put(tuple, new Edge(node1.straightDistanceTo(node2), streetName, speedLimit));
-
-            // determine which Sectors this edge intersects and register these in the sectorEdges HashMap
-            List<MapSector> intersected = MapSector.getIntersectedSectors(node1, node2);
-            for (MapSector sector : intersected) {
-                if (!sectorEdges.containsKey(sector)) {
-                    sectorEdges.put(sector, new LinkedList<>()); // todo: shapes hashmap and HashMap<Sector, List<address>> shapes
-                }
-                sectorEdges.get(sector).add(tuple);
-            }
+            // update both nodes neighbor lists as well as the edges table
+            node1.addNeighbor(node2);
+            node2.addNeighbor(node1);
+            edges.put(node1.getId(), node2.getId(), new Edge(node1.straightDistanceTo(node2), streetName, speedLimit));
+            // a new edge may be a shortcut the landmark tables don't know about
+            landmarks = null;
+            version.incrementAndGet();
+        }
+    }
+
+    // changes the speed limit of the edge between the two addresses, and with it the edge's travel time. The Edge is
+    // replaced rather than modified, so searches running at the same time see either the old or the new edge. Bumps
+    // the version. Searches that keep state between queries (e.g. an IncrementalSearcher) must be told about the
+    // change separately.
+    // Raising a speed limit drops the landmark tables (see setLandmarks()): they are lower bounds on travel times
+    // computed with the old limit, and with a faster edge they could overestimate, making searches return routes that
+    // aren't the fastest. Lowering a limit only makes trips slower, so the tables stay valid
+    // throws NoSuchElementException if there is no such edge
+    // throws IllegalArgumentException if speedLimit is not positive
+    public void setSpeedLimit(String address1, String address2, float speedLimit)
+            throws NoSuchElementException, IllegalArgumentException {
+        if (!(speedLimit > 0)) {
+            throw new IllegalArgumentException("Speed limit must be positive");
+        }
+        LocationNode node1 = addresses.get(address1), node2 = addresses.get(address2);
+        Edge edge = getEdge(new AddressTuple(address1, address2));
+        if (speedLimit > edge.getSpeedLimit()) {
+            landmarks = null;
         }
+        edges.put(node1.getId(), node2.getId(), new Edge(edge.getDistance(), edge.getStreetName(), speedLimit));
+        version.incrementAndGet();
     }
 
     private Color backgroundColor = Color.GREEN;
@@ -155,10 +340,18 @@ public class Map implements SearchFramework<LocationNode> {
     // The draw method draws a specified portion (clip) of the map onto the given Graphics object.
     // The clip is a rectangle, and will be translated to (0,0) of the drawFrame.
     // e.g. the clip is (70, 100, 100, 150). This method will draw any nodes and edges that fall
-    // within the boundaries of the clip, translating them to (0,0). // todo: clips. This may be drawing beyond the screen
+    // within the boundaries of the clip, translating them to (0,0). Nodes and edges are found with the spatial index, so
+    // only those passing through the clip are drawn.
     // The path stack is a list of adjacent nodes that define a path in the order given.
     // Edges between the nodes in this list will be drawn in pathColor.
     public void drawClip(Graphics drawFrame, Rect clip, List<LocationNode> path) {
+        drawStatic(drawFrame, clip);
+        drawPath(drawFrame, clip, path);
+    }
+
+    // draws the background, edges and nodes within the clip, translated so that the clip's top-left is at (0,0).
+    // This is everything drawClip() draws except the path, and only changes when the map does
+    public void drawStatic(Graphics drawFrame, Rect clip) {
         // draw background
         drawFrame.setColor(backgroundColor);
         drawFrame.fillRect(0, 0, clip.getWidth(), clip.getHeight());
@@ -169,54 +362,105 @@ public class Map implements SearchFramework<LocationNode> {
 
         ((Graphics2D) drawFrame).setStroke(new BasicStroke(1));
 
-        LocationNode node1, node2;
-
-        // get the MapSectors intersected by the given clip
-        for (MapSector sector : MapSector.getIntersectedSectors(clip)) {
-            // draw the nodes in each sector
-            if (sectorNodes.containsKey(sector)) {
-                drawFrame.setColor(nodeColor);
-                for (String address : sectorNodes.get(sector)) { // todo: this will not draw edges from nodes that are off-screen
-                    node1 = addresses.get(address);
-                    // check if the node is in the clip
-                    if (clip.containsPoint(node1.getX(), node1.getY())) {
-                        // draws the node onto the given graphics object with specified offsets.
-                        // draws a circle of nodeRadius centered at the node's coordinates (minus offsets)
-                        drawFrame.fillOval(node1.getX() - nodeRadius - offsetX, node1.getY() - nodeRadius - offsetY, 2 * nodeRadius, 2 * nodeRadius);
-                    }
-                }
-            }
-            // draw the edges in each sector
-            if (sectorEdges.containsKey(sector)) {
-                drawFrame.setColor(roadColor);
-                for (AddressTuple address_tuple : sectorEdges.get(sector)) {
-                    node1 = addresses.get(address_tuple.getAddress1());
-                    node2 = addresses.get(address_tuple.getAddress2());
-                    drawFrame.drawLine(node1.getX() - offsetX, node1.getY() - offsetY,
-                            node2.getX() - offsetX, node2.getY() - offsetY);
-                }
-            }
-            // draw shape (if has been set)
+        RegionIndex index = getRegionIndex();
+        IntList found = new IntList();
+
+        // draw the edges passing through the clip, including those whose nodes are both off-screen
+        drawFrame.setColor(roadColor);
+        index.findEdges(clip, found);
+        for (int i = 0; i < found.size(); i++) {
+            LocationNode node1 = nodesById.get(index.getNode1(found.get(i)));
+            LocationNode node2 = nodesById.get(index.getNode2(found.get(i)));
+            drawFrame.drawLine(node1.getX() - offsetX, node1.getY() - offsetY,
+                    node2.getX() - offsetX, node2.getY() - offsetY);
+        }
+
+        // draw the nodes. The clip is widened by nodeRadius so that nodes just off-screen are partly drawn
+        drawFrame.setColor(nodeColor);
+        found.clear();
+        index.findNodes(new Rect(clip.getX0() - nodeRadius, clip.getY0() - nodeRadius,
+                clip.getWidth() + 2 * nodeRadius, clip.getHeight() + 2 * nodeRadius), found);
+        for (int i = 0; i < found.size(); i++) {
+            LocationNode node = nodesById.get(found.get(i));
+            // draws a circle of nodeRadius centered at the node's coordinates (minus offsets)
+            drawFrame.fillOval(node.getX() - nodeRadius - offsetX, node.getY() - nodeRadius - offsetY,
+                    2 * nodeRadius, 2 * nodeRadius);
+        }
+        // draw shape (if has been set)
 //                        if (shape != null) {
 //                            drawFrame.setColor(shapeColor);
 //                            drawFrame.drawRect(shape.getX0() - offsetX, shape.getY0() - offsetY, shape.getWidth(), shape.getHeight());
 //                        }
+    }
+
+    // same as drawStatic(Graphics, Rect), at the given zoom level. The clip is in the zoom level's coordinates: a
+    // point (x, y) of the map is at (x / 2^zoomLevel, y / 2^zoomLevel). Above level 0, the simplified geometry of the
+    // level is drawn, without node markers (see DetailLevels)
+    // throws IllegalArgumentException if zoomLevel is not between 0 and MAX_ZOOM_LEVEL
+    public void drawStatic(Graphics drawFrame, Rect clip, int zoomLevel) throws IllegalArgumentException {
+        if (zoomLevel == 0) {
+            drawStatic(drawFrame, clip);
+            return;
+        }
+        DetailLevels levels = getDetailLevels();
+        drawFrame.setColor(backgroundColor);
+        drawFrame.fillRect(0, 0, clip.getWidth(), clip.getHeight());
+        ((Graphics2D) drawFrame).setStroke(new BasicStroke(1));
+        drawFrame.setColor(roadColor);
+        levels.draw(drawFrame, clip, zoomLevel);
+    }
+
+    // draws the edges between successive nodes of path that pass through the clip in pathColor, translated so that the
+    // clip's top-left is at (0,0)
+    public void drawPath(Graphics drawFrame, Rect clip, List<LocationNode> path) {
+        drawPath(drawFrame, clip, path, 0);
+    }
+
+    // same as drawPath(Graphics, Rect, List), at the given zoom level. The clip is in the zoom level's coordinates, as
+    // for drawStatic(Graphics, Rect, int). Walks the whole path, so a path drawn in every frame should be drawn from a
+    // PathOverlay instead (see drawPath(Graphics, Rect, PathOverlay, int))
+    public void drawPath(Graphics drawFrame, Rect clip, List<LocationNode> path, int zoomLevel) {
+        int offsetX = clip.getX0(), offsetY = clip.getY0();
+        drawFrame.setColor(pathColor);
+        ((Graphics2D) drawFrame).setStroke(new BasicStroke(2));
+        double[] clipped = new double[4];
+        LocationNode previous = null;
+        for (LocationNode node : path) {
+            if (previous != null && PathOverlay.clipSegment(previous.getX() >> zoomLevel,
+                    previous.getY() >> zoomLevel, node.getX() >> zoomLevel, node.getY() >> zoomLevel,
+                    clip.getX0() - PathOverlay.CLIP_MARGIN, clip.getY0() - PathOverlay.CLIP_MARGIN,
+                    clip.getX1() + PathOverlay.CLIP_MARGIN, clip.getY1() + PathOverlay.CLIP_MARGIN, clipped)) {
+                drawFrame.drawLine((int) Math.round(clipped[0]) - offsetX, (int) Math.round(clipped[1]) - offsetY,
+                        (int) Math.round(clipped[2]) - offsetX, (int) Math.round(clipped[3]) - offsetY);
+            }
+            previous = node;
+        }
+    }
+
+    // draws the segments of the overlay's path that pass through the clip in pathColor, translated so that the clip's
+    // top-left is at (0,0). Only the segments near the clip are looked at, so this costs the same however long the
+    // path is
+    // throws IllegalArgumentException if zoomLevel is not between 0 and MAX_ZOOM_LEVEL
+    public void drawPath(Graphics drawFrame, Rect clip, PathOverlay path, int zoomLevel)
+            throws IllegalArgumentException {
+        drawFrame.setColor(pathColor);
+        ((Graphics2D) drawFrame).setStroke(new BasicStroke(2));
+        path.draw(drawFrame, clip, zoomLevel);
+    }
 
-            // draw the edges between the nodes specified in path
-            drawFrame.setColor(pathColor);
-            ((Graphics2D) drawFrame).setStroke(new BasicStroke(2));
-            LocationNode next_node = path.get(0);
-            AddressTuple edge_addresses;
-            for (int i = 0; i < path.size() - 1; i++) {
-                node1 = next_node;
-                next_node = path.get(i + 1);
-                edge_addresses = new AddressTuple(node1.getAddress(), next_node.getAddress());
-                // draw edge only if one of the nodes is in the clip todo: clip edge drawings
-                if (clip.containsPoint(node1.getX(), node1.getY()) || clip.containsPoint(next_node.getX(), next_node.getY())) {
-                    drawFrame.drawLine(node1.getX() - offsetX, node1.getY() - offsetY,
-                            next_node.getX() - offsetX, next_node.getY() - offsetY);
+    // returns the simplified geometry for drawing zoomed out, updating it if the map has changed. A change of speed
+    // limits only rebuilds the levels whose roads it changes (see DetailLevels.update())
+    private DetailLevels getDetailLevels() {
+        DetailLevels levels = detailLevels;
+        if (levels == null || levels.getMapVersion() != version.get()) {
+            synchronized (this) {
+                levels = detailLevels;
+                if (levels == null || levels.getMapVersion() != version.get()) {
+                    levels = levels == null ? new DetailLevels(this) : levels.update(this);
+                    detailLevels = levels;
                 }
             }
         }
+        return levels;
     }
 }
@@ -2,12 +2,13 @@ package pathfinder;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
 import java.util.LinkedList;
 import java.util.List;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-import java.util.Stack;
+import java.util.NoSuchElementException;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Displays a Map in a simple Jframe. The map display has the special feature that it can animate an icon "navigating"
@@ -15,17 +16,29 @@ import java.util.Stack;
  * to true. While navigating, a triangle icon will follow along the given path at the speed specified by the edge it is
  * currently on. There will be a readout that displays the directions to the next node, street name of edge being
  * traversed, speed limit, distance traveled, and time remaining until destination.
+ *
+ * Frames are rendered off the event dispatch thread. While the display is showing, a render thread advances the
+ * animation and draws each frame into a back buffer, then swaps it with the front buffer; paintComponent() only copies
+ * the front buffer to the screen. The animation state is guarded by the display's lock, which the render thread only
+ * holds while advancing the animation and copying out what the frame shows. Render times are recorded, see
+ * getFrameStats().
  */
 public class MapDisplay extends JPanel {
 
     // map to be displayed
     private Map map;
-    // path of nodes to highlight
-    private List<LocationNode> path;
-    // whether map is navigating between nodes in the path
+    // pre-rendered tiles of the map's nodes and edges, so a frame only draws the path and pointer on top of them
+    private TileCache tileCache;
+    // route being navigated, or null before navigation starts
+    private Route route;
+    // the route, prepared for drawing only the part of it on screen
+    private PathOverlay pathOverlay;
+    // whether map is navigating between nodes in the route
     private boolean navigating;
     // screen dimensions
     private int screenWidth, screenHeight;
+    // current zoom level: one pixel covers 2^zoomLevel map units. Changed with the mouse wheel
+    private int zoomLevel;
 
     // set to true when destination of path has been reached (if navigating)
     private boolean destinationReached;
@@ -52,127 +65,302 @@ public class MapDisplay extends JPanel {
 
     // number of times to refresh map per second
     private static final int FPS = 40;
+    // most animation steps taken for a single rendered frame when rendering falls behind
+    private static final int MAX_STEPS_PER_FRAME = 5;
+
+    // buffers frames are rendered into (back) and presented from (front). Swapped under bufferLock. The back buffer is
+    // only touched by the render thread
+    private BufferedImage frontBuffer, backBuffer;
+    private final Object bufferLock = new Object();
+    private Thread renderThread;
+    private volatile boolean running;
+    private final FrameTimes frameTimes = new FrameTimes();
 
     public MapDisplay(Map map, int screenWidth, int screenHeight) {
         this.map = map;
         this.screenWidth = screenWidth;
         this.screenHeight = screenHeight;
         setPreferredSize(new Dimension(screenWidth, screenHeight));
-        path = new LinkedList<>();
+        pathOverlay = new PathOverlay(new LinkedList<LocationNode>());
+        tileCache = new TileCache(map, TileCache.getCapacityFor(screenWidth, screenHeight));
 
-        ActionListener repaint = new ActionListener() {
-            public void actionPerformed(ActionEvent ae) {
-                update();
-                repaint();
+        // scrolling down zooms out, scrolling up zooms in
+        addMouseWheelListener(new MouseWheelListener() {
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                setZoomLevel(Math.max(0, Math.min(Map.MAX_ZOOM_LEVEL, getZoomLevel() + e.getWheelRotation())));
             }
-        };
-        Timer timer = new Timer(1000 / FPS, repaint);
-        timer.start();
+        });
+    }
+
+    // sets the zoom level: 0 draws the map at full detail, one pixel per map unit, and every level above halves the
+    // scale (see Map.drawStatic(Graphics, Rect, int))
+    // throws IllegalArgumentException if zoomLevel is not between 0 and Map.MAX_ZOOM_LEVEL
+    public synchronized void setZoomLevel(int zoomLevel) throws IllegalArgumentException {
+        if (zoomLevel < 0 || zoomLevel > Map.MAX_ZOOM_LEVEL) {
+            throw new IllegalArgumentException("Zoom level must be between 0 and " + Map.MAX_ZOOM_LEVEL);
+        }
+        this.zoomLevel = zoomLevel;
     }
 
-    // updates all fields and pointer
-    public void update() {
+    public synchronized int getZoomLevel() {
+        return zoomLevel;
+    }
+
+    // updates all fields and pointer by one animation step. Called by the render thread FPS times a second
+    public synchronized void update() {
         if (navigating) {
             if (framesThisEdge == totalFramesThisEdge) { // we have reached the next node
                 currNodeIndex++;
                 framesThisEdge = 0;
                 // check if destination has been reached
-                if (currNodeIndex == path.size() - 1) {
+                if (currNodeIndex == route.size() - 1) {
                     destinationReached = true;
                     directions = "Destination Reached";
                     System.out.println("Destination Reached");
                 } else { // switch to navigating to next node
                     System.out.println("Switched to node " + currNodeIndex);
                     // reset frame counters for this edge
-                    totalFramesThisEdge = (int) MapUtil.calculateTime(path, currNodeIndex, currNodeIndex + 1, map) * FPS;
-                    // update all edge-relevant fields
-                    directions = MapUtil.getDirections(path, currNodeIndex, map);
-                    currentSpeedLimit = map.getEdge(path.get(currNodeIndex), path.get(currNodeIndex + 1)).getSpeedLimit();
-                    currentStreetName = map.getEdge(path.get(currNodeIndex), path.get(currNodeIndex + 1)).getStreetName();
+                    startEdge(currNodeIndex);
                 }
             }
             if (!destinationReached) {
                 framesThisEdge++;
-                // get pointers to previous and next node, as well as edge being travelled
-                LocationNode last_node = path.get(currNodeIndex);
-                LocationNode next_node = path.get(currNodeIndex + 1);
-                Edge edge = map.getEdge(last_node, next_node);
-                // calculate next x and y coordinates
-                currentX += (next_node.getX() - last_node.getX()) / (float) totalFramesThisEdge;
-                currentY += (next_node.getY() - last_node.getY()) / (float) totalFramesThisEdge;
-                distanceTravelled += edge.getDistance() / totalFramesThisEdge;
-                distanceRemaining -= edge.getDistance() / totalFramesThisEdge;
-                timeRemaining -= 1.0f / FPS; // todo: not accurate enough. Check startTime and endTime. Maybe find an arrivalTime (ms) and count down to it
+                // everything shown follows from the position along the route
+                double position = currNodeIndex + framesThisEdge / (double) totalFramesThisEdge;
+                currentX = (float) route.getX(position);
+                currentY = (float) route.getY(position);
+                distanceTravelled = route.getDistanceTravelled(position);
+                distanceRemaining = route.getDistanceRemaining(position);
+                timeRemaining = route.getTimeRemaining(position);
             }
         }
     }
 
-    private Rect clip;
-    // used to calculate dimensions of text drawn by Graphics. Only one font is used.
+    // used to calculate dimensions of text drawn by Graphics. Only one font is used. Only used by the render thread
     private FontMetrics fontMetrics;
-    // paints the map to the JPanel
-    public void paintComponent(Graphics g) {
-        // calculate the clip. This is a Rect with width and height of the screen where (currentX, currentY) is at
-        // its center. todo: test, improve
-        clip = new Rect(Math.max(0, (int) currentX - screenWidth / 2), Math.max(0, (int) currentY - screenHeight / 2),
-                screenWidth, screenHeight);
-        // draw the map with path
-        map.drawClip(g, clip, path);
+
+    // copies what the next frame shows, so that it can be drawn without holding the lock on the display
+    private synchronized FrameState captureFrame() {
+        FrameState frame = new FrameState();
+        frame.zoomLevel = zoomLevel;
+        frame.pathOverlay = pathOverlay;
+        frame.navigating = navigating;
+        frame.pointerX = (int) currentX >> zoomLevel;
+        frame.pointerY = (int) currentY >> zoomLevel;
+        if (navigating) {
+            frame.directions = directions;
+            frame.readouts = new String[] {
+                    "Current Coordinates: (" + (int) Math.ceil(currentX) + "," + (int) Math.ceil(currentY) + ")",
+                    "Distance Travelled: " + (int) distanceTravelled + "px",
+                    "Distance Remaining: " + (int) distanceRemaining + "px",
+                    "Time Remaining: " + timeRemaining + "s",
+                    "Travelling on " + currentStreetName + " (speed limit " + currentSpeedLimit + "px/s)"};
+        }
+        return frame;
+    }
+
+    // draws the given frame. Runs on the render thread
+    private void renderFrame(Graphics g, FrameState frame) {
+        // calculate the clip. This is a Rect with width and height of the screen where the pointer is at its center,
+        // in the coordinates of the zoom level. todo: test, improve
+        Rect clip = new Rect(Math.max(0, frame.pointerX - screenWidth / 2),
+                Math.max(0, frame.pointerY - screenHeight / 2), screenWidth, screenHeight);
+        // draw the map from the cached tiles, then the path on top
+        tileCache.draw(g, clip, frame.zoomLevel);
+        map.drawPath(g, clip, frame.pathOverlay, frame.zoomLevel);
         // get fontMetrics if you haven't already
         if (fontMetrics == null) {
             fontMetrics = g.getFontMetrics();
         }
         // draw the layout
-        if (navigating) {
+        if (frame.navigating) {
             g.setColor(Color.BLUE);
             // draw the pointer (with offset)
-            g.fillOval((int) currentX - 5 - clip.getX0(), (int) currentY - 5 - clip.getY0(), 10, 10);
+            g.fillOval(frame.pointerX - 5 - clip.getX0(), frame.pointerY - 5 - clip.getY0(), 10, 10);
             // draw the directions centered in width and 2/3 of the way down the screen in height
-            g.drawString(directions, screenWidth / 2 - fontMetrics.stringWidth(directions) / 2,
+            g.drawString(frame.directions, screenWidth / 2 - fontMetrics.stringWidth(frame.directions) / 2,
                     screenHeight * 2 / 3 + fontMetrics.getHeight());
             // draw the readouts along top-left of screen
-            g.drawString("Current Coordinates: (" + (int) Math.ceil(currentX) + "," + (int) Math.ceil(currentY) + ")", 0, 20);
-            g.drawString("Distance Travelled: " + (int) distanceTravelled + "px", 0, 40);
-            g.drawString("Distance Remaining: " + (int) distanceRemaining + "px", 0, 60);
-            g.drawString("Time Remaining: " + timeRemaining + "s", 0, 80);
-            g.drawString("Travelling on " + currentStreetName + " (speed limit " + currentSpeedLimit + "px/s)", 0, 100);
+            for (int i = 0; i < frame.readouts.length; i++) {
+                g.drawString(frame.readouts[i], 0, 20 * (i + 1));
+            }
         }
     }
 
+    // runs the animation: advances it by one step every 1 / FPS seconds and renders the latest state into the back
+    // buffer, then swaps buffers and asks Swing to present the new front buffer. When rendering falls behind, the
+    // animation still advances once per period but the frames in between are skipped, up to MAX_STEPS_PER_FRAME;
+    // beyond that the backlog is dropped and the animation slows down instead
+    private void runRenderLoop() {
+        long period = 1_000_000_000L / FPS;
+        long nextStep = System.nanoTime();
+        while (running) {
+            long now = System.nanoTime();
+            if (now < nextStep) {
+                LockSupport.parkNanos(nextStep - now);
+                continue;
+            }
+            int steps = 0;
+            synchronized (this) {
+                while (nextStep <= now && steps < MAX_STEPS_PER_FRAME) {
+                    update();
+                    nextStep += period;
+                    steps++;
+                }
+            }
+            if (nextStep <= now) {
+                nextStep = now + period;
+            }
+            FrameState frame = captureFrame();
+            long start = System.nanoTime();
+            // the front buffer is empty until the first swap, so the second frame needs a buffer of its own
+            if (backBuffer == null) {
+                backBuffer = new BufferedImage(screenWidth, screenHeight, BufferedImage.TYPE_INT_RGB);
+            }
+            Graphics2D g = backBuffer.createGraphics();
+            try {
+                renderFrame(g, frame);
+            } finally {
+                g.dispose();
+            }
+            long renderNanos = System.nanoTime() - start;
+            synchronized (bufferLock) {
+                BufferedImage presented = frontBuffer;
+                frontBuffer = backBuffer;
+                backBuffer = presented;
+            }
+            frameTimes.record(renderNanos, steps - 1);
+            repaint();
+        }
+    }
+
+    @Override // presents the last frame rendered. Runs on the event dispatch thread and does nothing but copy the
+    // image, so input is never held up by rendering
+    public void paintComponent(Graphics g) {
+        synchronized (bufferLock) {
+            if (frontBuffer != null) {
+                g.drawImage(frontBuffer, 0, 0, null);
+            } else {
+                super.paintComponent(g);
+            }
+        }
+    }
+
+    // starts the render thread if it isn't running. Called when the display is added to a window
+    public synchronized void start() {
+        if (renderThread != null) {
+            return;
+        }
+        running = true;
+        renderThread = new Thread(this::runRenderLoop, "MapDisplay renderer");
+        renderThread.setDaemon(true);
+        renderThread.start();
+    }
+
+    // stops the render thread and waits for it to finish its frame. Called when the display is removed from its window
+    public void stop() {
+        Thread thread;
+        synchronized (this) {
+            thread = renderThread;
+            renderThread = null;
+            running = false;
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        start();
+    }
+
+    @Override
+    public void removeNotify() {
+        stop();
+        super.removeNotify();
+    }
+
+    // returns the render times of recent frames and the number of frames rendered and skipped so far
+    public FrameStats getFrameStats() {
+        return frameTimes.getStats();
+    }
+
     // gives a path of nodes to navigate and sets navigating to true.
     // throws IllegalArgumentException if path has fewer than two nodes, path is invalid
     // (nodes are not adjacent), or MapDisplay was previously navigating and had not been
     // turned off
-    public void startNavigation(List<LocationNode> path) throws IllegalArgumentException {
+    public synchronized void startNavigation(List<LocationNode> path) throws IllegalArgumentException {
+        if (path == null || path.size() < 2) {
+            throw new IllegalArgumentException("Path must have at least two elements");
+        }
+        try {
+            startNavigation(map.getRoute(path));
+        } catch (NoSuchElementException e) {
+            throw new IllegalArgumentException("Path must be made of adjacent nodes", e);
+        }
+    }
+
+    // gives a route to navigate and sets navigating to true.
+    // throws IllegalArgumentException if route has fewer than two nodes, or MapDisplay was previously navigating
+    // and had not been turned off
+    public synchronized void startNavigation(Route route) throws IllegalArgumentException {
         if (navigating) {
             throw new IllegalStateException("Navigating must be set to false before path may be changed");
-        } else if (path == null || path.size() < 2) {
-            throw new IllegalArgumentException("Path must have at least two elements");
+        } else if (route == null || route.size() < 2) {
+            throw new IllegalArgumentException("Route must have at least two nodes");
         } else {
             navigating = true;
-            this.path = path;
+            destinationReached = false;
+            this.route = route;
+            pathOverlay = new PathOverlay(route);
 
-            // calculate total distance and time to traverse path
-            timeRemaining = MapUtil.calculateTime(path, 0, path.size() - 1, map);
-            distanceRemaining = MapUtil.calculateDistance(path, 0, path.size() - 1, map);
-            System.out.println("Remaining: " + timeRemaining + "," + distanceRemaining);
+            // total distance and time to traverse the route
+            timeRemaining = route.getTotalTime();
+            distanceRemaining = route.getTotalDistance();
 
             // set init values for starting navigation
             currNodeIndex = 0;
-            framesThisEdge = 0;
-            totalFramesThisEdge = (int) (MapUtil.calculateTime(path, 0, 1, map) * FPS);
-            currentX = path.get(0).getX();
-            currentY = path.get(0).getY();
-            currentStreetName = map.getEdge(path.get(0), path.get(1)).getStreetName();
-            directions = MapUtil.getDirections(path, 0, map);
+            startEdge(0);
+            currentX = route.getX(0);
+            currentY = route.getY(0);
             distanceTravelled = 0;
         }
     }
 
+    // sets up animating the edge from the node at index to the next one. Reads everything from the route, so
+    // advancing doesn't look anything up in the map
+    private void startEdge(int index) {
+        framesThisEdge = 0;
+        // an edge takes at least one frame, so that every node of the route is passed
+        totalFramesThisEdge = Math.max(1, (int) (route.getEdgeTime(index) * FPS));
+        directions = route.getDirections(index);
+        currentSpeedLimit = route.getSpeedLimit(index);
+        currentStreetName = route.getStreetName(index);
+    }
+
     // will stop drawing the path to the screen and animating navigation
-    public void stopNavigation() {
+    public synchronized void stopNavigation() {
         navigating = false;
     }
 
-
+    /**
+     * What a frame shows, copied out of the display so the frame can be drawn without holding its lock.
+     */
+    private static final class FrameState {
+        int zoomLevel;
+        PathOverlay pathOverlay;
+        boolean navigating;
+        // position of the pointer in the coordinates of the zoom level
+        int pointerX, pointerY;
+        String directions;
+        // lines of text drawn along the top-left of the screen
+        String[] readouts;
+    }
 }
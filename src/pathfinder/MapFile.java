@@ -0,0 +1,422 @@
+package pathfinder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads and writes maps in a versioned binary format that can be memory-mapped and used in place, without parsing.
+ * Loading a map this way costs a few system calls rather than a pass over every record, so a large map is ready to
+ * be searched almost immediately after startup (see MappedMap).
+ *
+ * Binary Map File Format:
+ * All values are little-endian. The file starts with a header of HEADER_SIZE bytes:
+ * - ints: MAGIC, VERSION, number of nodes, number of directed edges, number of strings, sector width,
+ *   x and y index of the first sector, and number of sectors along x and along y
+ * - for every Section, in declaration order, the long byte offset and long byte length of that section
+ * Each section starts at a multiple of 8 bytes and holds one array:
+ * - STRING_OFFSETS, STRING_DATA: a string table of UTF-8 bytes. String i is stored from STRING_OFFSETS[i] up to
+ *   STRING_OFFSETS[i + 1]. The first strings are the node addresses in id order, followed by the street names
+ * - NODE_XS, NODE_YS: node coordinates, indexed by node id
+ * - EDGE_OFFSETS, EDGE_TARGETS, EDGE_TIMES, EDGE_DISTANCES, EDGE_SPEED_LIMITS, EDGE_STREETS: the edges in CSR form,
+ *   as in CompactMap. EDGE_TIMES holds each edge's distance divided by its speed limit, so searches needn't divide.
+ *   EDGE_STREETS holds the index of each edge's street name among the street names
+ * - ADDRESS_INDEX: node ids sorted by the bytes of their address, for looking up nodes by address
+ * - SECTOR_NODE_OFFSETS, SECTOR_NODES, SECTOR_EDGE_OFFSETS, SECTOR_EDGES: a grid of square sectors (as in
+ *   MapSector) covering the map. For every sector, the ids of the nodes inside it, and the edges (stored once, from
+ *   the endpoint with the smaller id) whose bounding box overlaps it. Sectors are numbered row by row
+ */
+public class MapFile {
+
+    // identifies a binary map file and the version of its layout
+    static final int MAGIC = 0x50414D53;
+    static final int VERSION = 2;
+
+    // the arrays stored in a file, in the order their offsets appear in the header
+    enum Section {
+        STRING_OFFSETS, STRING_DATA, NODE_XS, NODE_YS, EDGE_OFFSETS, EDGE_TARGETS, EDGE_TIMES, EDGE_DISTANCES,
+        EDGE_SPEED_LIMITS, EDGE_STREETS, ADDRESS_INDEX, SECTOR_NODE_OFFSETS, SECTOR_NODES, SECTOR_EDGE_OFFSETS,
+        SECTOR_EDGES
+    }
+
+    // number of ints at the start of the header, and total header size in bytes
+    static final int HEADER_INTS = 10;
+    static final int HEADER_SIZE = align(HEADER_INTS * 4 + Section.values().length * 16);
+
+    // size of the buffer used while writing
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private MapFile() {
+    }
+
+    // writes the given Map to a binary map file. Node ids are kept
+    // throws IOException if there was an error writing the file
+    // throws IllegalArgumentException if the map is spread over too many sectors to index, or its addresses and
+    // street names take up more than 2GB
+    public static void write(Map map, String fileName) throws IOException, IllegalArgumentException {
+        write(CompactMap.fromMap(map), fileName);
+    }
+
+    // writes the given CompactMap to a binary map file, along with its address and sector indexes
+    // throws IOException if there was an error writing the file
+    // throws IllegalArgumentException if the map is spread over too many sectors to index, or its addresses and
+    // street names take up more than 2GB
+    public static void write(CompactMap graph, String fileName) throws IOException, IllegalArgumentException {
+        int numNodes = graph.getNodeCount(), numArcs = graph.getEdgeCount();
+        String[] streetNames = graph.getStreetNames();
+
+        // encode the string table
+        byte[][] strings = new byte[numNodes + streetNames.length][];
+        long stringBytes = 0;
+        for (int i = 0; i < strings.length; i++) {
+            String string = i < numNodes ? graph.getAddress(i) : streetNames[i - numNodes];
+            strings[i] = string.getBytes(StandardCharsets.UTF_8);
+            stringBytes += strings[i].length;
+        }
+        if (stringBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("String table is too large for the binary map format");
+        }
+
+        // address index: ids sorted by their encoded address
+        Integer[] sorted = new Integer[numNodes];
+        for (int id = 0; id < numNodes; id++) {
+            sorted[id] = id;
+        }
+        Arrays.sort(sorted, (a, b) -> compareBytes(strings[a], strings[b]));
+
+        SectorIndex sectors = new SectorIndex(graph, MapSector.WIDTH);
+
+        // lay out the sections
+        long[] lengths = new long[Section.values().length];
+        lengths[Section.STRING_OFFSETS.ordinal()] = 4L * (strings.length + 1);
+        lengths[Section.STRING_DATA.ordinal()] = stringBytes;
+        lengths[Section.NODE_XS.ordinal()] = 4L * numNodes;
+        lengths[Section.NODE_YS.ordinal()] = 4L * numNodes;
+        lengths[Section.EDGE_OFFSETS.ordinal()] = 4L * (numNodes + 1);
+        lengths[Section.EDGE_TARGETS.ordinal()] = 4L * numArcs;
+        lengths[Section.EDGE_TIMES.ordinal()] = 4L * numArcs;
+        lengths[Section.EDGE_DISTANCES.ordinal()] = 4L * numArcs;
+        lengths[Section.EDGE_SPEED_LIMITS.ordinal()] = 4L * numArcs;
+        lengths[Section.EDGE_STREETS.ordinal()] = 4L * numArcs;
+        lengths[Section.ADDRESS_INDEX.ordinal()] = 4L * numNodes;
+        lengths[Section.SECTOR_NODE_OFFSETS.ordinal()] = 4L * sectors.nodeOffsets.length;
+        lengths[Section.SECTOR_NODES.ordinal()] = 4L * sectors.nodes.length;
+        lengths[Section.SECTOR_EDGE_OFFSETS.ordinal()] = 4L * sectors.edgeOffsets.length;
+        lengths[Section.SECTOR_EDGES.ordinal()] = 4L * sectors.edges.length;
+        long[] offsets = new long[lengths.length];
+        long position = HEADER_SIZE;
+        for (int i = 0; i < lengths.length; i++) {
+            offsets[i] = position;
+            position = align(position + lengths[i]);
+        }
+
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Output out = new Output(channel);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(numNodes);
+            out.putInt(numArcs);
+            out.putInt(strings.length);
+            out.putInt(sectors.width);
+            out.putInt(sectors.firstX);
+            out.putInt(sectors.firstY);
+            out.putInt(sectors.countX);
+            out.putInt(sectors.countY);
+            for (int i = 0; i < lengths.length; i++) {
+                out.putLong(offsets[i]);
+                out.putLong(lengths[i]);
+            }
+            out.align();
+
+            int stringOffset = 0;
+            for (byte[] string : strings) {
+                out.putInt(stringOffset);
+                stringOffset += string.length;
+            }
+            out.putInt(stringOffset);
+            out.align();
+            for (byte[] string : strings) {
+                out.putBytes(string);
+            }
+            out.align();
+            for (int node = 0; node < numNodes; node++) {
+                out.putInt(graph.getX(node));
+            }
+            out.align();
+            for (int node = 0; node < numNodes; node++) {
+                out.putInt(graph.getY(node));
+            }
+            out.align();
+            for (int node = 0; node <= numNodes; node++) {
+                out.putInt(graph.getFirstEdge(node));
+            }
+            out.align();
+            for (int edge = 0; edge < numArcs; edge++) {
+                out.putInt(graph.getEdgeTarget(edge));
+            }
+            out.align();
+            for (int edge = 0; edge < numArcs; edge++) {
+                out.putFloat(graph.getEdgeTime(edge));
+            }
+            out.align();
+            for (int edge = 0; edge < numArcs; edge++) {
+                out.putFloat(graph.getEdgeDistance(edge));
+            }
+            out.align();
+            for (int edge = 0; edge < numArcs; edge++) {
+                out.putFloat(graph.getSpeedLimit(edge));
+            }
+            out.align();
+            for (int edge = 0; edge < numArcs; edge++) {
+                out.putInt(graph.getStreetIndex(edge));
+            }
+            out.align();
+            for (int id : sorted) {
+                out.putInt(id);
+            }
+            out.align();
+            for (int[] array : new int[][] {sectors.nodeOffsets, sectors.nodes, sectors.edgeOffsets, sectors.edges}) {
+                for (int value : array) {
+                    out.putInt(value);
+                }
+                out.align();
+            }
+            out.flush();
+        }
+    }
+
+    // opens the given binary map file by memory-mapping it. Nothing is parsed or copied up front
+    // throws IOException if the file cannot be read
+    // throws IllegalArgumentException if the file isn't a binary map file, has an unsupported version or is truncated
+    public static MappedMap open(String fileName) throws IOException, IllegalArgumentException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IllegalArgumentException("\"" + fileName + "\" is not a binary map file");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC) {
+                throw new IllegalArgumentException("\"" + fileName + "\" is not a binary map file");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported binary map version " + version);
+            }
+            int[] counts = new int[HEADER_INTS - 2];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = header.getInt();
+            }
+            // the mapping stays valid after the channel is closed. Files that fit in one buffer are mapped once and
+            // sliced into sections, since every mapping holds on to address space until it is garbage collected
+            ByteBuffer whole = size <= Integer.MAX_VALUE ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size) : null;
+            ByteBuffer[] sections = new ByteBuffer[Section.values().length];
+            for (int i = 0; i < sections.length; i++) {
+                long offset = header.getLong(), length = header.getLong();
+                if (offset < HEADER_SIZE || length < 0 || offset + length > size) {
+                    throw new IllegalArgumentException("\"" + fileName + "\" is truncated or corrupt");
+                } else if (length > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Section " + Section.values()[i] + " of \"" + fileName +
+                            "\" is too large to be mapped");
+                }
+                if (whole != null) {
+                    ByteBuffer view = whole.duplicate();
+                    view.position((int) offset).limit((int) (offset + length));
+                    sections[i] = view.slice().order(ByteOrder.LITTLE_ENDIAN);
+                } else {
+                    sections[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, length)
+                            .order(ByteOrder.LITTLE_ENDIAN);
+                }
+            }
+            return new MappedMap(counts[0], counts[1], counts[2], counts[3], counts[4], counts[5], counts[6],
+                    counts[7], sections);
+        }
+    }
+
+    // returns whether the given file starts like a binary map file
+    // throws IOException if the file cannot be read
+    public static boolean isMapFile(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    // rounds the given position up to the next multiple of 8
+    static int align(int position) {
+        return (position + 7) & ~7;
+    }
+
+    static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    // compares two byte strings as unsigned bytes, the order used by the address index
+    static int compareBytes(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int comparison = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    /**
+     * Grid of sectors built for a graph, with the nodes and edges in each sector grouped in CSR form.
+     */
+    private static final class SectorIndex {
+        final int width;
+        final int firstX, firstY, countX, countY;
+        final int[] nodeOffsets, nodes, edgeOffsets, edges;
+
+        SectorIndex(CompactMap graph, int width) {
+            this.width = width;
+            int numNodes = graph.getNodeCount();
+            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+            for (int node = 0; node < numNodes; node++) {
+                minX = Math.min(minX, Math.floorDiv(graph.getX(node), width));
+                minY = Math.min(minY, Math.floorDiv(graph.getY(node), width));
+                maxX = Math.max(maxX, Math.floorDiv(graph.getX(node), width));
+                maxY = Math.max(maxY, Math.floorDiv(graph.getY(node), width));
+            }
+            firstX = numNodes == 0 ? 0 : minX;
+            firstY = numNodes == 0 ? 0 : minY;
+            countX = numNodes == 0 ? 0 : maxX - minX + 1;
+            countY = numNodes == 0 ? 0 : maxY - minY + 1;
+            long numSectors = (long) countX * countY;
+            if (numSectors >= Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Map is too spread out for a sector index");
+            }
+
+            nodeOffsets = new int[(int) numSectors + 1];
+            for (int node = 0; node < numNodes; node++) {
+                nodeOffsets[sectorOf(graph.getX(node), graph.getY(node)) + 1]++;
+            }
+            prefixSum(nodeOffsets);
+            nodes = new int[numNodes];
+            int[] next = Arrays.copyOf(nodeOffsets, nodeOffsets.length);
+            for (int node = 0; node < numNodes; node++) {
+                nodes[next[sectorOf(graph.getX(node), graph.getY(node))]++] = node;
+            }
+
+            // first count the edges in every sector, then fill them in
+            edgeOffsets = new int[(int) numSectors + 1];
+            forEachEdgeSector(graph, (edge, sector) -> edgeOffsets[sector + 1]++);
+            prefixSum(edgeOffsets);
+            edges = new int[edgeOffsets[edgeOffsets.length - 1]];
+            int[] nextEdge = Arrays.copyOf(edgeOffsets, edgeOffsets.length);
+            forEachEdgeSector(graph, (edge, sector) -> edges[nextEdge[sector]++] = edge);
+        }
+
+        private int sectorOf(int x, int y) {
+            return (Math.floorDiv(y, width) - firstY) * countX + Math.floorDiv(x, width) - firstX;
+        }
+
+        // calls action for every sector overlapped by the bounding box of every edge, visiting each undirected
+        // edge once
+        private void forEachEdgeSector(CompactMap graph, EdgeSectorAction action) {
+            for (int node = 0; node < graph.getNodeCount(); node++) {
+                for (int edge = graph.getFirstEdge(node); edge < graph.getFirstEdge(node + 1); edge++) {
+                    int target = graph.getEdgeTarget(edge);
+                    if (target <= node) {
+                        continue;
+                    }
+                    int x0 = Math.floorDiv(Math.min(graph.getX(node), graph.getX(target)), width) - firstX;
+                    int x1 = Math.floorDiv(Math.max(graph.getX(node), graph.getX(target)), width) - firstX;
+                    int y0 = Math.floorDiv(Math.min(graph.getY(node), graph.getY(target)), width) - firstY;
+                    int y1 = Math.floorDiv(Math.max(graph.getY(node), graph.getY(target)), width) - firstY;
+                    for (int y = y0; y <= y1; y++) {
+                        for (int x = x0; x <= x1; x++) {
+                            action.accept(edge, y * countX + x);
+                        }
+                    }
+                }
+            }
+        }
+
+        private static void prefixSum(int[] values) {
+            for (int i = 1; i < values.length; i++) {
+                values[i] += values[i - 1];
+            }
+        }
+    }
+
+    private interface EdgeSectorAction {
+        void accept(int edge, int sector);
+    }
+
+    /**
+     * Writes little-endian values to a FileChannel through a buffer, keeping track of the position in the file.
+     */
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            ensureRemaining(4);
+            buffer.putInt(value);
+            position += 4;
+        }
+
+        void putFloat(float value) throws IOException {
+            ensureRemaining(4);
+            buffer.putFloat(value);
+            position += 4;
+        }
+
+        void putLong(long value) throws IOException {
+            ensureRemaining(8);
+            buffer.putLong(value);
+            position += 8;
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            int written = 0;
+            while (written < bytes.length) {
+                ensureRemaining(1);
+                int length = Math.min(buffer.remaining(), bytes.length - written);
+                buffer.put(bytes, written, length);
+                written += length;
+            }
+            position += bytes.length;
+        }
+
+        // pads with zeros up to the next multiple of 8
+        void align() throws IOException {
+            while ((position & 7) != 0) {
+                ensureRemaining(1);
+                buffer.put((byte) 0);
+                position++;
+            }
+        }
+
+        private void ensureRemaining(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package pathfinder;
+
+/**
+ * Thrown when the contents of a map file cannot be parsed. Records the line on which the problem was found.
+ */
+public class MapFormatException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    // number of the offending line, starting at 1
+    private final int lineNumber;
+
+    public MapFormatException(String fileName, int lineNumber, String message) {
+        super("\"" + fileName + "\" line " + lineNumber + ": " + message);
+        this.lineNumber = lineNumber;
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+}
@@ -0,0 +1,346 @@
+package pathfinder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates synthetic road maps of any size for load, memory and performance testing. The same kind, size and seed
+ * always produce the same map. Two kinds of map are available:
+ * - GRID: a perturbed grid. Nodes sit on a square lattice with jittered coordinates, a few streets are missing a
+ *   block and a few blocks are cut by a diagonal street. Every row and column is a street, and every
+ *   ARTERIAL_INTERVAL-th one is a faster arterial road.
+ * - GEOMETRIC: a random geometric graph. Nodes are scattered uniformly and connected to their NEAREST nearest
+ *   neighbors. Streets are named by neighborhood and direction, and some of them are arterials.
+ * Nodes are about SPACING pixels apart in both. The map is held in primitive arrays, so maps with millions of nodes
+ * can be generated and written out (with writeText() or writeBinary()) without ever building a Map.
+ *
+ * Usage from the command line: MapGenerator [GRID|GEOMETRIC] [number of nodes] [seed] [output file] [text|binary]
+ */
+public class MapGenerator {
+
+    public enum Kind {
+        GRID, GEOMETRIC
+    }
+
+    // approximate distance between neighboring nodes
+    private static final int SPACING = 20;
+    // number of nearest neighbors each node of a geometric map connects to
+    private static final int NEAREST = 3;
+    // chance of a grid edge being left out, and of a grid block getting a diagonal street
+    private static final double GRID_DROP_RATE = 0.05, GRID_DIAGONAL_RATE = 0.03;
+    // every ARTERIAL_INTERVAL-th row and column of a grid is an arterial road
+    private static final int ARTERIAL_INTERVAL = 8;
+    // chance of a street in a geometric map being an arterial road
+    private static final double ARTERIAL_RATE = 0.1;
+    // width (in nodes) of the neighborhoods that name the streets of a geometric map
+    private static final int NEIGHBORHOOD_SIZE = 8;
+    // words street names are made of
+    private static final String[] STREET_WORDS = {"Oak", "Maple", "Pine", "Cedar", "Elm", "Main", "Park", "Lake",
+            "Hill", "River", "Church", "Mill", "Sunset", "Spring", "Walnut", "Washington", "Highland", "Forest"};
+    private static final String[] STREET_TYPES = {"St", "Ave", "Rd", "Blvd", "Ln", "Way", "Dr", "Ct"};
+
+    private final int[] xs, ys;
+    private int numEdges;
+    private int[] edgeNodes1, edgeNodes2, edgeStreets;
+    private float[] speedLimits;
+    // speed limit of every street
+    private float[] streetSpeeds;
+
+    private MapGenerator(int numNodes, int edgeCapacity) {
+        xs = new int[numNodes];
+        ys = new int[numNodes];
+        edgeNodes1 = new int[edgeCapacity];
+        edgeNodes2 = new int[edgeCapacity];
+        edgeStreets = new int[edgeCapacity];
+        speedLimits = new float[edgeCapacity];
+    }
+
+    // generates a map of the given kind with about numNodes nodes. Grids are rounded down to a square number of nodes
+    // throws IllegalArgumentException if numNodes is negative
+    public static MapGenerator generate(Kind kind, int numNodes, long seed) throws IllegalArgumentException {
+        if (numNodes < 0) {
+            throw new IllegalArgumentException("Number of nodes can't be negative");
+        }
+        Random random = new Random(seed);
+        if (kind == Kind.GRID) {
+            int side = (int) Math.sqrt(numNodes);
+            return grid(side, side, random);
+        } else {
+            return geometric(numNodes, random);
+        }
+    }
+
+    // generates a perturbed grid with the given number of rows and columns
+    private static MapGenerator grid(int rows, int cols, Random random) {
+        MapGenerator map = new MapGenerator(rows * cols, 2 * rows * cols);
+        // rows are streets 0 .. rows - 1, columns are streets rows .. rows + cols - 1
+        map.streetSpeeds = new float[rows + cols];
+        for (int street = 0; street < map.streetSpeeds.length; street++) {
+            int index = street < rows ? street : street - rows;
+            map.streetSpeeds[street] = index % ARTERIAL_INTERVAL == 0 ? arterialSpeed(random) : localSpeed(random);
+        }
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int node = row * cols + col;
+                map.xs[node] = col * SPACING + random.nextInt(SPACING / 2);
+                map.ys[node] = row * SPACING + random.nextInt(SPACING / 2);
+                // arterials are never interrupted
+                if (col + 1 < cols && (row % ARTERIAL_INTERVAL == 0 || random.nextDouble() >= GRID_DROP_RATE)) {
+                    map.addEdge(node, node + 1, row);
+                }
+                if (row + 1 < rows && (col % ARTERIAL_INTERVAL == 0 || random.nextDouble() >= GRID_DROP_RATE)) {
+                    map.addEdge(node, node + cols, rows + col);
+                }
+                if (row + 1 < rows && col + 1 < cols && random.nextDouble() < GRID_DIAGONAL_RATE) {
+                    map.addEdge(node, node + cols + 1, row);
+                }
+            }
+        }
+        return map;
+    }
+
+    // generates a random geometric graph with the given number of nodes
+    private static MapGenerator geometric(int numNodes, Random random) {
+        MapGenerator map = new MapGenerator(numNodes, NEAREST * numNodes);
+        int extent = Math.max(1, (int) Math.sqrt(numNodes) * SPACING);
+        for (int node = 0; node < numNodes; node++) {
+            map.xs[node] = random.nextInt(extent);
+            map.ys[node] = random.nextInt(extent);
+        }
+        // every neighborhood has one street running along x and one running along y
+        int neighborhoods = Math.max(1, extent / (NEIGHBORHOOD_SIZE * SPACING));
+        map.streetSpeeds = new float[2 * neighborhoods * neighborhoods];
+        for (int street = 0; street < map.streetSpeeds.length; street++) {
+            map.streetSpeeds[street] = random.nextDouble() < ARTERIAL_RATE ? arterialSpeed(random) : localSpeed(random);
+        }
+
+        int[] nearest = map.findNearest(extent);
+        for (int node = 0; node < numNodes; node++) {
+            for (int i = node * NEAREST; i < (node + 1) * NEAREST; i++) {
+                int other = nearest[i];
+                // an edge between two nodes that are each other's neighbors is added by the one with the smaller id
+                if (other < 0 || (other < node && contains(nearest, other, node))) {
+                    continue;
+                }
+                int dx = map.xs[other] - map.xs[node], dy = map.ys[other] - map.ys[node];
+                int midX = (map.xs[node] + map.xs[other]) / 2, midY = (map.ys[node] + map.ys[other]) / 2;
+                int neighborhood = Math.min(neighborhoods - 1, (int) ((long) midY * neighborhoods / extent)) *
+                        neighborhoods + Math.min(neighborhoods - 1, (int) ((long) midX * neighborhoods / extent));
+                map.addEdge(node, other, 2 * neighborhood + (Math.abs(dx) >= Math.abs(dy) ? 0 : 1));
+            }
+        }
+        return map;
+    }
+
+    private static float arterialSpeed(Random random) {
+        return 50 + 5 * random.nextInt(5);
+    }
+
+    private static float localSpeed(Random random) {
+        return 20 + 5 * random.nextInt(4);
+    }
+
+    // returns whether node's nearest neighbors include the other node
+    private static boolean contains(int[] nearest, int node, int other) {
+        for (int i = node * NEAREST; i < (node + 1) * NEAREST; i++) {
+            if (nearest[i] == other) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // finds the NEAREST nearest neighbors of every node, using a grid of buckets about SPACING wide. Neighbors of node
+    // n are stored at n * NEAREST onwards, closest first, and padded with -1 if there are fewer other nodes
+    private int[] findNearest(int extent) {
+        int numNodes = xs.length;
+        int buckets = Math.max(1, extent / SPACING);
+        int[] bucketOffsets = new int[buckets * buckets + 1];
+        int[] nodeBuckets = new int[numNodes];
+        for (int node = 0; node < numNodes; node++) {
+            int x = Math.min(buckets - 1, (int) ((long) xs[node] * buckets / extent));
+            int y = Math.min(buckets - 1, (int) ((long) ys[node] * buckets / extent));
+            nodeBuckets[node] = y * buckets + x;
+            bucketOffsets[nodeBuckets[node] + 1]++;
+        }
+        for (int i = 0; i < buckets * buckets; i++) {
+            bucketOffsets[i + 1] += bucketOffsets[i];
+        }
+        int[] bucketNodes = new int[numNodes];
+        int[] next = Arrays.copyOf(bucketOffsets, buckets * buckets);
+        for (int node = 0; node < numNodes; node++) {
+            bucketNodes[next[nodeBuckets[node]]++] = node;
+        }
+
+        int[] nearest = new int[numNodes * NEAREST];
+        Arrays.fill(nearest, -1);
+        long[] distances = new long[NEAREST];
+        double bucketWidth = (double) extent / buckets;
+        for (int node = 0; node < numNodes; node++) {
+            int bx = nodeBuckets[node] % buckets, by = nodeBuckets[node] / buckets;
+            int found = 0;
+            int base = node * NEAREST;
+            // search rings of buckets around the node's bucket until no closer node can be outside them
+            for (int radius = 0; radius < buckets; radius++) {
+                if (found == NEAREST) {
+                    double reach = (radius - 1) * bucketWidth;
+                    if (reach > 0 && reach * reach >= distances[NEAREST - 1]) {
+                        break;
+                    }
+                }
+                for (int y = by - radius; y <= by + radius; y++) {
+                    if (y < 0 || y >= buckets) {
+                        continue;
+                    }
+                    // only the border of the ring is new
+                    int step = (y == by - radius || y == by + radius) ? 1 : Math.max(1, 2 * radius);
+                    for (int x = bx - radius; x <= bx + radius; x += step) {
+                        if (x < 0 || x >= buckets) {
+                            continue;
+                        }
+                        int bucket = y * buckets + x;
+                        for (int i = bucketOffsets[bucket]; i < bucketOffsets[bucket + 1]; i++) {
+                            int other = bucketNodes[i];
+                            if (other == node) {
+                                continue;
+                            }
+                            long dx = xs[other] - xs[node], dy = ys[other] - ys[node];
+                            long distance = dx * dx + dy * dy;
+                            if (found < NEAREST || distance < distances[NEAREST - 1]) {
+                                // insert into the sorted list of the closest nodes found so far
+                                int j = found < NEAREST ? found++ : NEAREST - 1;
+                                while (j > 0 && distances[j - 1] > distance) {
+                                    distances[j] = distances[j - 1];
+                                    nearest[base + j] = nearest[base + j - 1];
+                                    j--;
+                                }
+                                distances[j] = distance;
+                                nearest[base + j] = other;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    private void addEdge(int node1, int node2, int street) {
+        if (numEdges == edgeNodes1.length) {
+            int capacity = Math.max(16, numEdges * 2);
+            edgeNodes1 = Arrays.copyOf(edgeNodes1, capacity);
+            edgeNodes2 = Arrays.copyOf(edgeNodes2, capacity);
+            edgeStreets = Arrays.copyOf(edgeStreets, capacity);
+            speedLimits = Arrays.copyOf(speedLimits, capacity);
+        }
+        edgeNodes1[numEdges] = node1;
+        edgeNodes2[numEdges] = node2;
+        edgeStreets[numEdges] = street;
+        speedLimits[numEdges] = streetSpeeds[street];
+        numEdges++;
+    }
+
+    public int getNodeCount() {
+        return xs.length;
+    }
+
+    // returns number of edges. Each edge can be travelled in both directions but is counted once
+    public int getEdgeCount() {
+        return numEdges;
+    }
+
+    public String getAddress(int node) {
+        return "n" + node;
+    }
+
+    public int getX(int node) {
+        return xs[node];
+    }
+
+    public int getY(int node) {
+        return ys[node];
+    }
+
+    // returns name of the given street. Every street gets a distinct name
+    public String getStreetName(int street) {
+        int words = STREET_WORDS.length, types = STREET_TYPES.length;
+        String name = STREET_WORDS[street % words] + "_" + STREET_TYPES[street / words % types];
+        return street < words * types ? name : name + "_" + (street / (words * types) + 1);
+    }
+
+    // builds a Map holding the generated nodes and edges. Node ids are the same as in the generator
+    public Map toMap() {
+        Map map = new Map();
+        for (int node = 0; node < xs.length; node++) {
+            map.addNode(getAddress(node), xs[node], ys[node]);
+        }
+        String[] streetNames = getStreetNames();
+        for (int edge = 0; edge < numEdges; edge++) {
+            map.addEdge(getAddress(edgeNodes1[edge]), getAddress(edgeNodes2[edge]), streetNames[edgeStreets[edge]],
+                    speedLimits[edge]);
+        }
+        return map;
+    }
+
+    // builds a CompactMap holding the generated nodes and edges, without going through a Map
+    public CompactMap toCompactMap() {
+        String[] addresses = new String[xs.length];
+        for (int node = 0; node < xs.length; node++) {
+            addresses[node] = getAddress(node);
+        }
+        return new CompactMap(addresses, xs.clone(), ys.clone(), numEdges, edgeNodes1, edgeNodes2, speedLimits,
+                edgeStreets, getStreetNames());
+    }
+
+    private String[] getStreetNames() {
+        String[] streetNames = new String[streetSpeeds.length];
+        for (int street = 0; street < streetNames.length; street++) {
+            streetNames[street] = getStreetName(street);
+        }
+        return streetNames;
+    }
+
+    // streams the map to a file in the text format read by MapUtil.loadMap()
+    // throws IOException if there was an error writing the file
+    public void writeText(String fileName) throws IOException {
+        String[] streetNames = getStreetNames();
+        try (MapWriter writer = new MapWriter(fileName, xs.length, numEdges)) {
+            for (int node = 0; node < xs.length; node++) {
+                writer.writeNode(getAddress(node), xs[node], ys[node]);
+            }
+            for (int edge = 0; edge < numEdges; edge++) {
+                writer.writeEdge(getAddress(edgeNodes1[edge]), getAddress(edgeNodes2[edge]),
+                        streetNames[edgeStreets[edge]], speedLimits[edge]);
+            }
+        }
+    }
+
+    // writes the map to a file in the binary format read by MapFile.open()
+    // throws IOException if there was an error writing the file
+    public void writeBinary(String fileName) throws IOException {
+        MapFile.write(toCompactMap(), fileName);
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 5) {
+            System.out.println("Usage is [GRID|GEOMETRIC] [number of nodes] [seed] [output file] [text|binary]");
+            System.exit(0);
+        }
+        try {
+            Kind kind = Kind.valueOf(args[0].toUpperCase());
+            MapGenerator map = generate(kind, Integer.parseInt(args[1]), Long.parseLong(args[2]));
+            if (args[4].equalsIgnoreCase("binary")) {
+                map.writeBinary(args[3]);
+            } else {
+                map.writeText(args[3]);
+            }
+            System.out.println("Wrote " + map.getNodeCount() + " nodes and " + map.getEdgeCount() + " edges to " +
+                    args[3]);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid argument: " + e.getMessage());
+        } catch (IOException e) {
+            System.out.println("Couldn't write \"" + args[3] + "\": " + e.getMessage());
+        }
+    }
+}
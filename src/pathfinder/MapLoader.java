@@ -0,0 +1,678 @@
+package pathfinder;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Loads map files in the text format described in MapUtil.loadMap(), parsing records straight from memory-mapped
+ * bytes. No line is turned into a String; only addresses and distinct street names are.
+ *
+ * The file is cut into chunks at line boundaries, which are processed by the common ForkJoinPool in three passes:
+ * - every chunk counts its lines, which tells each chunk the number of its first line and so whether its lines hold
+ *   nodes or edges
+ * - node lines are parsed. A node's id is its position in the file, so every chunk writes its nodes straight into
+ *   shared arrays, and registers their addresses in a lock-free hash table keyed by the address bytes
+ * - edge lines are parsed, looking up both addresses in that table. Street names are deduplicated per chunk, then
+ *   merged into one table
+ *
+ * Problems are reported as a MapFormatException carrying the line number. If several lines are invalid, the first
+ * of them is reported. loadCompactMap() is the fastest way to load a map, since building a Map inserts every node
+ * and edge into its hash maps one at a time.
+ */
+public class MapLoader {
+
+    // smallest and largest number of bytes in a chunk
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    private static final int MAX_CHUNK_SIZE = 1 << 26;
+    // number of lines before the node records
+    private static final int HEADER_LINES = 2;
+    // most decimals a float is parsed with in place. 10^10 is the largest power of ten that is an exact float
+    private static final int MAX_FAST_FRACTION_DIGITS = 10;
+    private static final float[] POWERS_OF_TEN = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+
+    private MapLoader() {
+    }
+
+    // loads the given text map file into a Map
+    // throws IOException if the file cannot be read
+    // throws MapFormatException if the contents of the file cannot be parsed
+    public static Map loadMap(String fileName) throws IOException, MapFormatException {
+        return parse(fileName).toMap();
+    }
+
+    // loads the given text map file into a CompactMap. Node ids are the same as those loadMap() would assign
+    // throws IOException if the file cannot be read
+    // throws MapFormatException if the contents of the file cannot be parsed
+    public static CompactMap loadCompactMap(String fileName) throws IOException, MapFormatException {
+        return parse(fileName).toCompactMap();
+    }
+
+    private static ParsedMap parse(String fileName) throws IOException, MapFormatException {
+        List<ByteBuffer> chunkList;
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            chunkList = mapChunks(channel);
+        }
+        ByteBuffer[] chunks = chunkList.toArray(new ByteBuffer[0]);
+        if (chunks.length == 0) {
+            throw new MapFormatException(fileName, 1, "Missing number of nodes");
+        }
+
+        // pass 1: count lines, then find the number of the first line of every chunk
+        int[] firstLines = new int[chunks.length + 1];
+        IntStream.range(0, chunks.length).parallel().forEach(i -> firstLines[i + 1] = countLines(chunks[i]));
+        for (int i = 0; i < chunks.length; i++) {
+            firstLines[i + 1] += firstLines[i];
+        }
+        int totalLines = firstLines[chunks.length];
+
+        LineParser header = new LineParser(fileName, chunks[0], 0);
+        int numNodes = header.parseCount("nodes");
+        int numEdges = header.parseCount("edges");
+        if ((long) HEADER_LINES + numNodes + numEdges > totalLines) {
+            throw new MapFormatException(fileName, totalLines + 1, "File declares " + numNodes + " nodes and " +
+                    numEdges + " edges but ends after line " + totalLines);
+        }
+        ParsedMap parsed = new ParsedMap(numNodes, numEdges);
+        int firstEdgeLine = HEADER_LINES + numNodes, endLine = firstEdgeLine + numEdges;
+        MapFormatException[] errors = new MapFormatException[chunks.length];
+
+        // pass 2: nodes
+        AddressTable table = new AddressTable(numNodes, chunks);
+        IntStream.range(0, chunks.length).parallel().forEach(i -> {
+            if (firstLines[i] < firstEdgeLine && firstLines[i + 1] > HEADER_LINES) {
+                try {
+                    new LineParser(fileName, chunks[i], firstLines[i]).parseNodes(i, firstEdgeLine, parsed, table);
+                } catch (MapFormatException e) {
+                    errors[i] = e;
+                }
+            }
+        });
+        throwFirst(errors);
+        table.freeze();
+
+        // pass 3: edges
+        StreetTable[] chunkStreets = new StreetTable[chunks.length];
+        IntStream.range(0, chunks.length).parallel().forEach(i -> {
+            if (firstLines[i] < endLine && firstLines[i + 1] > firstEdgeLine) {
+                try {
+                    chunkStreets[i] = new LineParser(fileName, chunks[i], firstLines[i])
+                            .parseEdges(firstEdgeLine, endLine, parsed, table);
+                } catch (MapFormatException e) {
+                    errors[i] = e;
+                }
+            }
+        });
+        throwFirst(errors);
+
+        // merge the street names found in each chunk and renumber the edges' streets to match
+        StreetTable streets = new StreetTable();
+        int[][] remaps = new int[chunks.length][];
+        for (int i = 0; i < chunks.length; i++) {
+            if (chunkStreets[i] != null) {
+                remaps[i] = new int[chunkStreets[i].size()];
+                for (int j = 0; j < remaps[i].length; j++) {
+                    remaps[i][j] = streets.add(chunkStreets[i], j);
+                }
+            }
+        }
+        IntStream.range(0, chunks.length).parallel().forEach(i -> {
+            if (remaps[i] != null) {
+                int first = Math.max(firstLines[i], firstEdgeLine) - firstEdgeLine;
+                int end = Math.min(firstLines[i + 1], endLine) - firstEdgeLine;
+                for (int edge = first; edge < end; edge++) {
+                    parsed.edgeStreets[edge] = remaps[i][parsed.edgeStreets[edge]];
+                }
+            }
+        });
+        parsed.streetNames = new String[streets.size()];
+        for (int i = 0; i < parsed.streetNames.length; i++) {
+            parsed.streetNames[i] = streets.getString(i);
+        }
+        return parsed;
+    }
+
+    // throws the exception found on the earliest line, if any
+    private static void throwFirst(MapFormatException[] errors) throws MapFormatException {
+        MapFormatException first = null;
+        for (MapFormatException error : errors) {
+            if (error != null && (first == null || error.getLineNumber() < first.getLineNumber())) {
+                first = error;
+            }
+        }
+        if (first != null) {
+            throw first;
+        }
+    }
+
+    // maps the file in chunks that each end just after a newline (or at the end of the file)
+    private static List<ByteBuffer> mapChunks(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int threads = Runtime.getRuntime().availableProcessors();
+        long chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, size / (threads * 4L)));
+        List<ByteBuffer> chunks = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(1 << 12);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + chunkSize);
+            // move the end forward to just past the next newline
+            boolean found = end == size;
+            while (!found) {
+                probe.clear();
+                int read = channel.read(probe, end);
+                if (read <= 0) {
+                    end = size;
+                    break;
+                }
+                for (int i = 0; i < read && !found; i++) {
+                    if (probe.get(i) == '\n') {
+                        end += i + 1;
+                        found = true;
+                    }
+                }
+                if (!found) {
+                    end += read;
+                    if (end - start > Integer.MAX_VALUE) {
+                        throw new IOException("Line is too long at byte " + end);
+                    }
+                }
+            }
+            chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+            start = end;
+        }
+        return chunks;
+    }
+
+    // returns the number of lines in the chunk. A final line without a newline counts as well
+    private static int countLines(ByteBuffer chunk) {
+        int count = 0, limit = chunk.limit();
+        for (int i = 0; i < limit; i++) {
+            if (chunk.get(i) == '\n') {
+                count++;
+            }
+        }
+        if (limit > 0 && chunk.get(limit - 1) != '\n') {
+            count++;
+        }
+        return count;
+    }
+
+    // hash of length bytes of the buffer starting at start. The final mixing step spreads out the hashes of
+    // similar keys such as "a1", "a2", ..., which would otherwise fill runs of adjacent slots
+    private static int hash(ByteBuffer buffer, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean bytesEqual(ByteBuffer a, int aStart, ByteBuffer b, int bStart, int length) {
+        for (int i = 0; i < length; i++) {
+            if (a.get(aStart + i) != b.get(bStart + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Contents of a map file, in the arrays the CompactMap constructor expects.
+     */
+    private static final class ParsedMap {
+        final String[] addresses;
+        final int[] xs, ys;
+        final int[] edgeNodes1, edgeNodes2, edgeStreets;
+        final float[] speedLimits;
+        String[] streetNames;
+
+        ParsedMap(int numNodes, int numEdges) {
+            addresses = new String[numNodes];
+            xs = new int[numNodes];
+            ys = new int[numNodes];
+            edgeNodes1 = new int[numEdges];
+            edgeNodes2 = new int[numEdges];
+            edgeStreets = new int[numEdges];
+            speedLimits = new float[numEdges];
+        }
+
+        CompactMap toCompactMap() {
+            return new CompactMap(addresses, xs, ys, edgeNodes1.length, edgeNodes1, edgeNodes2, speedLimits,
+                    edgeStreets, streetNames);
+        }
+
+        Map toMap() {
+            Map map = new Map();
+            for (int node = 0; node < addresses.length; node++) {
+                map.addNode(addresses[node], xs[node], ys[node]);
+            }
+            for (int edge = 0; edge < edgeNodes1.length; edge++) {
+                map.addEdge(addresses[edgeNodes1[edge]], addresses[edgeNodes2[edge]], streetNames[edgeStreets[edge]],
+                        speedLimits[edge]);
+            }
+            return map;
+        }
+    }
+
+    /**
+     * Open addressing hash table from address bytes to node ids. Nodes are inserted concurrently by compare-and-set;
+     * the table is copied into a plain array once all nodes are in, for the lookups made while parsing edges. Keys
+     * aren't copied: the table remembers where each address is in the mapped file.
+     */
+    private static final class AddressTable {
+        private final ByteBuffer[] chunks;
+        // chunk, offset, length and hash of every node's address
+        private final int[] addressChunks, addressStarts, addressLengths, addressHashes;
+        // id + 1 of the node in each slot, 0 if empty
+        private final AtomicIntegerArray slots;
+        private long[] frozenSlots;
+        private final int mask;
+
+        AddressTable(int numNodes, ByteBuffer[] chunks) {
+            this.chunks = chunks;
+            addressChunks = new int[numNodes];
+            addressStarts = new int[numNodes];
+            addressLengths = new int[numNodes];
+            addressHashes = new int[numNodes];
+            int capacity = Integer.highestOneBit(Math.max(2, numNodes) * 2 - 1) << 1;
+            slots = new AtomicIntegerArray(capacity);
+            mask = capacity - 1;
+        }
+
+        // registers the address of the given node. Returns the id of the node already registered with the same
+        // address, or -1 if there was none
+        int add(int node, int chunk, int start, int length) {
+            addressChunks[node] = chunk;
+            addressStarts[node] = start;
+            addressLengths[node] = length;
+            int hash = hash(chunks[chunk], start, length);
+            addressHashes[node] = hash;
+            int slot = hash & mask;
+            while (true) {
+                int occupant = slots.get(slot);
+                if (occupant == 0) {
+                    if (slots.compareAndSet(slot, 0, node + 1)) {
+                        return -1;
+                    }
+                    occupant = slots.get(slot);
+                }
+                if (matches(occupant - 1, hash, chunks[chunk], start, length)) {
+                    return occupant - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        // copies the table into frozenSlots, which hold the hash of each slot's address next to its node id, so most
+        // mismatches are ruled out without looking at the node's arrays
+        void freeze() {
+            frozenSlots = new long[slots.length()];
+            for (int i = 0; i < frozenSlots.length; i++) {
+                int occupant = slots.get(i);
+                if (occupant != 0) {
+                    frozenSlots[i] = ((long) addressHashes[occupant - 1] << 32) | occupant;
+                }
+            }
+        }
+
+        // returns id of the node with the given address, or -1 if there is none. Only valid after freeze()
+        int find(ByteBuffer buffer, int start, int length) {
+            int hash = hash(buffer, start, length);
+            int slot = hash & mask;
+            long entry;
+            while ((entry = frozenSlots[slot]) != 0) {
+                int node = (int) entry - 1;
+                if ((int) (entry >>> 32) == hash && addressLengths[node] == length &&
+                        bytesEqual(chunks[addressChunks[node]], addressStarts[node], buffer, start, length)) {
+                    return node;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private boolean matches(int node, int hash, ByteBuffer buffer, int start, int length) {
+            return addressHashes[node] == hash && addressLengths[node] == length &&
+                    bytesEqual(chunks[addressChunks[node]], addressStarts[node], buffer, start, length);
+        }
+    }
+
+    /**
+     * Deduplicates street names. Keeps its own copy of the bytes of each distinct name.
+     */
+    private static final class StreetTable {
+        private byte[] bytes = new byte[256];
+        private int numBytes;
+        private int[] starts = new int[16], lengths = new int[16];
+        private int size;
+        // index + 1 of the name in each slot, 0 if empty
+        private int[] slots = new int[32];
+
+        // returns index of the given name, adding it if it isn't in the table yet
+        int add(ByteBuffer buffer, int start, int length) {
+            int slot = hash(buffer, start, length) & (slots.length - 1);
+            while (slots[slot] != 0) {
+                int index = slots[slot] - 1;
+                if (lengths[index] == length && matches(starts[index], buffer, start, length)) {
+                    return index;
+                }
+                slot = (slot + 1) & (slots.length - 1);
+            }
+            if (numBytes + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, numBytes + length));
+            }
+            for (int i = 0; i < length; i++) {
+                bytes[numBytes + i] = buffer.get(start + i);
+            }
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            starts[size] = numBytes;
+            lengths[size] = length;
+            numBytes += length;
+            slots[slot] = ++size;
+            if (size * 2 > slots.length) {
+                rehash();
+            }
+            return size - 1;
+        }
+
+        private boolean matches(int bytesStart, ByteBuffer buffer, int start, int length) {
+            for (int i = 0; i < length; i++) {
+                if (bytes[bytesStart + i] != buffer.get(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // adds name index of the other table, returning its index in this one
+        int add(StreetTable other, int index) {
+            return add(ByteBuffer.wrap(other.bytes), other.starts[index], other.lengths[index]);
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+            for (int index = 0; index < size; index++) {
+                int slot = hash(wrapped, starts[index], lengths[index]) & (slots.length - 1);
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & (slots.length - 1);
+                }
+                slots[slot] = index + 1;
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        String getString(int index) {
+            return new String(bytes, starts[index], lengths[index], StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Walks the lines of one chunk and the space-separated tokens within them.
+     */
+    private static final class LineParser {
+        private final String fileName;
+        private final ByteBuffer chunk;
+        // number of the current line, counting from 0
+        private int line;
+        // bounds of the current line, and the position of the next line
+        private int lineStart, lineEnd, next;
+        // bounds of the current token, and the position to look for the next one
+        private int tokenStart, tokenEnd, cursor;
+        // scratch space for decoding addresses
+        private byte[] scratch = new byte[64];
+
+        LineParser(String fileName, ByteBuffer chunk, int firstLine) {
+            this.fileName = fileName;
+            this.chunk = chunk;
+            line = firstLine - 1;
+        }
+
+        // moves to the next line. Returns false at the end of the chunk
+        private boolean nextLine() {
+            if (next >= chunk.limit()) {
+                return false;
+            }
+            line++;
+            lineStart = next;
+            int end = lineStart;
+            while (end < chunk.limit() && chunk.get(end) != '\n') {
+                end++;
+            }
+            next = end + 1;
+            if (end > lineStart && chunk.get(end - 1) == '\r') {
+                end--;
+            }
+            lineEnd = end;
+            cursor = lineStart;
+            return true;
+        }
+
+        // moves to the next token of the current line. Returns false if there are no more
+        private boolean nextToken() {
+            while (cursor < lineEnd && isSpace(chunk.get(cursor))) {
+                cursor++;
+            }
+            if (cursor == lineEnd) {
+                return false;
+            }
+            tokenStart = cursor;
+            while (cursor < lineEnd && !isSpace(chunk.get(cursor))) {
+                cursor++;
+            }
+            tokenEnd = cursor;
+            return true;
+        }
+
+        private static boolean isSpace(byte b) {
+            return b == ' ' || b == '\t';
+        }
+
+        private void requireToken(String field) throws MapFormatException {
+            if (!nextToken()) {
+                throw error("Missing " + field);
+            }
+        }
+
+        private void requireEnd() throws MapFormatException {
+            if (nextToken()) {
+                throw error("Unexpected \"" + tokenString() + "\" at end of line");
+            }
+        }
+
+        private MapFormatException error(String message) {
+            return new MapFormatException(fileName, line + 1, message);
+        }
+
+        private String tokenString() {
+            int length = tokenEnd - tokenStart;
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                scratch[i] = chunk.get(tokenStart + i);
+            }
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        // parses the current token as a color, in any form Color.decode() accepts (decimal, or hex after # or 0x)
+        private Color parseColor(String field) throws MapFormatException {
+            try {
+                return Color.decode(tokenString());
+            } catch (NumberFormatException e) {
+                throw error("Invalid " + field + " \"" + tokenString() + "\"");
+            }
+        }
+
+        // parses the current token as an int
+        private int parseInt(String field) throws MapFormatException {
+            int i = tokenStart;
+            boolean negative = chunk.get(i) == '-';
+            if (negative || chunk.get(i) == '+') {
+                i++;
+            }
+            if (i == tokenEnd) {
+                throw error("Invalid " + field + " \"" + tokenString() + "\"");
+            }
+            long value = 0;
+            for (; i < tokenEnd; i++) {
+                int digit = chunk.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    throw error("Invalid " + field + " \"" + tokenString() + "\"");
+                }
+                value = value * 10 + digit;
+                if (value > (long) Integer.MAX_VALUE + 1) {
+                    throw error(field + " \"" + tokenString() + "\" is out of range");
+                }
+            }
+            value = negative ? -value : value;
+            if (value > Integer.MAX_VALUE) {
+                throw error(field + " \"" + tokenString() + "\" is out of range");
+            }
+            return (int) value;
+        }
+
+        // parses the current token as a float, giving exactly the result of Float.parseFloat. A plain decimal whose
+        // digits fit in a float's 24-bit significand and that has at most MAX_FAST_FRACTION_DIGITS decimals is parsed
+        // in place: the digits and the power of ten are then both exact floats, so a single float division rounds
+        // correctly. Anything else (longer mantissas, exponents, "Infinity", ...) is handed to Float.parseFloat
+        private float parseFloat(String field) throws MapFormatException {
+            int i = tokenStart;
+            boolean negative = chunk.get(i) == '-';
+            if (negative || chunk.get(i) == '+') {
+                i++;
+            }
+            long mantissa = 0;
+            int fractionDigits = 0;
+            boolean digits = false;
+            boolean point = false, simple = i < tokenEnd;
+            for (; i < tokenEnd && simple; i++) {
+                byte b = chunk.get(i);
+                if (b >= '0' && b <= '9') {
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits = true;
+                    if (mantissa >= 1 << 24) {
+                        simple = false;
+                    }
+                    if (point) {
+                        fractionDigits++;
+                    }
+                } else if (b == '.' && !point) {
+                    point = true;
+                } else {
+                    simple = false;
+                }
+            }
+            if (simple && digits && fractionDigits <= MAX_FAST_FRACTION_DIGITS) {
+                float value = mantissa / POWERS_OF_TEN[fractionDigits];
+                return negative ? -value : value;
+            }
+            try {
+                return Float.parseFloat(tokenString());
+            } catch (NumberFormatException e) {
+                throw error("Invalid " + field + " \"" + tokenString() + "\"");
+            }
+        }
+
+        // parses a header line holding a count
+        int parseCount(String what) throws MapFormatException {
+            if (!nextLine()) {
+                throw new MapFormatException(fileName, line + 2, "Missing number of " + what);
+            }
+            requireToken("number of " + what);
+            int count = parseInt("number of " + what);
+            if (count < 0) {
+                throw error("Number of " + what + " can't be negative");
+            }
+            requireEnd();
+            return count;
+        }
+
+        // parses the node lines of the chunk, i.e. those before firstEdgeLine. Node ids follow line numbers
+        void parseNodes(int chunkIndex, int firstEdgeLine, ParsedMap parsed, AddressTable table)
+                throws MapFormatException {
+            while (nextLine() && line < firstEdgeLine) {
+                if (line < HEADER_LINES) {
+                    continue;
+                }
+                int node = line - HEADER_LINES;
+                requireToken("address");
+                int addressStart = tokenStart, addressLength = tokenEnd - tokenStart;
+                parsed.addresses[node] = tokenString();
+                requireToken("x-coordinate");
+                parsed.xs[node] = parseInt("x-coordinate");
+                requireToken("y-coordinate");
+                parsed.ys[node] = parseInt("y-coordinate");
+                // the optional shape is validated but not kept, as with MapUtil.loadMap()
+                if (nextToken()) {
+                    parseInt("shape x0");
+                    requireToken("shape y0");
+                    parseInt("shape y0");
+                    requireToken("shape xf");
+                    parseInt("shape xf");
+                    requireToken("shape yf");
+                    parseInt("shape yf");
+                    requireToken("shape color");
+                    parseColor("shape color");
+                    requireEnd();
+                }
+                int duplicate = table.add(node, chunkIndex, addressStart, addressLength);
+                if (duplicate >= 0) {
+                    // report the later of the two lines, whichever thread got there first
+                    int duplicateLine = Math.max(node, duplicate) + HEADER_LINES;
+                    throw new MapFormatException(fileName, duplicateLine + 1, "Address \"" +
+                            parsed.addresses[node] + "\" has already been registered");
+                }
+            }
+        }
+
+        // parses the edge lines of the chunk, i.e. those from firstEdgeLine up to endLine. Returns the street names
+        // found, which the edges' street indices refer to
+        StreetTable parseEdges(int firstEdgeLine, int endLine, ParsedMap parsed, AddressTable table)
+                throws MapFormatException {
+            StreetTable streets = new StreetTable();
+            while (nextLine() && line < endLine) {
+                if (line < firstEdgeLine) {
+                    continue;
+                }
+                int edge = line - firstEdgeLine;
+                parsed.edgeNodes1[edge] = parseAddress(table, "first address");
+                parsed.edgeNodes2[edge] = parseAddress(table, "second address");
+                requireToken("street name");
+                parsed.edgeStreets[edge] = streets.add(chunk, tokenStart, tokenEnd - tokenStart);
+                requireToken("speed limit");
+                parsed.speedLimits[edge] = parseFloat("speed limit");
+                requireEnd();
+            }
+            return streets;
+        }
+
+        private int parseAddress(AddressTable table, String field) throws MapFormatException {
+            requireToken(field);
+            int node = table.find(chunk, tokenStart, tokenEnd - tokenStart);
+            if (node < 0) {
+                throw error("The given address \"" + tokenString() + "\" is invalid");
+            }
+            return node;
+        }
+    }
+}
@@ -6,11 +6,12 @@ import java.util.List;
 /**
  * Represents a square portion of the map. The map is broken up into a grid of these MapSectors, each of which has
  * a row and column index. Includes convenience methods for determining sector(s) a node, edge, or region would intersect.
+ * Map finds nodes and edges in a region with a RegionIndex instead; the grid is used by the MapFile format.
  */
 public class MapSector { // todo: lots of testing
 
     // width of every MapSector's bounds
-    private static final int WIDTH = 300;
+    static final int WIDTH = 300;
 
     // index of this sector with respect to the map as a whole. Bounds are calculated as
     // (row * WIDTH, col * WIDTH, (row + 1) * WIDTH, (col + 1) * WIDTH)
@@ -55,10 +56,12 @@ public class MapSector { // todo: lots of testing
 
     }
     // returns list of all MapSectors that a path from node to node2 would intersect
-    // Accomplishes this by building the Rect region from node to node2 and calling
+    // Accomplishes this by building the Rect region spanning node and node2 and calling
     // getIntersectedSectors(Rect) on it.
     public static List<MapSector> getIntersectedSectors(LocationNode node, LocationNode node2) {
-        return getIntersectedSectors(new Rect(node.getX(), node.getY(), node2.getX(), node2.getY()));
+        int x0 = Math.min(node.getX(), node2.getX()), y0 = Math.min(node.getY(), node2.getY());
+        return getIntersectedSectors(new Rect(x0, y0, Math.max(node.getX(), node2.getX()) - x0,
+                Math.max(node.getY(), node2.getY()) - y0));
     }
 
     @Override // returns true if given object is a MapSector with same row, col
@@ -1,8 +1,8 @@
 package pathfinder;
 
-import java.awt.*;
 import java.io.*;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -20,84 +20,22 @@ public class MapUtil {
      *
      * The fields defining shape coordinates and color are optional.
      *
+     * Parsing is done by MapLoader, which reads the file in parallel.
      * Throws IOException if file cannot be found.
-     * Throws IllegalArgumentException if contents of file cannot be parsed correctly
+     * Throws MapFormatException (an IllegalArgumentException) with the offending line number if contents of file
+     * cannot be parsed correctly
      */
     public static Map loadMap(String fileName) throws IOException, IllegalArgumentException {
-        Map map = new Map();
-        try {
-            BufferedReader br = new BufferedReader(new FileReader(fileName));
-            int num_nodes = Integer.parseInt(br.readLine());
-            int num_edges = Integer.parseInt(br.readLine());
-            int total_lines = num_nodes + num_edges;
-
-            String[] line_tokens;
-            String address;
-            int x, y;
-            for (int i = 0; i < total_lines; i++) {
-                line_tokens = br.readLine().split(" "); // todo: use addEdge, addNode methods
-                if (i < num_nodes) { // create node and add to addresses
-                    address = line_tokens[0];
-                    x = Integer.parseInt(line_tokens[1]);
-                    y = Integer.parseInt(line_tokens[2]);
-                    Rect shape = null;
-                    Color color = null;
-                    // check if more tokens--in which case pase shape specifications
-                    if (line_tokens.length > 3) {
-                        shape = new Rect(
-                                Integer.parseInt(line_tokens[3]),
-                                Integer.parseInt(line_tokens[4]),
-                                Integer.parseInt(line_tokens[5]),
-                                Integer.parseInt(line_tokens[6])
-                                );
-                        color = Color.decode(line_tokens[7]);
-                    }
-                    map.addNode(address, x, y);
-                } else { // access specified nodes and set edge cost
-                    map.addEdge(line_tokens[0], line_tokens[1], line_tokens[2], Float.parseFloat(line_tokens[3]));
-                }
-            }
-            br.close();
-        } catch (IOException e) {
-            System.out.println("Couldn't read specified file \"" + fileName + "\"");
-            System.exit(0);
-        } catch (NumberFormatException|NullPointerException|ArrayIndexOutOfBoundsException e) {
-            System.out.print("Error parsing file. Ensure correct number of addresses and edges have been declared,\n" +
-                    "and that they are defined in the proper way.");
-            System.exit(0);
-        }
-        return map;
+        return MapLoader.loadMap(fileName);
     }
 
-    // writes address-node pairs to file followed by all edges with edge costs
+    // writes address-node pairs to file followed by all edges with their street names and speed limits, in the format
+    // read by loadMap(). The file is written by a MapWriter, which streams it out rather than building it in memory.
     // throws IOException if there was an error writing the file
-    public boolean saveToFile(String fileName) throws IOException {
-        /*try {
-            BufferedWriter writer = new BufferedWriter(new FileWriter(fileName, true));
-            writer.write(addresses.size() + "\n");
-            writer.write(numEdges + "\n");
-            // write in all node data
-            for (String address : addresses.keySet()) {
-                writer.write(addresses.get(address) + "\n");
-            }
-            // write in all edge data
-            LocationNode node;
-            Edge edge;
-            for (String address : addresses.keySet()) {
-                node = addresses.get(address);
-                for (LocationNode neighbor : node.getNeighbors()) {
-                    edge = node.getEdge(neighbor);
-                    writer.write(node.getAddress() + " " + neighbor.getAddress() + " " +
-                            edge.getStreetName() + " " + edge.getSpeedLimit() + "\n");
-                }
-            }
-            return true;
-        } catch (IOException e) {
-            e.printStackTrace();
-            return false;
-        }*/
-        return false;
+    public static void saveToFile(Map map, String fileName) throws IOException {
+        MapWriter.write(map, fileName);
     }
+
     // generates directions for the navigator from the current node index in the path
     // to the next one. Example: "Head NorthEast along Sunset Ave." Map object is used to look up the Edge
     public static String getDirections(List<LocationNode> path, int currNodeIndex, Map map) {
@@ -106,26 +44,32 @@ public class MapUtil {
         } else {
             LocationNode current = path.get(currNodeIndex);
             LocationNode approaching = path.get(currNodeIndex + 1);
-            String direction = "Head ";
-            // figure out compass direction. Remember: canvas coordinates!
-            if (approaching.getY() - current.getY() > 0) {
-                direction += "South";
-            } else if (approaching.getY() - current.getY() < 0) {
-                direction += "North";
-            }
-            if (approaching.getX() - current.getX() > 0) {
-                direction += "East";
-            } else if (approaching.getX() - current.getX() < 0) {
-                direction += "West";
-            }
-            direction += " along " + map.getEdge(current, approaching).getStreetName();
-            return direction;
+            return getDirections(current, approaching, map.getEdge(current, approaching));
+        }
+    }
+
+    // generates directions for getting from current to approaching along the given edge between them
+    static String getDirections(LocationNode current, LocationNode approaching, Edge edge) {
+        String direction = "Head ";
+        // figure out compass direction. Remember: canvas coordinates!
+        if (approaching.getY() - current.getY() > 0) {
+            direction += "South";
+        } else if (approaching.getY() - current.getY() < 0) {
+            direction += "North";
+        }
+        if (approaching.getX() - current.getX() > 0) {
+            direction += "East";
+        } else if (approaching.getX() - current.getX() < 0) {
+            direction += "West";
         }
+        direction += " along " + edge.getStreetName();
+        return direction;
     }
 
     // calculates time required to navigate from node at startIndex to node at endIndex along the given path (in seconds).
     // throws IllegalArgumentException if startIndex > endIndex or either is out of range of the given path.
-    // uses Map object to look up edges.
+    // uses Map object to look up edges. A path that is navigated should be frozen into a Route (see Map.getRoute()),
+    // which answers this without looking up any edge
     public static float calculateTime(List<LocationNode> path, int startIndex, int endIndex, Map map) throws IllegalArgumentException{
         if (startIndex > endIndex) {
             throw new IllegalArgumentException("StartIndex can't be greater than EndIndex");
@@ -133,8 +77,13 @@ public class MapUtil {
             throw new IllegalArgumentException("Error: index out of path bounds");
         } else {
             float time = 0;
+            // walk the path with an iterator, as path.get() is linear on a LinkedList
+            Iterator<LocationNode> nodes = path.listIterator(startIndex);
+            LocationNode node = nodes.next();
             for (int i = startIndex; i < endIndex; i++) {
-                time += map.getEdge(path.get(i), path.get(i + 1)).getTime();
+                LocationNode next = nodes.next();
+                time += map.getEdge(node, next).getTime();
+                node = next;
             }
             return time;
         }
@@ -150,10 +99,13 @@ public class MapUtil {
             throw new IllegalArgumentException("Error: index out of path bounds");
         } else {
             int distance = 0;
-            for (int i = 0; i < endIndex; i++) {
-                distance += map.getEdge(path.get(i), path.get(i + 1)).getDistance();
+            Iterator<LocationNode> nodes = path.listIterator(startIndex);
+            LocationNode node = nodes.next();
+            for (int i = startIndex; i < endIndex; i++) {
+                LocationNode next = nodes.next();
+                distance += map.getEdge(node, next).getDistance();
+                node = next;
             }
-            System.out.println("Distance from " + path.get(startIndex) + " to " + path.get(endIndex) + " is " + distance);
             return distance;
         }
     }
@@ -0,0 +1,105 @@
+package pathfinder;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes maps in the text format read by MapUtil.loadMap(). Records are streamed to the file as they are given, so
+ * the size of the map written is not limited by memory: the header states the number of nodes and edges up front,
+ * followed by writeNode() for every node and writeEdge() for every edge, in that order. close() checks that the
+ * counts in the header were met.
+ *
+ * write() saves a whole Map this way. Nodes are written in id order, so loading the file assigns the same ids.
+ */
+public class MapWriter implements AutoCloseable {
+
+    // size of the output buffer, in chars
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final BufferedWriter writer;
+    private final int numNodes, numEdges;
+    private int nodesWritten, edgesWritten;
+
+    // creates the file and writes the header for a map with the given number of nodes and edges
+    // throws IOException if the file cannot be created
+    public MapWriter(String fileName, int numNodes, int numEdges) throws IOException {
+        this.numNodes = numNodes;
+        this.numEdges = numEdges;
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8),
+                BUFFER_SIZE);
+        writer.write(Integer.toString(numNodes));
+        writer.write('\n');
+        writer.write(Integer.toString(numEdges));
+        writer.write('\n');
+    }
+
+    // writes the given Map to a text map file
+    // throws IOException if there was an error writing the file
+    public static void write(Map map, String fileName) throws IOException {
+        try (MapWriter writer = new MapWriter(fileName, map.getNodeCount(), map.getEdgeCount())) {
+            for (LocationNode node : map.getNodes()) {
+                writer.writeNode(node.getAddress(), node.getX(), node.getY());
+            }
+            EdgeTable.Slots edges = map.getEdgeTable().getSlots();
+            for (int slot = 0; slot < edges.getCapacity(); slot++) {
+                Edge edge = edges.getEdge(slot);
+                if (edge != null) {
+                    writer.writeEdge(map.getNode(edges.getNode1(slot)).getAddress(),
+                            map.getNode(edges.getNode2(slot)).getAddress(), edge.getStreetName(), edge.getSpeedLimit());
+                }
+            }
+        }
+    }
+
+    // writes a node record. Addresses must not contain whitespace
+    // throws IllegalStateException if all nodes have already been written
+    // throws IOException if there was an error writing the file
+    public void writeNode(String address, int x, int y) throws IllegalStateException, IOException {
+        if (nodesWritten == numNodes) {
+            throw new IllegalStateException("All " + numNodes + " nodes have already been written");
+        }
+        nodesWritten++;
+        writer.write(address);
+        writer.write(' ');
+        writer.write(Integer.toString(x));
+        writer.write(' ');
+        writer.write(Integer.toString(y));
+        writer.write('\n');
+    }
+
+    // writes an edge record. Addresses and street name must not contain whitespace
+    // throws IllegalStateException if not all nodes have been written yet, or all edges already have
+    // throws IOException if there was an error writing the file
+    public void writeEdge(String address1, String address2, String streetName, float speedLimit)
+            throws IllegalStateException, IOException {
+        if (nodesWritten < numNodes) {
+            throw new IllegalStateException("All nodes must be written before the edges");
+        } else if (edgesWritten == numEdges) {
+            throw new IllegalStateException("All " + numEdges + " edges have already been written");
+        }
+        edgesWritten++;
+        writer.write(address1);
+        writer.write(' ');
+        writer.write(address2);
+        writer.write(' ');
+        writer.write(streetName);
+        writer.write(' ');
+        writer.write(Float.toString(speedLimit));
+        writer.write('\n');
+    }
+
+    // flushes and closes the file
+    // throws IllegalStateException if fewer nodes or edges were written than declared in the header
+    // throws IOException if there was an error writing the file
+    @Override
+    public void close() throws IllegalStateException, IOException {
+        writer.close();
+        if (nodesWritten < numNodes || edgesWritten < numEdges) {
+            throw new IllegalStateException("Only " + nodesWritten + " of " + numNodes + " nodes and " +
+                    edgesWritten + " of " + numEdges + " edges were written");
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package pathfinder;
+
+import searcher.IntSearchFramework;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A read-only map served straight from a memory-mapped binary map file (see MapFile). It offers the same graph
+ * queries as a CompactMap, but reads every value from the mapped file instead of from arrays on the heap, so opening
+ * a map takes constant time and its pages are only loaded by the operating system once they are touched. Several
+ * processes opening the same file share those pages.
+ *
+ * Nodes are looked up by address with a binary search over the file's address index, comparing the UTF-8 bytes in
+ * place. The file's sector index answers region queries, such as finding the nodes and edges to draw in a clip.
+ *
+ * Like a CompactMap, a MappedMap can be searched with an IntSearcher and shared between threads. The mapping is
+ * released once the MappedMap is no longer reachable.
+ */
+public class MappedMap implements IntSearchFramework {
+
+    private final int numNodes, numArcs;
+    private final int sectorWidth, firstSectorX, firstSectorY, sectorsX, sectorsY;
+    private final IntBuffer stringOffsets;
+    private final ByteBuffer stringData;
+    private final IntBuffer xs, ys;
+    private final IntBuffer edgeOffsets, edgeTargets, edgeStreets;
+    private final FloatBuffer edgeTimes, edgeDistances, edgeSpeedLimits;
+    private final IntBuffer idsByAddress;
+    private final IntBuffer sectorNodeOffsets, sectorNodes, sectorEdgeOffsets, sectorEdges;
+    // landmark tables used for the heuristic. Straight-line distance is used if null
+    private volatile Landmarks landmarks;
+
+    // wraps the mapped sections of a binary map file, indexed by MapFile.Section ordinal
+    MappedMap(int numNodes, int numArcs, int numStrings, int sectorWidth, int firstSectorX, int firstSectorY,
+              int sectorsX, int sectorsY, ByteBuffer[] sections) {
+        this.numNodes = numNodes;
+        this.numArcs = numArcs;
+        this.sectorWidth = sectorWidth;
+        this.firstSectorX = firstSectorX;
+        this.firstSectorY = firstSectorY;
+        this.sectorsX = sectorsX;
+        this.sectorsY = sectorsY;
+        stringOffsets = ints(sections, MapFile.Section.STRING_OFFSETS, numStrings + 1);
+        stringData = sections[MapFile.Section.STRING_DATA.ordinal()];
+        xs = ints(sections, MapFile.Section.NODE_XS, numNodes);
+        ys = ints(sections, MapFile.Section.NODE_YS, numNodes);
+        edgeOffsets = ints(sections, MapFile.Section.EDGE_OFFSETS, numNodes + 1);
+        edgeTargets = ints(sections, MapFile.Section.EDGE_TARGETS, numArcs);
+        edgeTimes = floats(sections, MapFile.Section.EDGE_TIMES, numArcs);
+        edgeDistances = floats(sections, MapFile.Section.EDGE_DISTANCES, numArcs);
+        edgeSpeedLimits = floats(sections, MapFile.Section.EDGE_SPEED_LIMITS, numArcs);
+        edgeStreets = ints(sections, MapFile.Section.EDGE_STREETS, numArcs);
+        idsByAddress = ints(sections, MapFile.Section.ADDRESS_INDEX, numNodes);
+        int numSectors = sectorsX * sectorsY;
+        sectorNodeOffsets = ints(sections, MapFile.Section.SECTOR_NODE_OFFSETS, numSectors + 1);
+        sectorNodes = ints(sections, MapFile.Section.SECTOR_NODES, numNodes);
+        sectorEdgeOffsets = ints(sections, MapFile.Section.SECTOR_EDGE_OFFSETS, numSectors + 1);
+        sectorEdges = sections[MapFile.Section.SECTOR_EDGES.ordinal()].asIntBuffer();
+    }
+
+    // returns an int view of the given section. Throws IllegalArgumentException if it doesn't hold count ints
+    private static IntBuffer ints(ByteBuffer[] sections, MapFile.Section section, int count)
+            throws IllegalArgumentException {
+        IntBuffer buffer = sections[section.ordinal()].asIntBuffer();
+        if (buffer.capacity() != count) {
+            throw new IllegalArgumentException("Section " + section + " has the wrong size");
+        }
+        return buffer;
+    }
+
+    private static FloatBuffer floats(ByteBuffer[] sections, MapFile.Section section, int count)
+            throws IllegalArgumentException {
+        FloatBuffer buffer = sections[section.ordinal()].asFloatBuffer();
+        if (buffer.capacity() != count) {
+            throw new IllegalArgumentException("Section " + section + " has the wrong size");
+        }
+        return buffer;
+    }
+
+    @Override
+    public int getNodeCount() {
+        return numNodes;
+    }
+
+    @Override
+    public int getFirstEdge(int node) {
+        return edgeOffsets.get(node);
+    }
+
+    @Override
+    public int getEdgeTarget(int edge) {
+        return edgeTargets.get(edge);
+    }
+
+    @Override // edge cost is the time needed to travel the edge
+    public float getEdgeCost(int edge) {
+        return edgeTimes.get(edge);
+    }
+
+    @Override // ALT bound on travel time to goal if landmarks have been set, straight-line distance otherwise
+    public float getHeuristic(int node, int goal) {
+        Landmarks current = landmarks;
+        if (current != null) {
+            return current.estimate(node, goal);
+        } else {
+            return CompactMap.distance(xs.get(node), ys.get(node), xs.get(goal), ys.get(goal));
+        }
+    }
+
+    // sets landmark tables to use for the heuristic instead of straight-line distance, or null to go back to
+    // straight-line distance. Throws IllegalArgumentException if the tables were computed for a different graph
+    public void setLandmarks(Landmarks landmarks) throws IllegalArgumentException {
+        if (landmarks != null && !landmarks.matches(this)) {
+            throw new IllegalArgumentException("Landmark tables were computed for a different map");
+        }
+        this.landmarks = landmarks;
+    }
+
+    // returns number of directed edges. Every edge of the source Map is counted twice
+    public int getEdgeCount() {
+        return numArcs;
+    }
+
+    // returns id of the node with the given address, or -1 if there is none
+    public int getId(String address) {
+        byte[] key = address.getBytes(StandardCharsets.UTF_8);
+        int low = 0, high = numNodes - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int id = idsByAddress.get(mid);
+            int comparison = compareString(id, key);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    // compares string i of the string table with the given bytes, as unsigned bytes
+    private int compareString(int i, byte[] key) {
+        int start = stringOffsets.get(i), length = stringOffsets.get(i + 1) - start;
+        int common = Math.min(length, key.length);
+        for (int j = 0; j < common; j++) {
+            int comparison = (stringData.get(start + j) & 0xFF) - (key[j] & 0xFF);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return length - key.length;
+    }
+
+    // decodes string i of the string table
+    private String getString(int i) {
+        int start = stringOffsets.get(i);
+        byte[] bytes = new byte[stringOffsets.get(i + 1) - start];
+        ByteBuffer view = stringData.duplicate();
+        view.position(start);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public String getAddress(int node) {
+        return getString(node);
+    }
+
+    public int getX(int node) {
+        return xs.get(node);
+    }
+
+    public int getY(int node) {
+        return ys.get(node);
+    }
+
+    public float getEdgeTime(int edge) {
+        return edgeTimes.get(edge);
+    }
+
+    public float getEdgeDistance(int edge) {
+        return edgeDistances.get(edge);
+    }
+
+    public float getSpeedLimit(int edge) {
+        return edgeSpeedLimits.get(edge);
+    }
+
+    public String getStreetName(int edge) {
+        return getString(numNodes + edgeStreets.get(edge));
+    }
+
+    // returns the edge leading from node1 to node2, or -1 if there is none
+    public int findEdge(int node1, int node2) {
+        for (int edge = edgeOffsets.get(node1); edge < edgeOffsets.get(node1 + 1); edge++) {
+            if (edgeTargets.get(edge) == node2) {
+                return edge;
+            }
+        }
+        return -1;
+    }
+
+    // returns ids of the nodes inside the given region
+    public int[] getNodesInRegion(Rect region) {
+        if (numNodes == 0) {
+            return new int[0];
+        }
+        int[] found = new int[16];
+        int count = 0;
+        int x0 = clampX(region.getX0()), x1 = clampX(region.getX1());
+        int y0 = clampY(region.getY0()), y1 = clampY(region.getY1());
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                int sector = y * sectorsX + x;
+                for (int i = sectorNodeOffsets.get(sector); i < sectorNodeOffsets.get(sector + 1); i++) {
+                    int node = sectorNodes.get(i);
+                    if (region.containsPoint(xs.get(node), ys.get(node))) {
+                        if (count == found.length) {
+                            found = Arrays.copyOf(found, count * 2);
+                        }
+                        found[count++] = node;
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    // returns the edges whose bounding box overlaps the given region, each undirected edge once. An edge is
+    // returned as the directed edge leaving its endpoint with the smaller id
+    public int[] getEdgesInRegion(Rect region) {
+        if (numNodes == 0) {
+            return new int[0];
+        }
+        int[] found = new int[16];
+        int count = 0;
+        int x0 = clampX(region.getX0()), x1 = clampX(region.getX1());
+        int y0 = clampY(region.getY0()), y1 = clampY(region.getY1());
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                int sector = y * sectorsX + x;
+                for (int i = sectorEdgeOffsets.get(sector); i < sectorEdgeOffsets.get(sector + 1); i++) {
+                    int edge = sectorEdges.get(i);
+                    int source = findSource(edge), target = edgeTargets.get(edge);
+                    int minX = Math.min(xs.get(source), xs.get(target)), maxX = Math.max(xs.get(source), xs.get(target));
+                    int minY = Math.min(ys.get(source), ys.get(target)), maxY = Math.max(ys.get(source), ys.get(target));
+                    // an edge spanning several sectors is only reported from the first of them inside the region
+                    if (maxX < region.getX0() || minX > region.getX1() || maxY < region.getY0() ||
+                            minY > region.getY1() || x != Math.max(x0, clampX(minX)) ||
+                            y != Math.max(y0, clampY(minY))) {
+                        continue;
+                    }
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, count * 2);
+                    }
+                    found[count++] = edge;
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    // returns the node the given edge leaves from
+    public int findSource(int edge) {
+        int low = 0, high = numNodes - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (edgeOffsets.get(mid) <= edge) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    // index of the sector column containing x, clamped to the grid
+    private int clampX(int x) {
+        return Math.max(0, Math.min(sectorsX - 1, Math.floorDiv(x, sectorWidth) - firstSectorX));
+    }
+
+    private int clampY(int y) {
+        return Math.max(0, Math.min(sectorsY - 1, Math.floorDiv(y, sectorWidth) - firstSectorY));
+    }
+
+    // copies the contents into a new Map, e.g. for displaying it. Node ids are kept. Unlike the MappedMap itself, this
+    // reads the whole file
+    public Map toMap() {
+        Map map = new Map();
+        for (int node = 0; node < numNodes; node++) {
+            map.addNode(getAddress(node), xs.get(node), ys.get(node));
+        }
+        for (int node = 0; node < numNodes; node++) {
+            for (int edge = edgeOffsets.get(node); edge < edgeOffsets.get(node + 1); edge++) {
+                int target = edgeTargets.get(edge);
+                if (target > node) {
+                    // the Map works out distance and time from the coordinates and the speed limit, as the
+                    // CompactMap the file was written from did
+                    map.addEdge(getAddress(node), getAddress(target), getStreetName(edge),
+                            edgeSpeedLimits.get(edge));
+                }
+            }
+        }
+        return map;
+    }
+}
@@ -0,0 +1,184 @@
+package pathfinder;
+
+import java.awt.*;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A path of nodes prepared for drawing over a Map, frame after frame. The coordinates of the path are copied once, and
+ * for each zoom level its segments are bucketed by the square sector (MapSector.WIDTH wide, in the coordinates of the
+ * level) they pass through. Drawing a clip then only looks at the buckets of the few sectors overlapping it, so the
+ * cost of a frame depends on how much of the path is on screen rather than on how long the path is. Each segment is
+ * clipped to the visible area before it is drawn, so a long segment running mostly off-screen is drawn as the short
+ * line that is actually seen.
+ *
+ * The buckets of a zoom level are built the first time it is drawn. An overlay is immutable otherwise, and may be
+ * drawn from any thread.
+ */
+public class PathOverlay {
+
+    // how far outside the clip segments are still drawn, so that thick strokes aren't cut off at its border
+    static final int CLIP_MARGIN = 4;
+
+    private final int numPoints;
+    // coordinates of every node of the path, in order
+    private final int[] xs, ys;
+    // ids of the segments passing through each sector, by zoom level. Segment i runs from point i to point i + 1
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final HashMap<Long, IntList>[] buckets = new HashMap[Map.MAX_ZOOM_LEVEL + 1];
+
+    // copies the coordinates of the nodes of path. Reads path once, in order, so any List works
+    public PathOverlay(List<LocationNode> path) {
+        numPoints = path.size();
+        xs = new int[numPoints];
+        ys = new int[numPoints];
+        int i = 0;
+        for (LocationNode node : path) {
+            xs[i] = node.getX();
+            ys[i] = node.getY();
+            i++;
+        }
+    }
+
+    // copies the coordinates of the nodes of route
+    public PathOverlay(Route route) {
+        numPoints = route.size();
+        xs = new int[numPoints];
+        ys = new int[numPoints];
+        for (int i = 0; i < numPoints; i++) {
+            xs[i] = route.getX(i);
+            ys[i] = route.getY(i);
+        }
+    }
+
+    // returns number of nodes on the path
+    public int size() {
+        return numPoints;
+    }
+
+    // returns number of segments (edges between successive nodes) on the path
+    public int getSegmentCount() {
+        return Math.max(0, numPoints - 1);
+    }
+
+    // draws the segments passing through the clip in the current color and stroke, translated so that the clip's
+    // top-left is at (0,0). The clip is in the coordinates of the zoom level, as for Map.drawStatic(Graphics, Rect,
+    // int). Returns the number of segments drawn
+    // throws IllegalArgumentException if zoomLevel is not between 0 and Map.MAX_ZOOM_LEVEL
+    public int draw(Graphics drawFrame, Rect clip, int zoomLevel) throws IllegalArgumentException {
+        if (zoomLevel < 0 || zoomLevel > Map.MAX_ZOOM_LEVEL) {
+            throw new IllegalArgumentException("Zoom level must be between 0 and " + Map.MAX_ZOOM_LEVEL);
+        }
+        HashMap<Long, IntList> sectors = getBuckets(zoomLevel);
+        int left = clip.getX0() - CLIP_MARGIN, top = clip.getY0() - CLIP_MARGIN;
+        int right = clip.getX1() + CLIP_MARGIN, bottom = clip.getY1() + CLIP_MARGIN;
+        // collect the segments of every sector overlapping the clip. A segment crossing several of them is found
+        // more than once, so the ids are sorted to draw each once
+        IntList found = new IntList();
+        int firstRow = Math.floorDiv(top, MapSector.WIDTH), lastRow = Math.floorDiv(bottom, MapSector.WIDTH);
+        int firstCol = Math.floorDiv(left, MapSector.WIDTH), lastCol = Math.floorDiv(right, MapSector.WIDTH);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                IntList segments = sectors.get(key(row, col));
+                if (segments != null) {
+                    for (int i = 0; i < segments.size(); i++) {
+                        found.add(segments.get(i));
+                    }
+                }
+            }
+        }
+        found.sort();
+
+        double[] clipped = new double[4];
+        int drawn = 0;
+        for (int i = 0; i < found.size(); i++) {
+            int segment = found.get(i);
+            if (i > 0 && segment == found.get(i - 1)) {
+                continue;
+            }
+            int x1 = xs[segment] >> zoomLevel, y1 = ys[segment] >> zoomLevel;
+            int x2 = xs[segment + 1] >> zoomLevel, y2 = ys[segment + 1] >> zoomLevel;
+            if (clipSegment(x1, y1, x2, y2, left, top, right, bottom, clipped)) {
+                drawFrame.drawLine((int) Math.round(clipped[0]) - clip.getX0(),
+                        (int) Math.round(clipped[1]) - clip.getY0(),
+                        (int) Math.round(clipped[2]) - clip.getX0(), (int) Math.round(clipped[3]) - clip.getY0());
+                drawn++;
+            }
+        }
+        return drawn;
+    }
+
+    // returns the segments of every sector at the given zoom level, bucketing them if this is the first time the level
+    // is drawn
+    private synchronized HashMap<Long, IntList> getBuckets(int zoomLevel) {
+        HashMap<Long, IntList> sectors = buckets[zoomLevel];
+        if (sectors == null) {
+            sectors = new HashMap<>();
+            for (int segment = 0; segment < numPoints - 1; segment++) {
+                int x1 = xs[segment] >> zoomLevel, y1 = ys[segment] >> zoomLevel;
+                int x2 = xs[segment + 1] >> zoomLevel, y2 = ys[segment + 1] >> zoomLevel;
+                // the segment is added to the sectors its bounding box overlaps that the segment itself passes through
+                int firstRow = Math.floorDiv(Math.min(y1, y2), MapSector.WIDTH);
+                int lastRow = Math.floorDiv(Math.max(y1, y2), MapSector.WIDTH);
+                int firstCol = Math.floorDiv(Math.min(x1, x2), MapSector.WIDTH);
+                int lastCol = Math.floorDiv(Math.max(x1, x2), MapSector.WIDTH);
+                for (int row = firstRow; row <= lastRow; row++) {
+                    for (int col = firstCol; col <= lastCol; col++) {
+                        Rect sector = new Rect(col * MapSector.WIDTH, row * MapSector.WIDTH, MapSector.WIDTH,
+                                MapSector.WIDTH);
+                        if (sector.intersectsSegment(x1, y1, x2, y2)) {
+                            sectors.computeIfAbsent(key(row, col), k -> new IntList())
+                                    .add(segment);
+                        }
+                    }
+                }
+            }
+            buckets[zoomLevel] = sectors;
+        }
+        return sectors;
+    }
+
+    // packs the row and column of a sector into a key
+    private static long key(int row, int col) {
+        return (long) row << 32 | (col & 0xFFFFFFFFL);
+    }
+
+    // clips the segment from (x1, y1) to (x2, y2) to the given rectangle (Liang-Barsky), putting the endpoints of the
+    // part inside into clipped as x1, y1, x2, y2. Returns false if no part of the segment is inside
+    static boolean clipSegment(double x1, double y1, double x2, double y2, double left, double top, double right,
+                               double bottom, double[] clipped) {
+        double dx = x2 - x1, dy = y2 - y1;
+        double enter = 0, exit = 1;
+        // each pair is the edge's p (how the segment moves towards the outside) and q (how far inside the start is)
+        double[] p = {-dx, dx, -dy, dy};
+        double[] q = {x1 - left, right - x1, y1 - top, bottom - y1};
+        for (int i = 0; i < 4; i++) {
+            if (p[i] == 0) {
+                // parallel to this edge: inside it throughout, or outside throughout
+                if (q[i] < 0) {
+                    return false;
+                }
+            } else {
+                double t = q[i] / p[i];
+                if (p[i] < 0) {
+                    enter = Math.max(enter, t);
+                } else {
+                    exit = Math.min(exit, t);
+                }
+                if (enter > exit) {
+                    return false;
+                }
+            }
+        }
+        clipped[0] = x1 + enter * dx;
+        clipped[1] = y1 + enter * dy;
+        clipped[2] = x1 + exit * dx;
+        clipped[3] = y1 + exit * dy;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "PathOverlay(" + numPoints + " nodes)";
+    }
+}
@@ -21,6 +21,25 @@ public class Rect {
         return px >= x0 && px <= getX1() && py >= y0 && py <= getY1();
     }
 
+    // returns whether the line segment from (ax, ay) to (bx, by) passes through this Rect, including its border.
+    // A segment whose bounding box overlaps the Rect misses it only if all four corners lie strictly on the same side
+    // of the segment's line
+    public boolean intersectsSegment(int ax, int ay, int bx, int by) {
+        if (Math.max(ax, bx) < x0 || Math.min(ax, bx) > getX1() || Math.max(ay, by) < y0 ||
+                Math.min(ay, by) > getY1()) {
+            return false;
+        }
+        int side = Long.signum(cross(ax, ay, bx, by, x0, y0));
+        return side == 0 || side != Long.signum(cross(ax, ay, bx, by, getX1(), y0)) ||
+                side != Long.signum(cross(ax, ay, bx, by, x0, getY1())) ||
+                side != Long.signum(cross(ax, ay, bx, by, getX1(), getY1()));
+    }
+
+    // cross product of (b - a) and (p - a): positive if p is left of the line from a to b, negative if right, 0 if on it
+    private static long cross(int ax, int ay, int bx, int by, int px, int py) {
+        return ((long) bx - ax) * ((long) py - ay) - ((long) by - ay) * ((long) px - ax);
+    }
+
     public int getWidth() {
         return width;
     }
@@ -0,0 +1,131 @@
+package pathfinder;
+
+/**
+ * Spatial index of the nodes and edges of a Map, used to find what lies inside a region (e.g. the part of the map on
+ * screen) and what lies nearest to a point. Holds one SpatialIndex over the nodes and one over the bounding boxes of
+ * the edges, along with copies of the coordinates, so queries never touch the Map itself. Edge results are checked
+ * against the exact line segment, so an edge whose bounding box overlaps the region but which passes beside it is
+ * not returned, and an edge's distance to a point is that of its nearest point.
+ *
+ * An index covers the Map as it was when the index was built, and is immutable. Map rebuilds it when nodes or edges
+ * have been added since.
+ */
+class RegionIndex {
+
+    private final int numNodes, numEdges;
+    // coordinates of every node, by id
+    private final int[] xs, ys;
+    // ids of the two nodes of every indexed edge
+    private final int[] edgeNodes1, edgeNodes2;
+    private final SpatialIndex nodeIndex, edgeIndex;
+
+    // indexes the current nodes and edges of map
+    RegionIndex(Map map) {
+        numNodes = map.getNodeCount();
+        xs = new int[numNodes];
+        ys = new int[numNodes];
+        for (int id = 0; id < numNodes; id++) {
+            LocationNode node = map.getNode(id);
+            xs[id] = node.getX();
+            ys[id] = node.getY();
+        }
+        nodeIndex = new SpatialIndex(xs, ys, xs, ys, numNodes);
+
+        EdgeTable.Slots edges = map.getEdgeTable().getSlots();
+        numEdges = map.getEdgeCount();
+        edgeNodes1 = new int[numEdges];
+        edgeNodes2 = new int[numEdges];
+        int[] minX = new int[numEdges], minY = new int[numEdges], maxX = new int[numEdges], maxY = new int[numEdges];
+        int edge = 0;
+        for (int slot = 0; slot < edges.getCapacity(); slot++) {
+            if (edges.getEdge(slot) != null) {
+                int node1 = edges.getNode1(slot), node2 = edges.getNode2(slot);
+                edgeNodes1[edge] = node1;
+                edgeNodes2[edge] = node2;
+                minX[edge] = Math.min(xs[node1], xs[node2]);
+                minY[edge] = Math.min(ys[node1], ys[node2]);
+                maxX[edge] = Math.max(xs[node1], xs[node2]);
+                maxY[edge] = Math.max(ys[node1], ys[node2]);
+                edge++;
+            }
+        }
+        edgeIndex = new SpatialIndex(minX, minY, maxX, maxY, numEdges);
+    }
+
+    // adds the id of every node inside region (border included) to results
+    void findNodes(Rect region, IntList results) {
+        nodeIndex.search(region.getX0(), region.getY0(), region.getX1(), region.getY1(), results);
+    }
+
+    // adds every edge passing through region (border included) to results, as an index for getNode1()/getNode2().
+    // Each edge is added once
+    void findEdges(Rect region, IntList results) {
+        int first = results.size();
+        edgeIndex.search(region.getX0(), region.getY0(), region.getX1(), region.getY1(), results);
+        // keep only the edges whose segment actually crosses the region
+        int kept = first;
+        for (int i = first; i < results.size(); i++) {
+            int edge = results.get(i);
+            if (region.intersectsSegment(xs[edgeNodes1[edge]], ys[edgeNodes1[edge]], xs[edgeNodes2[edge]],
+                    ys[edgeNodes2[edge]])) {
+                results.set(kept++, edge);
+            }
+        }
+        results.truncate(kept);
+    }
+
+    // adds the ids of the k nodes nearest to (x, y) to results, nearest first, leaving out any further than
+    // maxDistance
+    void findNearestNodes(double x, double y, int k, float maxDistance, IntList results) {
+        nodeIndex.nearest(x, y, k, maxDistance, null, results);
+    }
+
+    // returns the edge passing nearest to (x, y), or -1 if there is none within maxDistance
+    int findNearestEdge(double x, double y, float maxDistance) {
+        IntList found = new IntList();
+        edgeIndex.nearest(x, y, 1, maxDistance, edge -> {
+            double t = project(edge, x, y);
+            double dx = x - pointX(edge, t), dy = y - pointY(edge, t);
+            return (float) (dx * dx + dy * dy);
+        }, found);
+        return found.size() == 0 ? -1 : found.get(0);
+    }
+
+    // returns the fraction of the way from the edge's first node to its second at which the point on the edge
+    // nearest to (x, y) lies
+    double project(int edge, double x, double y) {
+        int ax = xs[edgeNodes1[edge]], ay = ys[edgeNodes1[edge]];
+        double dx = xs[edgeNodes2[edge]] - ax, dy = ys[edgeNodes2[edge]] - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        if (lengthSquared == 0) {
+            return 0;
+        }
+        return Math.max(0, Math.min(1, ((x - ax) * dx + (y - ay) * dy) / lengthSquared));
+    }
+
+    // returns x coordinate of the point the given fraction of the way along the edge
+    double pointX(int edge, double fraction) {
+        return xs[edgeNodes1[edge]] + fraction * (xs[edgeNodes2[edge]] - xs[edgeNodes1[edge]]);
+    }
+
+    // returns y coordinate of the point the given fraction of the way along the edge
+    double pointY(int edge, double fraction) {
+        return ys[edgeNodes1[edge]] + fraction * (ys[edgeNodes2[edge]] - ys[edgeNodes1[edge]]);
+    }
+
+    // returns id of the first node of the given edge
+    int getNode1(int edge) {
+        return edgeNodes1[edge];
+    }
+
+    // returns id of the second node of the given edge
+    int getNode2(int edge) {
+        return edgeNodes2[edge];
+    }
+
+    // returns whether the index still covers all of map's nodes and edges. Nodes and edges are never removed, and
+    // changing an edge's speed limit doesn't move it, so the counts are enough to tell
+    boolean covers(Map map) {
+        return numNodes == map.getNodeCount() && numEdges == map.getEdgeCount();
+    }
+}
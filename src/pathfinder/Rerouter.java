@@ -0,0 +1,171 @@
+package pathfinder;
+
+import searcher.Searcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds new routes to a fixed goal for a driver who has left the planned one. Keeps a shortest-path tree rooted at the
+ * goal: a Dijkstra search run backwards from the goal, which gives every node it has settled the fastest time to the
+ * goal and the next node on the way there. The route from a settled node is then a walk up the tree, and takes no
+ * search at all.
+ *
+ * The tree is grown lazily. Nothing is searched until a route is asked for, and a route from a node the tree doesn't
+ * cover yet grows it just far enough to settle the node. Since Dijkstra settles nodes in order of time to the goal,
+ * once the planned route's start is covered so is everything at least as close to the goal, which takes in the
+ * streets around the route a driver is likely to stray onto. Each reroute grows the tree by at most maxGrowth nodes;
+ * a node further out than that is routed with a regular Searcher instead, leaving the tree as it is.
+ *
+ * Edges are taken to cost the same in both directions, as they do on a Map. The tree is dropped and grown again from
+ * scratch once the Map changes (see Map.getVersion()). A Rerouter is bound to one goal and is not thread-safe.
+ */
+public class Rerouter {
+
+    // default for the most nodes a single reroute may add to the tree
+    public static final int DEFAULT_MAX_GROWTH = 1 << 16;
+
+    private final Map map;
+    private final LocationNode goal;
+    private final int maxGrowth;
+    private final Searcher<LocationNode> searcher;
+    // version of the map the tree was grown on
+    private long mapVersion;
+    // time to the goal of every node reached, by id. Infinite for nodes not reached yet
+    private float[] timeToGoal;
+    // id of the next node on the way to the goal, by id. -1 for the goal and for nodes not reached yet
+    private int[] nextNode;
+    // whether each node's time to the goal is final, by id
+    private boolean[] settled;
+    private int settledCount;
+    // nodes reached but not settled, keyed by time to the goal. May hold stale entries, skipped when popped
+    private final IntMinHeap frontier = new IntMinHeap();
+    private long treeReroutes, searchReroutes;
+
+    // creates a rerouter to the given goal of map, growing the tree by at most DEFAULT_MAX_GROWTH nodes per reroute
+    public Rerouter(Map map, LocationNode goal) {
+        this(map, goal, DEFAULT_MAX_GROWTH);
+    }
+
+    // creates a rerouter to the given goal of map, growing the tree by at most maxGrowth nodes per reroute
+    // throws IllegalArgumentException if maxGrowth is negative
+    public Rerouter(Map map, LocationNode goal, int maxGrowth) throws IllegalArgumentException {
+        if (maxGrowth < 0) {
+            throw new IllegalArgumentException("Max growth can't be negative");
+        }
+        this.map = map;
+        this.goal = goal;
+        this.maxGrowth = maxGrowth;
+        searcher = new Searcher<>(map);
+        reset();
+    }
+
+    // returns the fastest route from the given node to the goal, or null if the goal can't be reached from it
+    public Route reroute(LocationNode from) {
+        List<LocationNode> path = getPathToGoal(from);
+        return path.isEmpty() ? null : map.getRoute(path);
+    }
+
+    // returns the fastest path from the given node to the goal as a list of successive nodes, empty if the goal can't
+    // be reached from it. Walks up the tree if it covers the node, growing it by at most maxGrowth nodes to do so,
+    // and runs a search otherwise
+    public List<LocationNode> getPathToGoal(LocationNode from) {
+        if (!extendTo(from)) {
+            searchReroutes++;
+            return searcher.runSearch(from, goal);
+        }
+        treeReroutes++;
+        List<LocationNode> path = new ArrayList<>();
+        if (timeToGoal[from.getId()] == Float.POSITIVE_INFINITY) {
+            return path;
+        }
+        for (int id = from.getId(); id != -1; id = nextNode[id]) {
+            path.add(map.getNode(id));
+        }
+        return path;
+    }
+
+    // returns the time of the fastest route from the given node to the goal, Float.POSITIVE_INFINITY if the goal
+    // can't be reached from it, or NaN if the tree doesn't cover the node even after growing it by maxGrowth nodes
+    public float getTimeToGoal(LocationNode from) {
+        return extendTo(from) ? timeToGoal[from.getId()] : Float.NaN;
+    }
+
+    // grows the tree until the given node is settled, adding at most maxGrowth nodes. Returns whether the tree now
+    // covers the node: true also if the search has run out of nodes without reaching it, as then it can't reach the
+    // goal at all
+    public boolean extendTo(LocationNode node) {
+        if (map.getVersion() != mapVersion || map.getNodeCount() != settled.length) {
+            reset();
+        }
+        int target = node.getId();
+        int grown = 0;
+        while (!settled[target]) {
+            if (frontier.isEmpty()) {
+                return true;
+            } else if (grown == maxGrowth) {
+                return false;
+            }
+            float time = frontier.peekKey();
+            int id = frontier.pop();
+            if (settled[id] || time > timeToGoal[id]) {
+                continue;
+            }
+            settled[id] = true;
+            settledCount++;
+            grown++;
+            LocationNode settledNode = map.getNode(id);
+            for (LocationNode neighbor : settledNode.getNeighborNodes()) {
+                int neighborId = neighbor.getId();
+                float neighborTime = time + map.getEdgeCost(neighbor, settledNode);
+                if (!settled[neighborId] && neighborTime < timeToGoal[neighborId]) {
+                    timeToGoal[neighborId] = neighborTime;
+                    nextNode[neighborId] = id;
+                    frontier.push(neighborId, neighborTime);
+                }
+            }
+        }
+        return true;
+    }
+
+    // drops the tree, leaving only the goal to grow it from
+    private void reset() {
+        mapVersion = map.getVersion();
+        int numNodes = map.getNodeCount();
+        timeToGoal = new float[numNodes];
+        Arrays.fill(timeToGoal, Float.POSITIVE_INFINITY);
+        nextNode = new int[numNodes];
+        Arrays.fill(nextNode, -1);
+        settled = new boolean[numNodes];
+        settledCount = 0;
+        frontier.clear();
+        timeToGoal[goal.getId()] = 0;
+        frontier.push(goal.getId(), 0);
+    }
+
+    public LocationNode getGoal() {
+        return goal;
+    }
+
+    // returns number of nodes the tree covers
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    // returns number of reroutes answered from the tree
+    public long getTreeRerouteCount() {
+        return treeReroutes;
+    }
+
+    // returns number of reroutes that had to run a search
+    public long getSearchRerouteCount() {
+        return searchReroutes;
+    }
+
+    @Override
+    public String toString() {
+        return "Rerouter(goal=" + goal.getAddress() + ", settled=" + settledCount + ", treeReroutes=" + treeReroutes
+                + ", searchReroutes=" + searchReroutes + ")";
+    }
+}
@@ -0,0 +1,213 @@
+package pathfinder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A path through a Map, frozen for navigation. Holds the ids and coordinates of the nodes in order, what is needed of
+ * each edge (street name, speed limit, directions) and running totals of travel time and distance from the start, so
+ * anything a navigator asks about the route is answered in constant time without going back to the Map.
+ *
+ * A position along the route is given as a double: the whole part is the index of the last node passed and the
+ * fraction how far along the edge to the next node the traveller is, by distance (which is also the fraction of the
+ * edge's time, as speed is constant along an edge). 2.5 is halfway between the nodes at index 2 and 3.
+ *
+ * Routes are created with Map.getRoute() from the path a Searcher returns, and are immutable.
+ */
+public class Route {
+
+    private final int[] nodeIds;
+    private final int[] xs, ys;
+    // travel time and distance from the start to each node
+    private final double[] timeTo, distanceTo;
+    // street name and speed limit of the edge leaving each node
+    private final String[] streetNames;
+    private final float[] speedLimits;
+    // directions for getting from each node to the next one, e.g. "Head NorthEast along Sunset Ave."
+    private final String[] directions;
+
+    // freezes the given path of map. Successive nodes of the path must share an edge
+    // throws IllegalArgumentException if the path is empty
+    // throws NoSuchElementException if two successive nodes of the path don't share an edge
+    Route(Map map, List<LocationNode> path) throws IllegalArgumentException {
+        int size = path.size();
+        if (size == 0) {
+            throw new IllegalArgumentException("Path must have at least one node");
+        }
+        nodeIds = new int[size];
+        xs = new int[size];
+        ys = new int[size];
+        timeTo = new double[size];
+        distanceTo = new double[size];
+        streetNames = new String[size - 1];
+        speedLimits = new float[size - 1];
+        directions = new String[size];
+        int i = 0;
+        LocationNode previous = null;
+        for (LocationNode node : path) {
+            nodeIds[i] = node.getId();
+            xs[i] = node.getX();
+            ys[i] = node.getY();
+            if (previous != null) {
+                Edge edge = map.getEdge(previous, node);
+                timeTo[i] = timeTo[i - 1] + edge.getTime();
+                distanceTo[i] = distanceTo[i - 1] + edge.getDistance();
+                streetNames[i - 1] = edge.getStreetName();
+                speedLimits[i - 1] = edge.getSpeedLimit();
+                directions[i - 1] = MapUtil.getDirections(previous, node, edge);
+            }
+            previous = node;
+            i++;
+        }
+        directions[size - 1] = "Destination Reached";
+    }
+
+    // returns number of nodes on the route
+    public int size() {
+        return nodeIds.length;
+    }
+
+    // returns number of edges on the route
+    public int getEdgeCount() {
+        return nodeIds.length - 1;
+    }
+
+    // returns id of the node at the given index (see Map.getNode(int))
+    public int getNodeId(int index) {
+        return nodeIds[index];
+    }
+
+    public int getX(int index) {
+        return xs[index];
+    }
+
+    public int getY(int index) {
+        return ys[index];
+    }
+
+    // returns x coordinate of the given position on the route (see class comment)
+    // throws IllegalArgumentException if position is not between 0 and size() - 1
+    public double getX(double position) throws IllegalArgumentException {
+        int index = indexOf(position);
+        return index == xs.length - 1 ? xs[index] : xs[index] + (position - index) * (xs[index + 1] - xs[index]);
+    }
+
+    // returns y coordinate of the given position on the route (see class comment)
+    // throws IllegalArgumentException if position is not between 0 and size() - 1
+    public double getY(double position) throws IllegalArgumentException {
+        int index = indexOf(position);
+        return index == ys.length - 1 ? ys[index] : ys[index] + (position - index) * (ys[index + 1] - ys[index]);
+    }
+
+    // returns street name of the edge from the node at index to the next one
+    public String getStreetName(int index) {
+        return streetNames[index];
+    }
+
+    // returns speed limit of the edge from the node at index to the next one
+    public float getSpeedLimit(int index) {
+        return speedLimits[index];
+    }
+
+    // returns time to travel the edge from the node at index to the next one
+    public float getEdgeTime(int index) {
+        return (float) (timeTo[index + 1] - timeTo[index]);
+    }
+
+    // returns length of the edge from the node at index to the next one
+    public float getEdgeDistance(int index) {
+        return (float) (distanceTo[index + 1] - distanceTo[index]);
+    }
+
+    // returns directions for getting from the node at index to the next one, or "Destination Reached" at the last node
+    public String getDirections(int index) {
+        return directions[index];
+    }
+
+    // returns time to travel the whole route
+    public float getTotalTime() {
+        return (float) timeTo[timeTo.length - 1];
+    }
+
+    // returns length of the whole route
+    public float getTotalDistance() {
+        return (float) distanceTo[distanceTo.length - 1];
+    }
+
+    // returns time to travel from the start to the given position
+    // throws IllegalArgumentException if position is not between 0 and size() - 1
+    public float getTimeTravelled(double position) throws IllegalArgumentException {
+        return (float) interpolate(timeTo, position);
+    }
+
+    // returns distance from the start to the given position
+    // throws IllegalArgumentException if position is not between 0 and size() - 1
+    public float getDistanceTravelled(double position) throws IllegalArgumentException {
+        return (float) interpolate(distanceTo, position);
+    }
+
+    // returns time to travel from the given position to the end
+    // throws IllegalArgumentException if position is not between 0 and size() - 1
+    public float getTimeRemaining(double position) throws IllegalArgumentException {
+        return (float) (timeTo[timeTo.length - 1] - interpolate(timeTo, position));
+    }
+
+    // returns distance from the given position to the end
+    // throws IllegalArgumentException if position is not between 0 and size() - 1
+    public float getDistanceRemaining(double position) throws IllegalArgumentException {
+        return (float) (distanceTo[distanceTo.length - 1] - interpolate(distanceTo, position));
+    }
+
+    // returns time to travel from the node at startIndex to the node at endIndex
+    // throws IllegalArgumentException if startIndex > endIndex or either is out of range of the route
+    public float getTime(int startIndex, int endIndex) throws IllegalArgumentException {
+        checkRange(startIndex, endIndex);
+        return (float) (timeTo[endIndex] - timeTo[startIndex]);
+    }
+
+    // returns distance from the node at startIndex to the node at endIndex
+    // throws IllegalArgumentException if startIndex > endIndex or either is out of range of the route
+    public float getDistance(int startIndex, int endIndex) throws IllegalArgumentException {
+        checkRange(startIndex, endIndex);
+        return (float) (distanceTo[endIndex] - distanceTo[startIndex]);
+    }
+
+    // returns the nodes of the route, looked up in map
+    public List<LocationNode> toLocationNodes(Map map) {
+        List<LocationNode> nodes = new ArrayList<>(nodeIds.length);
+        for (int id : nodeIds) {
+            nodes.add(map.getNode(id));
+        }
+        return nodes;
+    }
+
+    // returns the value of the running total at the given position, interpolating within the edge
+    private double interpolate(double[] runningTotal, double position) {
+        int index = indexOf(position);
+        if (index == runningTotal.length - 1) {
+            return runningTotal[index];
+        }
+        return runningTotal[index] + (position - index) * (runningTotal[index + 1] - runningTotal[index]);
+    }
+
+    // returns index of the last node passed at the given position
+    private int indexOf(double position) throws IllegalArgumentException {
+        if (!(position >= 0 && position <= nodeIds.length - 1)) {
+            throw new IllegalArgumentException("Position must be between 0 and " + (nodeIds.length - 1));
+        }
+        return (int) position;
+    }
+
+    private void checkRange(int startIndex, int endIndex) throws IllegalArgumentException {
+        if (startIndex > endIndex) {
+            throw new IllegalArgumentException("StartIndex can't be greater than EndIndex");
+        } else if (startIndex < 0 || endIndex >= nodeIds.length) {
+            throw new IllegalArgumentException("Error: index out of route bounds");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Route(" + nodeIds.length + " nodes, time=" + getTotalTime() + ", distance=" + getTotalDistance() + ")";
+    }
+}
@@ -0,0 +1,220 @@
+package pathfinder;
+
+import searcher.Searcher;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of routes in front of the Searchers of a Map, so that repeated queries between the same addresses
+ * don't rerun the search. Routes are keyed by start address, goal address and cost profile. A profile names the
+ * Searcher that computes its routes (e.g. one using travel time and one using distance); DEFAULT_PROFILE is the
+ * Searcher given to the constructor.
+ *
+ * Each route is stored with the version of the Map it was computed on. Once the Map changes (see Map.getVersion()),
+ * the route is recomputed the next time it is asked for. The cache is split into segments by the hash of the key,
+ * each an LRU list guarded by its own lock, so concurrent lookups rarely wait on each other. Searches run outside
+ * the locks. Returned routes are unmodifiable and shared between callers.
+ */
+public class RouteCache {
+
+    // name of the profile of the Searcher given to the constructor
+    public static final String DEFAULT_PROFILE = "default";
+    // maximum number of segments. Must be a power of two
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Map map;
+    private final ConcurrentHashMap<String, Searcher<LocationNode>> profiles = new ConcurrentHashMap<>();
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder(),
+            invalidations = new LongAdder();
+
+    // creates a cache holding at most capacity routes, computing them with the given Searcher of the map
+    // throws IllegalArgumentException if capacity is not positive
+    public RouteCache(Map map, Searcher<LocationNode> searcher, int capacity) throws IllegalArgumentException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.map = map;
+        profiles.put(DEFAULT_PROFILE, searcher);
+        // spread the capacity over the segments, giving the remainder to the first ones. Small caches get fewer
+        // segments so that every segment can hold at least one route
+        segments = new Segment[Integer.highestOneBit(Math.min(MAX_SEGMENTS, capacity))];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(capacity / segments.length + (i < capacity % segments.length ? 1 : 0));
+        }
+    }
+
+    // registers the Searcher used for routes of the given profile. Routes already cached for the profile are kept
+    public void addProfile(String profile, Searcher<LocationNode> searcher) {
+        profiles.put(profile, searcher);
+    }
+
+    // returns the route between the two addresses using the default profile
+    // throws NoSuchElementException if either address doesn't exist
+    public List<LocationNode> getRoute(String startAddress, String goalAddress) throws NoSuchElementException {
+        return getRoute(startAddress, goalAddress, DEFAULT_PROFILE);
+    }
+
+    // returns the route between the two addresses using the given profile, from the cache if it was computed on the
+    // current version of the map. The route is empty if the goal can't be reached
+    // throws NoSuchElementException if either address or the profile doesn't exist
+    public List<LocationNode> getRoute(String startAddress, String goalAddress, String profile)
+            throws NoSuchElementException {
+        RouteKey key = new RouteKey(startAddress, goalAddress, profile);
+        Segment segment = segments[key.hash & (segments.length - 1)];
+        // read the version before searching, so a route computed while the map changes is never considered current
+        long version = map.getVersion();
+        CachedRoute cached;
+        synchronized (segment) {
+            cached = segment.get(key);
+            if (cached != null && cached.version != version) {
+                segment.remove(key);
+                invalidations.increment();
+                cached = null;
+            }
+        }
+        if (cached != null) {
+            hits.increment();
+            return cached.route;
+        }
+        misses.increment();
+
+        Searcher<LocationNode> searcher = profiles.get(profile);
+        if (searcher == null) {
+            throw new NoSuchElementException("Given profile \"" + profile + "\" does not exist");
+        }
+        LocationNode start = getNode(startAddress), goal = getNode(goalAddress);
+        List<LocationNode> route = Collections.unmodifiableList(searcher.runSearch(start, goal));
+        synchronized (segment) {
+            segment.put(key, new CachedRoute(route, version));
+        }
+        return route;
+    }
+
+    private LocationNode getNode(String address) throws NoSuchElementException {
+        LocationNode node = map.getNode(address);
+        if (node == null) {
+            throw new NoSuchElementException("Given address \"" + address + "\" does not exist");
+        }
+        return node;
+    }
+
+    // removes all routes. The counters are kept
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    // returns number of routes currently cached, including ones computed on an older version of the map
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    // number of lookups answered from the cache
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    // number of lookups that had to run a search, including those whose route had been invalidated
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    // number of routes dropped to make room for new ones
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    // number of routes dropped because the map changed since they were computed
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "RouteCache(size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount() +
+                ", evictions=" + getEvictionCount() + ", invalidations=" + getInvalidationCount() + ")";
+    }
+
+    /**
+     * One segment of the cache: a LinkedHashMap in access order that drops its least recently used route once it
+     * holds more than its capacity. Must only be used while holding its lock.
+     */
+    private final class Segment extends LinkedHashMap<RouteKey, CachedRoute> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(java.util.Map.Entry<RouteKey, CachedRoute> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Key of a cached route. The hash is computed once, as it is needed both to pick a segment and to look the key
+     * up in it.
+     */
+    private static final class RouteKey {
+        final String start, goal, profile;
+        final int hash;
+
+        RouteKey(String start, String goal, String profile) {
+            this.start = start;
+            this.goal = goal;
+            this.profile = profile;
+            int h = (start.hashCode() * 31 + goal.hashCode()) * 31 + profile.hashCode();
+            // spread the high bits into the low ones used to pick a segment
+            hash = h ^ (h >>> 16);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            } else if (!(o instanceof RouteKey)) {
+                return false;
+            }
+            RouteKey other = (RouteKey) o;
+            return hash == other.hash && start.equals(other.start) && goal.equals(other.goal) &&
+                    profile.equals(other.profile);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class CachedRoute {
+        final List<LocationNode> route;
+        final long version;
+
+        CachedRoute(List<LocationNode> route, long version) {
+            this.route = route;
+            this.version = version;
+        }
+    }
+}
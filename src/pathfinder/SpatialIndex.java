@@ -0,0 +1,229 @@
+package pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * Static packed R-tree over a set of axis-aligned boxes with integer coordinates, answering "which boxes overlap this
+ * region" in time proportional to the depth of the tree plus the number of boxes found, however unevenly the boxes
+ * are spread out.
+ *
+ * The tree is bulk-loaded: the boxes are sorted along a Hilbert curve through their centers, packed NODE_SIZE to a
+ * leaf, and each level above packs NODE_SIZE nodes of the level below, up to a single root. Every node is full except
+ * the last one of each level, so the tree is as shallow as it can be, and neighbouring boxes end up in the same
+ * leaves. All levels are stored in flat arrays, leaves first and root last, with no objects per node. The tree can't
+ * be changed once built; a changed set of boxes is indexed by building a new tree.
+ *
+ * A box is given by its inclusive bounds, so a point is a box whose min and max coincide.
+ */
+class SpatialIndex {
+
+    // number of children of every node
+    static final int NODE_SIZE = 16;
+    // number of bits per coordinate of the Hilbert curve. Keeps curve positions below 2^30, so that they can be
+    // packed into the high half of a positive long
+    private static final int HILBERT_BITS = 15;
+
+    private final int numItems;
+    // bounds of every box in the tree. The first numItems are the items, in Hilbert order, followed by the nodes
+    // of each level above them
+    private final int[] minXs, minYs, maxXs, maxYs;
+    // for an item: its index as given to the constructor. For a node: position of its first child
+    private final int[] indices;
+    // position one past the last box of each level, from the leaves up
+    private final int[] levelEnds;
+
+    // indexes numItems boxes, the i-th of which spans (minX[i], minY[i]) to (maxX[i], maxY[i]). The arrays are not
+    // kept
+    SpatialIndex(int[] minX, int[] minY, int[] maxX, int[] maxY, int numItems) {
+        this.numItems = numItems;
+        // count the boxes of every level. The top level holds the root, a single box covering all the others
+        int[] ends = new int[32];
+        int numLevels = 0, total = numItems, levelSize = numItems;
+        ends[numLevels++] = total;
+        while (levelSize > 1) {
+            levelSize = (levelSize + NODE_SIZE - 1) / NODE_SIZE;
+            total += levelSize;
+            ends[numLevels++] = total;
+        }
+        levelEnds = Arrays.copyOf(ends, numLevels);
+        minXs = new int[total];
+        minYs = new int[total];
+        maxXs = new int[total];
+        maxYs = new int[total];
+        indices = new int[total];
+        if (numItems == 0) {
+            return;
+        }
+
+        // sort the items by the Hilbert index of their centers, scaled to the bounds of all of them. The index goes
+        // in the high half of the key so that a plain sort orders by it
+        long boundsMinX = Long.MAX_VALUE, boundsMinY = Long.MAX_VALUE, boundsMaxX = Long.MIN_VALUE,
+                boundsMaxY = Long.MIN_VALUE;
+        for (int i = 0; i < numItems; i++) {
+            boundsMinX = Math.min(boundsMinX, (long) minX[i] + maxX[i]);
+            boundsMinY = Math.min(boundsMinY, (long) minY[i] + maxY[i]);
+            boundsMaxX = Math.max(boundsMaxX, (long) minX[i] + maxX[i]);
+            boundsMaxY = Math.max(boundsMaxY, (long) minY[i] + maxY[i]);
+        }
+        double scaleX = ((1 << HILBERT_BITS) - 1) / (double) Math.max(1, boundsMaxX - boundsMinX);
+        double scaleY = ((1 << HILBERT_BITS) - 1) / (double) Math.max(1, boundsMaxY - boundsMinY);
+        long[] keys = new long[numItems];
+        for (int i = 0; i < numItems; i++) {
+            int hx = (int) ((((long) minX[i] + maxX[i]) - boundsMinX) * scaleX);
+            int hy = (int) ((((long) minY[i] + maxY[i]) - boundsMinY) * scaleY);
+            keys[i] = hilbert(hx, hy) << 32 | i;
+        }
+        Arrays.sort(keys);
+        for (int pos = 0; pos < numItems; pos++) {
+            int item = (int) keys[pos];
+            minXs[pos] = minX[item];
+            minYs[pos] = minY[item];
+            maxXs[pos] = maxX[item];
+            maxYs[pos] = maxY[item];
+            indices[pos] = item;
+        }
+
+        // each node covers a run of NODE_SIZE boxes of the level below
+        int parent = numItems;
+        for (int level = 0; level < levelEnds.length - 1; level++) {
+            int start = level == 0 ? 0 : levelEnds[level - 1];
+            for (int child = start; child < levelEnds[level]; child += NODE_SIZE) {
+                int end = Math.min(child + NODE_SIZE, levelEnds[level]);
+                int nodeMinX = Integer.MAX_VALUE, nodeMinY = Integer.MAX_VALUE;
+                int nodeMaxX = Integer.MIN_VALUE, nodeMaxY = Integer.MIN_VALUE;
+                for (int pos = child; pos < end; pos++) {
+                    nodeMinX = Math.min(nodeMinX, minXs[pos]);
+                    nodeMinY = Math.min(nodeMinY, minYs[pos]);
+                    nodeMaxX = Math.max(nodeMaxX, maxXs[pos]);
+                    nodeMaxY = Math.max(nodeMaxY, maxYs[pos]);
+                }
+                minXs[parent] = nodeMinX;
+                minYs[parent] = nodeMinY;
+                maxXs[parent] = nodeMaxX;
+                maxYs[parent] = nodeMaxY;
+                indices[parent++] = child;
+            }
+        }
+    }
+
+    // adds the index of every box overlapping the region from (x0, y0) to (x1, y1), inclusive, to results. Boxes
+    // touching the region count as overlapping. Results are in no particular order
+    void search(int x0, int y0, int x1, int y1, IntList results) {
+        if (numItems == 0) {
+            return;
+        }
+        // first child and level of the nodes still to visit. Every level visited adds at most NODE_SIZE of them
+        int[] stack = new int[levelEnds.length * NODE_SIZE], stackLevels = new int[stack.length];
+        int stackSize = 0;
+        // start with the root, alone on the top level
+        int level = levelEnds.length - 1;
+        int first = level == 0 ? 0 : levelEnds[level - 1];
+        while (true) {
+            int end = Math.min(first + NODE_SIZE, levelEnds[level]);
+            for (int pos = first; pos < end; pos++) {
+                if (maxXs[pos] < x0 || minXs[pos] > x1 || maxYs[pos] < y0 || minYs[pos] > y1) {
+                    continue;
+                }
+                if (pos < numItems) {
+                    results.add(indices[pos]);
+                } else {
+                    stackLevels[stackSize] = level - 1;
+                    stack[stackSize++] = indices[pos];
+                }
+            }
+            if (stackSize == 0) {
+                return;
+            }
+            first = stack[--stackSize];
+            level = stackLevels[stackSize];
+        }
+    }
+
+    // adds the indices of the boxes nearest to (x, y) to results, nearest first: at most k of them, and none further
+    // than maxDistance. distance gives the exact squared distance to an item, which must be at least the squared
+    // distance to its box. If it is null, the distance to the box is used, which is exact for points
+    void nearest(double x, double y, int k, float maxDistance, ItemDistance distance,
+                 IntList results) {
+        if (numItems == 0 || k <= 0) {
+            return;
+        }
+        // best-first search: the heap holds tree positions keyed by their squared distance. Nodes are keyed by the
+        // distance to their box, a lower bound for everything below them, and items by their exact distance. So once
+        // an item comes off the heap, nothing left in it can be nearer
+        float maxKey = maxDistance * maxDistance;
+        IntMinHeap heap = new IntMinHeap();
+        int root = levelEnds[levelEnds.length - 1] - 1;
+        heap.push(root, root < numItems && distance != null ? distance.distanceSquaredTo(indices[root]) :
+                boxDistanceSquared(root, x, y));
+        int found = 0;
+        while (!heap.isEmpty() && heap.peekKey() <= maxKey) {
+            int pos = heap.pop();
+            if (pos < numItems) {
+                results.add(indices[pos]);
+                if (++found == k) {
+                    return;
+                }
+                continue;
+            }
+            int first = indices[pos];
+            int end = Math.min(first + NODE_SIZE, levelEnds[levelOf(first)]);
+            for (int child = first; child < end; child++) {
+                float key = child < numItems && distance != null ? distance.distanceSquaredTo(indices[child]) :
+                        boxDistanceSquared(child, x, y);
+                if (key <= maxKey) {
+                    heap.push(child, key);
+                }
+            }
+        }
+    }
+
+    // squared distance from (x, y) to the nearest point of the box at the given position, 0 if inside it
+    private float boxDistanceSquared(int pos, double x, double y) {
+        double dx = x < minXs[pos] ? minXs[pos] - x : x > maxXs[pos] ? x - maxXs[pos] : 0;
+        double dy = y < minYs[pos] ? minYs[pos] - y : y > maxYs[pos] ? y - maxYs[pos] : 0;
+        return (float) (dx * dx + dy * dy);
+    }
+
+    // returns the level of the box at the given position
+    private int levelOf(int pos) {
+        int level = 0;
+        while (pos >= levelEnds[level]) {
+            level++;
+        }
+        return level;
+    }
+
+    // returns number of boxes indexed
+    int size() {
+        return numItems;
+    }
+
+    /**
+     * Exact squared distance from a query point to an item, given the item's index.
+     */
+    interface ItemDistance {
+        float distanceSquaredTo(int item);
+    }
+
+    // returns position of (x, y) along a Hilbert curve filling a square of side 2^HILBERT_BITS
+    private static long hilbert(int x, int y) {
+        int n = 1 << HILBERT_BITS;
+        long d = 0;
+        for (int s = n >>> 1; s > 0; s >>>= 1) {
+            int rx = (x & s) != 0 ? 1 : 0;
+            int ry = (y & s) != 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant so that the curve inside it is in standard orientation
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                int swap = x;
+                x = y;
+                y = swap;
+            }
+        }
+        return d;
+    }
+}
@@ -0,0 +1,162 @@
+package pathfinder;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+
+/**
+ * Pre-rendered images of the static content of a Map (background, edges and nodes, as drawn by Map.drawStatic()),
+ * one per square tile and zoom level. Tiles are laid out in the coordinates of their zoom level; at level 0 they line
+ * up with the MapSector grid, the tile at (row, col) covering the same area as MapSector(row, col), and at level z a
+ * tile covers 2^z times as much of the map. A frame is then drawn by copying the few tiles overlapping the screen
+ * instead of drawing every node and edge on it again, and only moving content (the path, the pointer) has to be drawn
+ * on top.
+ *
+ * Tiles are rendered when first needed and kept in an LRU list of at most capacity tiles, so memory stays bounded
+ * however large the map is. Once nodes or edges are added, every tile is dropped and rendered again as needed. Any
+ * other change (see Map.getVersion()), such as a new speed limit, only drops the tiles above zoom level 0: level 0
+ * draws every road the same whatever its speed, while the zoomed out levels choose their roads by speed. A TileCache
+ * is meant to be used by the thread that paints, and is not thread-safe.
+ */
+public class TileCache {
+
+    private final Map map;
+    // width and height of every tile
+    private final int tileWidth;
+    private final int capacity;
+    // tiles keyed by zoom level, row and column (see key()), least recently used first
+    private final LinkedHashMap<Long, BufferedImage> tiles;
+    // version of the map the tiles were rendered from
+    private long mapVersion;
+    // number of nodes and edges of the map the level 0 tiles were rendered from
+    private int nodeCount, edgeCount;
+    private long hits, misses;
+
+    // creates a cache of tiles of MapSector.WIDTH, holding at most capacity of them
+    // throws IllegalArgumentException if capacity is not positive
+    public TileCache(Map map, int capacity) throws IllegalArgumentException {
+        this(map, MapSector.WIDTH, capacity);
+    }
+
+    // creates a cache of square tiles of the given width, holding at most capacity of them
+    // throws IllegalArgumentException if tileWidth or capacity is not positive
+    public TileCache(Map map, int tileWidth, int capacity) throws IllegalArgumentException {
+        if (tileWidth <= 0) {
+            throw new IllegalArgumentException("Tile width must be positive");
+        } else if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.map = map;
+        this.tileWidth = tileWidth;
+        this.capacity = capacity;
+        tiles = new LinkedHashMap<Long, BufferedImage>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(java.util.Map.Entry<Long, BufferedImage> eldest) {
+                return size() > TileCache.this.capacity;
+            }
+        };
+        mapVersion = map.getVersion();
+        nodeCount = map.getNodeCount();
+        edgeCount = map.getEdgeCount();
+    }
+
+    // returns number of tiles of MapSector.WIDTH needed to cover a screen of the given size, see
+    // getCapacityFor(int, int, int)
+    public static int getCapacityFor(int screenWidth, int screenHeight) {
+        return getCapacityFor(screenWidth, screenHeight, MapSector.WIDTH);
+    }
+
+    // returns number of tiles needed to cover a screen of the given size at any scroll position, plus a ring of
+    // tiles around it, so that scrolling doesn't render tiles again right after they were evicted
+    public static int getCapacityFor(int screenWidth, int screenHeight, int tileWidth) {
+        return (screenWidth / tileWidth + 4) * (screenHeight / tileWidth + 4);
+    }
+
+    // draws the static content of the map within the clip, translated so that the clip's top-left is at (0,0), just
+    // like Map.drawStatic(). Renders any tiles that aren't cached
+    public void draw(Graphics drawFrame, Rect clip) {
+        draw(drawFrame, clip, 0);
+    }
+
+    // same as draw(Graphics, Rect), at the given zoom level. The clip is in the zoom level's coordinates, as for
+    // Map.drawStatic(Graphics, Rect, int)
+    // throws IllegalArgumentException if zoomLevel is not between 0 and Map.MAX_ZOOM_LEVEL
+    public void draw(Graphics drawFrame, Rect clip, int zoomLevel) throws IllegalArgumentException {
+        if (zoomLevel < 0 || zoomLevel > Map.MAX_ZOOM_LEVEL) {
+            throw new IllegalArgumentException("Zoom level must be between 0 and " + Map.MAX_ZOOM_LEVEL);
+        }
+        if (map.getVersion() != mapVersion) {
+            mapVersion = map.getVersion();
+            if (map.getNodeCount() != nodeCount || map.getEdgeCount() != edgeCount) {
+                tiles.clear();
+                nodeCount = map.getNodeCount();
+                edgeCount = map.getEdgeCount();
+            } else {
+                tiles.keySet().removeIf(key -> key >>> 60 != 0);
+            }
+        }
+        int firstRow = Math.floorDiv(clip.getY0(), tileWidth), lastRow = Math.floorDiv(clip.getY1() - 1, tileWidth);
+        int firstCol = Math.floorDiv(clip.getX0(), tileWidth), lastCol = Math.floorDiv(clip.getX1() - 1, tileWidth);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                drawFrame.drawImage(getTile(zoomLevel, row, col), col * tileWidth - clip.getX0(),
+                        row * tileWidth - clip.getY0(), null);
+            }
+        }
+    }
+
+    // returns the tile at the given zoom level, row and column, rendering it if it isn't cached
+    private BufferedImage getTile(int zoomLevel, int row, int col) {
+        Long key = key(zoomLevel, row, col);
+        BufferedImage tile = tiles.get(key);
+        if (tile != null) {
+            hits++;
+            return tile;
+        }
+        misses++;
+        tile = new BufferedImage(tileWidth, tileWidth, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = tile.createGraphics();
+        map.drawStatic(graphics, new Rect(col * tileWidth, row * tileWidth, tileWidth, tileWidth), zoomLevel);
+        graphics.dispose();
+        tiles.put(key, tile);
+        return tile;
+    }
+
+    // packs the zoom level into the top 4 bits and the row and column into 30 bits each
+    private static long key(int zoomLevel, int row, int col) {
+        return (long) zoomLevel << 60 | (row & 0x3FFFFFFFL) << 30 | (col & 0x3FFFFFFFL);
+    }
+
+    // drops every tile
+    public void clear() {
+        tiles.clear();
+    }
+
+    // returns number of tiles cached
+    public int size() {
+        return tiles.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getTileWidth() {
+        return tileWidth;
+    }
+
+    // returns number of tiles drawn from the cache
+    public long getHitCount() {
+        return hits;
+    }
+
+    // returns number of tiles that had to be rendered
+    public long getMissCount() {
+        return misses;
+    }
+
+    @Override
+    public String toString() {
+        return "TileCache(tiles=" + tiles.size() + "/" + capacity + ", hits=" + hits + ", misses=" + misses + ")";
+    }
+}
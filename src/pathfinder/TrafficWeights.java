@@ -0,0 +1,211 @@
+package pathfinder;
+
+import searcher.IntSearchFramework;
+import searcher.IntSearcher;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Live travel times for the edges of a CompactMap, for applying traffic updates while queries keep running. Times
+ * are kept in a primitive array indexed by edge id (the CompactMap's directed edge numbering), starting out as the
+ * CompactMap's own times.
+ *
+ * Readers never lock. They take a Snapshot, an immutable IntSearchFramework with the graph's topology and the times
+ * as of one version, and search it; every edge cost a query sees comes from the same version. Writers copy on
+ * write: the times are split into blocks of BLOCK_SIZE edges, and an update copies only the blocks it touches (plus
+ * the small table of blocks) before publishing the new snapshot with a single volatile write. Writers are serialized
+ * with each other but never wait for readers, and readers never wait for writers. Batching many changes into one
+ * update() publishes them together for the cost of a single copy.
+ *
+ * The snapshot uses the CompactMap's heuristic. Landmark bounds computed on the base times are only admissible while
+ * no edge is faster than its base time, so a snapshot in which any edge is (traffic clearing up, a raised speed
+ * limit) falls back to the straight-line distance until those edges are slowed down again or reset() is called.
+ */
+public class TrafficWeights {
+
+    // number of edges per copy-on-write block. Must be a power of two
+    private static final int BLOCK_SIZE = 1 << 12;
+    private static final int BLOCK_SHIFT = Integer.numberOfTrailingZeros(BLOCK_SIZE);
+
+    private final CompactMap graph;
+    // searcher shared by the queries run through runSearch(). Its workspaces are sized to the graph
+    private final IntSearcher searcher;
+    private volatile Snapshot current;
+
+    public TrafficWeights(CompactMap graph) {
+        this.graph = graph;
+        searcher = new IntSearcher(graph);
+        current = new Snapshot(graph, baseBlocks(), 0, 0);
+    }
+
+    // copies the graph's own times into blocks
+    private float[][] baseBlocks() {
+        int numEdges = graph.getEdgeCount();
+        float[][] blocks = new float[(numEdges + BLOCK_SIZE - 1) >>> BLOCK_SHIFT][];
+        for (int block = 0; block < blocks.length; block++) {
+            int first = block << BLOCK_SHIFT;
+            blocks[block] = new float[Math.min(BLOCK_SIZE, numEdges - first)];
+            for (int i = 0; i < blocks[block].length; i++) {
+                blocks[block][i] = graph.getEdgeTime(first + i);
+            }
+        }
+        return blocks;
+    }
+
+    // returns the current times. The snapshot never changes, so a query should take one and use it throughout
+    public Snapshot snapshot() {
+        return current;
+    }
+
+    // returns ids of the nodes on the fastest path from start to goal under the current times, empty if there is none
+    public int[] runSearch(int start, int goal) {
+        return searcher.runSearch(current, start, goal);
+    }
+
+    // sets the travel time of a single directed edge
+    // throws IndexOutOfBoundsException if there is no such edge
+    // throws IllegalArgumentException if time is negative or NaN
+    public void setTime(int edge, float time) throws IndexOutOfBoundsException, IllegalArgumentException {
+        update(new int[] {edge}, new float[] {time});
+    }
+
+    // sets the speed limit of the edge between the two nodes in both directions, so that its travel time becomes its
+    // length divided by speedLimit
+    // throws NoSuchElementException if the nodes aren't connected
+    // throws IllegalArgumentException if speedLimit is not positive
+    public void setSpeedLimit(int node1, int node2, float speedLimit)
+            throws NoSuchElementException, IllegalArgumentException {
+        if (!(speedLimit > 0)) {
+            throw new IllegalArgumentException("Speed limit must be positive");
+        }
+        int forward = graph.findEdge(node1, node2), backward = graph.findEdge(node2, node1);
+        if (forward < 0 || backward < 0) {
+            throw new NoSuchElementException("No edge between nodes " + node1 + " and " + node2);
+        }
+        float time = graph.getEdgeDistance(forward) / speedLimit;
+        update(new int[] {forward, backward}, new float[] {time, time});
+    }
+
+    // same as setSpeedLimit(int, int, float), identifying the nodes by address
+    // throws NoSuchElementException if either address doesn't exist or the nodes aren't connected
+    // throws IllegalArgumentException if speedLimit is not positive
+    public void setSpeedLimit(String address1, String address2, float speedLimit)
+            throws NoSuchElementException, IllegalArgumentException {
+        setSpeedLimit(getId(address1), getId(address2), speedLimit);
+    }
+
+    private int getId(String address) throws NoSuchElementException {
+        int id = graph.getId(address);
+        if (id < 0) {
+            throw new NoSuchElementException("Given address \"" + address + "\" does not exist");
+        }
+        return id;
+    }
+
+    // sets the travel time of every edge in edges to the time at the same index, and publishes all of them as one new
+    // version. If an edge is listed more than once, the last time wins
+    // throws IndexOutOfBoundsException if there is no such edge
+    // throws IllegalArgumentException if the arrays differ in length or a time is negative or NaN
+    public synchronized void update(int[] edges, float[] times)
+            throws IndexOutOfBoundsException, IllegalArgumentException {
+        if (edges.length != times.length) {
+            throw new IllegalArgumentException("Got " + edges.length + " edges but " + times.length + " times");
+        }
+        for (int i = 0; i < edges.length; i++) {
+            if (edges[i] < 0 || edges[i] >= graph.getEdgeCount()) {
+                throw new IndexOutOfBoundsException("No edge with id " + edges[i]);
+            } else if (!(times[i] >= 0)) {
+                throw new IllegalArgumentException("Invalid time " + times[i] + " for edge " + edges[i]);
+            }
+        }
+        Snapshot old = current;
+        float[][] blocks = old.blocks.clone();
+        int fasterEdges = old.fasterEdges;
+        for (int i = 0; i < edges.length; i++) {
+            int block = edges[i] >>> BLOCK_SHIFT, index = edges[i] & (BLOCK_SIZE - 1);
+            // copy each block once, the first time it is written to
+            if (blocks[block] == old.blocks[block]) {
+                blocks[block] = blocks[block].clone();
+            }
+            // keep count of the edges faster than their base time, which the landmark bounds don't allow for
+            float base = graph.getEdgeTime(edges[i]);
+            if (blocks[block][index] < base) {
+                fasterEdges--;
+            }
+            if (times[i] < base) {
+                fasterEdges++;
+            }
+            blocks[block][index] = times[i];
+        }
+        current = new Snapshot(graph, blocks, old.version + 1, fasterEdges);
+    }
+
+    // puts every edge back to the CompactMap's own time, as a new version
+    public synchronized void reset() {
+        current = new Snapshot(graph, baseBlocks(), current.version + 1, 0);
+    }
+
+    // returns the version of the current times. Starts at 0 and goes up by one with every update
+    public long getVersion() {
+        return current.version;
+    }
+
+    public CompactMap getGraph() {
+        return graph;
+    }
+
+    /**
+     * The travel times of one version, along with the topology of the graph. Immutable, so any number of threads can
+     * search it at once.
+     */
+    public static final class Snapshot implements IntSearchFramework {
+
+        private final CompactMap graph;
+        private final float[][] blocks;
+        private final long version;
+        // number of edges faster than their base time
+        private final int fasterEdges;
+
+        private Snapshot(CompactMap graph, float[][] blocks, long version, int fasterEdges) {
+            this.graph = graph;
+            this.blocks = blocks;
+            this.version = version;
+            this.fasterEdges = fasterEdges;
+        }
+
+        @Override
+        public int getNodeCount() {
+            return graph.getNodeCount();
+        }
+
+        @Override
+        public int getFirstEdge(int node) {
+            return graph.getFirstEdge(node);
+        }
+
+        @Override
+        public int getEdgeTarget(int edge) {
+            return graph.getEdgeTarget(edge);
+        }
+
+        @Override // edge cost is the travel time as of this version
+        public float getEdgeCost(int edge) {
+            return blocks[edge >>> BLOCK_SHIFT][edge & (BLOCK_SIZE - 1)];
+        }
+
+        @Override // the CompactMap's heuristic, or straight-line distance if any edge is faster than its base time
+        public float getHeuristic(int node, int goal) {
+            return fasterEdges == 0 ? graph.getHeuristic(node, goal) : graph.getStraightDistance(node, goal);
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        // returns number of edges faster than their base time. While there are any, the CompactMap's landmarks
+        // aren't used for the heuristic
+        public int getFasterEdgeCount() {
+            return fasterEdges;
+        }
+    }
+}
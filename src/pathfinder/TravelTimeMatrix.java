@@ -0,0 +1,245 @@
+package pathfinder;
+
+import searcher.IntSearchFramework;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Travel times from every one of a list of sources to every one of a list of targets, stored as a dense row-major
+ * float matrix: the time from source i to target j is at index i * getColumnCount() + j. Targets that can't be
+ * reached get Float.POSITIVE_INFINITY.
+ *
+ * There are two ways to compute a matrix:
+ * - On any IntSearchFramework, with one Dijkstra search per source. Each search grows a single shortest path tree
+ *   until every target has been settled, so a row costs about as much as one query to the farthest target. Rows
+ *   are computed in parallel.
+ * - On a ContractionHierarchy, with the bucket algorithm. An upward search from every target leaves the target's
+ *   distance in a bucket at each node it settles. An upward search from every source then reads the buckets of the
+ *   nodes it settles: source and target meet at the highest node of the fastest path between them. The upward
+ *   searches only cover a few hundred nodes each, so this is much faster for large matrices. Both sets of searches
+ *   run in parallel.
+ * Parallel work runs on the common ForkJoinPool.
+ */
+public class TravelTimeMatrix {
+
+    private final int[] sources, targets;
+    private final float[] times;
+
+    private TravelTimeMatrix(int[] sources, int[] targets, float[] times) {
+        this.sources = sources;
+        this.targets = targets;
+        this.times = times;
+    }
+
+    // computes the travel times between the given nodes of map, using one Dijkstra search per source. The map is
+    // converted to a CompactMap first; callers computing several matrices on the same map should convert it once
+    // and use compute(IntSearchFramework, int[], int[])
+    public static TravelTimeMatrix compute(Map map, List<LocationNode> sources, List<LocationNode> targets) {
+        return compute(CompactMap.fromMap(map), toIds(sources), toIds(targets));
+    }
+
+    // computes the travel times between the given nodes of graph, using one Dijkstra search per source
+    // throws IndexOutOfBoundsException if a source or target isn't a node of the graph
+    public static TravelTimeMatrix compute(IntSearchFramework graph, int[] sources, int[] targets)
+            throws IndexOutOfBoundsException {
+        checkNodes(graph.getNodeCount(), sources);
+        checkNodes(graph.getNodeCount(), targets);
+        float[] times = new float[sources.length * targets.length];
+        // every thread of the pool reuses one workspace for all the rows it computes
+        ThreadLocal<TreeWorkspace> workspaces = ThreadLocal.withInitial(() -> new TreeWorkspace(graph.getNodeCount()));
+        IntStream.range(0, sources.length).parallel().forEach(row ->
+                growTree(graph, sources[row], targets, workspaces.get(), times, row * targets.length));
+        return new TravelTimeMatrix(sources.clone(), targets.clone(), times);
+    }
+
+    // computes the travel times between the given nodes of the hierarchy's graph with the bucket algorithm
+    // throws IndexOutOfBoundsException if a source or target isn't a node of the graph
+    public static TravelTimeMatrix compute(ContractionHierarchy hierarchy, int[] sources, int[] targets)
+            throws IndexOutOfBoundsException {
+        int numNodes = hierarchy.getGraph().getNodeCount();
+        checkNodes(numNodes, sources);
+        checkNodes(numNodes, targets);
+        // search space of every target. Edges can be travelled both ways, so searching upward from a target
+        // gives the distances from the nodes it settles to the target
+        int[][] spaceNodes = new int[targets.length][];
+        float[][] spaceDistances = new float[targets.length][];
+        IntStream.range(0, targets.length).parallel().forEach(column -> {
+            IntList nodes = new IntList();
+            spaceDistances[column] = hierarchy.searchUpward(targets[column], nodes);
+            spaceNodes[column] = nodes.toArray();
+        });
+
+        // sort the search spaces into buckets by node: the bucket of node n holds (column, distance) for every target
+        // whose search settled n, at bucketOffsets[n] .. bucketOffsets[n + 1] - 1
+        int[] bucketOffsets = new int[numNodes + 1];
+        for (int[] nodes : spaceNodes) {
+            for (int node : nodes) {
+                bucketOffsets[node + 1]++;
+            }
+        }
+        for (int node = 0; node < numNodes; node++) {
+            bucketOffsets[node + 1] += bucketOffsets[node];
+        }
+        int[] bucketColumns = new int[bucketOffsets[numNodes]];
+        float[] bucketDistances = new float[bucketOffsets[numNodes]];
+        int[] next = Arrays.copyOf(bucketOffsets, numNodes);
+        for (int column = 0; column < targets.length; column++) {
+            for (int i = 0; i < spaceNodes[column].length; i++) {
+                int index = next[spaceNodes[column][i]]++;
+                bucketColumns[index] = column;
+                bucketDistances[index] = spaceDistances[column][i];
+            }
+        }
+
+        float[] times = new float[sources.length * targets.length];
+        Arrays.fill(times, Float.POSITIVE_INFINITY);
+        IntStream.range(0, sources.length).parallel().forEach(row -> {
+            IntList nodes = new IntList();
+            float[] distances = hierarchy.searchUpward(sources[row], nodes);
+            int base = row * targets.length;
+            for (int i = 0; i < nodes.size(); i++) {
+                int node = nodes.get(i);
+                for (int entry = bucketOffsets[node]; entry < bucketOffsets[node + 1]; entry++) {
+                    float time = distances[i] + bucketDistances[entry];
+                    if (time < times[base + bucketColumns[entry]]) {
+                        times[base + bucketColumns[entry]] = time;
+                    }
+                }
+            }
+        });
+        return new TravelTimeMatrix(sources.clone(), targets.clone(), times);
+    }
+
+    // returns the travel times from source to each of the targets, in the same order, using a single Dijkstra search
+    // throws IndexOutOfBoundsException if source or a target isn't a node of the graph
+    public static float[] oneToMany(IntSearchFramework graph, int source, int[] targets)
+            throws IndexOutOfBoundsException {
+        checkNodes(graph.getNodeCount(), new int[] {source});
+        checkNodes(graph.getNodeCount(), targets);
+        float[] times = new float[targets.length];
+        growTree(graph, source, targets, new TreeWorkspace(graph.getNodeCount()), times, 0);
+        return times;
+    }
+
+    // runs Dijkstra from source until every target has been settled or the graph is exhausted, and writes the time to
+    // each target into times, starting at offset
+    private static void growTree(IntSearchFramework graph, int source, int[] targets, TreeWorkspace workspace,
+                                 float[] times, int offset) {
+        workspace.reset();
+        // mark the targets, counting each node only once even if it is listed several times
+        int remaining = 0;
+        for (int target : targets) {
+            if (workspace.targetStamps[target] != workspace.generation) {
+                workspace.targetStamps[target] = workspace.generation;
+                remaining++;
+            }
+        }
+        workspace.setDistance(source, 0);
+        workspace.heap.push(source, 0);
+        while (remaining > 0 && !workspace.heap.isEmpty()) {
+            float key = workspace.heap.peekKey();
+            int node = workspace.heap.pop();
+            if (key > workspace.getDistance(node)) {
+                continue; // stale entry
+            }
+            if (workspace.targetStamps[node] == workspace.generation) {
+                // settled for good. Clearing the mark makes sure it is counted once
+                workspace.targetStamps[node] = 0;
+                remaining--;
+            }
+            for (int edge = graph.getFirstEdge(node); edge < graph.getFirstEdge(node + 1); edge++) {
+                int target = graph.getEdgeTarget(edge);
+                float distance = key + graph.getEdgeCost(edge);
+                if (distance < workspace.getDistance(target)) {
+                    workspace.setDistance(target, distance);
+                    workspace.heap.push(target, distance);
+                }
+            }
+        }
+        // targets never settled are unreachable. Their distance is still infinite
+        for (int i = 0; i < targets.length; i++) {
+            times[offset + i] = workspace.getDistance(targets[i]);
+        }
+    }
+
+    private static int[] toIds(List<LocationNode> nodes) {
+        int[] ids = new int[nodes.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = nodes.get(i).getId();
+        }
+        return ids;
+    }
+
+    private static void checkNodes(int numNodes, int[] nodes) throws IndexOutOfBoundsException {
+        for (int node : nodes) {
+            if (node < 0 || node >= numNodes) {
+                throw new IndexOutOfBoundsException("No node with id " + node);
+            }
+        }
+    }
+
+    // returns travel time from the source in the given row to the target in the given column
+    public float get(int row, int column) {
+        return times[row * targets.length + column];
+    }
+
+    public int getRowCount() {
+        return sources.length;
+    }
+
+    public int getColumnCount() {
+        return targets.length;
+    }
+
+    // returns node id of the source in the given row
+    public int getSource(int row) {
+        return sources[row];
+    }
+
+    // returns node id of the target in the given column
+    public int getTarget(int column) {
+        return targets[column];
+    }
+
+    // returns the whole matrix in row-major order. The array is not copied
+    public float[] getTimes() {
+        return times;
+    }
+
+    /**
+     * Distances and target marks used by one thread's Dijkstra searches. Entries are only valid if their stamp
+     * equals the current generation, so the arrays never need to be cleared between searches.
+     */
+    private static final class TreeWorkspace {
+        final float[] distances;
+        final int[] stamps, targetStamps;
+        final IntMinHeap heap = new IntMinHeap();
+        int generation;
+
+        TreeWorkspace(int numNodes) {
+            distances = new float[numNodes];
+            stamps = new int[numNodes];
+            targetStamps = new int[numNodes];
+        }
+
+        void reset() {
+            heap.clear();
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                Arrays.fill(targetStamps, 0);
+                generation = 1;
+            }
+        }
+
+        float getDistance(int node) {
+            return stamps[node] == generation ? distances[node] : Float.POSITIVE_INFINITY;
+        }
+
+        void setDistance(int node, float distance) {
+            stamps[node] = generation;
+            distances[node] = distance;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package searcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many queries in parallel on a fixed pool of worker threads, all sharing one Searcher and therefore one graph.
+ * Every worker keeps its own SearchWorkspace, so no search state is shared between threads. The SearchFramework must
+ * be safe for concurrent reads and must not be modified while a batch is running.
+ *
+ * Close the BatchSearcher to shut down its worker threads once it is no longer needed.
+ */
+public class BatchSearcher<T extends Node> implements AutoCloseable {
+
+    // number of chunks handed to each worker per batch. More than one keeps workers busy when queries vary in cost
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final Searcher<T> searcher;
+    private final ExecutorService executor;
+    private final int numThreads;
+
+    // creates a BatchSearcher with one worker per available processor
+    public BatchSearcher(Searcher<T> searcher) {
+        this(searcher, Runtime.getRuntime().availableProcessors());
+    }
+
+    // creates a BatchSearcher with the given number of workers
+    public BatchSearcher(Searcher<T> searcher, int numThreads) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("Must have at least one worker thread");
+        }
+        this.searcher = searcher;
+        this.numThreads = numThreads;
+        executor = Executors.newFixedThreadPool(numThreads, runnable -> {
+            Thread thread = new Thread(runnable, "BatchSearcher-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // runs every query and returns the resulting paths in the same order as the queries. A path is empty if no
+    // solution was found for its query. Blocks until the whole batch is done
+    public List<List<T>> runSearches(List<SearchQuery<T>> queries) {
+        int numChunks = Math.min(queries.size(), numThreads * CHUNKS_PER_THREAD);
+        List<Future<List<List<T>>>> chunks = new ArrayList<>(numChunks);
+        for (int i = 0; i < numChunks; i++) {
+            List<SearchQuery<T>> chunk = queries.subList(
+                    (int) ((long) queries.size() * i / numChunks), (int) ((long) queries.size() * (i + 1) / numChunks));
+            chunks.add(executor.submit(() -> {
+                List<List<T>> paths = new ArrayList<>(chunk.size());
+                for (SearchQuery<T> query : chunk) {
+                    paths.add(searcher.runSearch(query.getStart(), query.getGoal()));
+                }
+                return paths;
+            }));
+        }
+        List<List<T>> results = new ArrayList<>(queries.size());
+        try {
+            for (Future<List<List<T>>> chunk : chunks) {
+                results.addAll(chunk.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for batch to finish", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Search failed", e.getCause());
+        }
+        return results;
+    }
+
+    public Searcher<T> getSearcher() {
+        return searcher;
+    }
+
+    // stops the worker threads. Batches already running are allowed to finish
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,149 @@
+package searcher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bidirectional variant of the Searcher. Runs one A* search forward from the start node and one backward from the
+ * goal node, always expanding the side with the smaller open set, and stops once the two frontiers have met and no
+ * cheaper connection can exist.
+ *
+ * Both searches use the average of the two heuristics as their potential: the forward search is guided by
+ * pf(v) = (h(v, goal) - h(v, start)) / 2 and the backward search by -pf(v). These potentials are consistent for
+ * both directions whenever the heuristic is, which lets the search stop as soon as the smallest forward key plus
+ * the smallest backward key reaches the cost of the best path found, while still returning an optimal path.
+ *
+ * The backward search walks edges in reverse using SearchFramework.getPredecessors(). The heuristic must be a lower
+ * bound in both directions, i.e. getHeuristic(v, start) must not overestimate the cost from start to v.
+ */
+public class BidirectionalSearcher<T extends Node> {
+
+    // provides "context" to the nodes the Searcher is traversing
+    private final SearchFramework<T> searchContext;
+    // type of open set used by both directions
+    private final OpenSetType openSetType;
+    // forward and backward workspaces of the calling thread
+    private final ThreadLocal<Workspaces<T>> workspaces;
+
+    // creates a BidirectionalSearcher using indexed binary heaps for its open sets
+    public BidirectionalSearcher(SearchFramework<T> searchContext) {
+        this(searchContext, OpenSetType.BINARY_HEAP);
+    }
+
+    // creates a BidirectionalSearcher using the given type of open set
+    public BidirectionalSearcher(SearchFramework<T> searchContext, OpenSetType openSetType) {
+        this.searchContext = searchContext;
+        this.openSetType = openSetType;
+        workspaces = ThreadLocal.withInitial(() -> new Workspaces<>(openSetType));
+    }
+
+    // runs search between startNode and goalNode. Returns a List of successive nodes, empty if no solution found
+    public List<T> runSearch(T startNode, T goalNode) {
+        Workspaces<T> both = workspaces.get();
+        SearchWorkspace<T> forward = both.forward, backward = both.backward;
+        forward.reset();
+        backward.reset();
+
+        SearchWorkspace.NodeRecord<T> start = forward.getRecord(startNode);
+        start.g = 0;
+        forward.openSet.push(start, potential(startNode, startNode, goalNode));
+        SearchWorkspace.NodeRecord<T> goal = backward.getRecord(goalNode);
+        goal.g = 0;
+        backward.openSet.push(goal, -potential(goalNode, startNode, goalNode));
+
+        // cost of the best path found so far and the node at which its two halves meet
+        float bestCost = Float.POSITIVE_INFINITY;
+        T meetingNode = null;
+        if (startNode.equals(goalNode)) {
+            bestCost = 0;
+            meetingNode = startNode;
+        }
+
+        while (!forward.openSet.isEmpty() && !backward.openSet.isEmpty()) {
+            // no path through an unexpanded node can beat bestCost any more
+            if (forward.openSet.peekKey() + backward.openSet.peekKey() >= bestCost) {
+                break;
+            }
+            boolean expandForward = forward.openSet.size() <= backward.openSet.size();
+            SearchWorkspace<T> own = expandForward ? forward : backward;
+            SearchWorkspace<T> other = expandForward ? backward : forward;
+            SearchWorkspace.NodeRecord<T> current = own.openSet.pop();
+            if (current == null) { // only stale entries were left
+                continue;
+            }
+            current.closed = true;
+            List<T> neighbors = expandForward ?
+                    searchContext.getNeighbors(current.node) : searchContext.getPredecessors(current.node);
+            for (T neighbor : neighbors) {
+                SearchWorkspace.NodeRecord<T> next = own.getRecord(neighbor);
+                if (next.closed) {
+                    continue;
+                }
+                float g = current.g + (expandForward ?
+                        searchContext.getEdgeCost(current.node, neighbor) :
+                        searchContext.getEdgeCost(neighbor, current.node));
+                if (g < next.g) {
+                    next.g = g;
+                    next.parent = current;
+                    float p = potential(neighbor, startNode, goalNode);
+                    own.openSet.push(next, g + (expandForward ? p : -p));
+                    // check whether this completes a cheaper path through the other search's tree
+                    SearchWorkspace.NodeRecord<T> opposite = other.records.get(neighbor);
+                    if (opposite != null && g + opposite.g < bestCost) {
+                        bestCost = g + opposite.g;
+                        meetingNode = neighbor;
+                    }
+                }
+            }
+        }
+        return meetingNode == null ? new ArrayList<>() : joinPaths(meetingNode, forward, backward);
+    }
+
+    // forward potential of node: the average of the heuristic towards the goal and the negated heuristic towards
+    // the start
+    private float potential(T node, T startNode, T goalNode) {
+        return (searchContext.getHeuristic(node, goalNode) - searchContext.getHeuristic(node, startNode)) / 2;
+    }
+
+    // returns the forward path from the start to meetingNode followed by the backward path from meetingNode to the
+    // goal
+    private List<T> joinPaths(T meetingNode, SearchWorkspace<T> forward, SearchWorkspace<T> backward) {
+        ArrayList<T> buffer = forward.pathBuffer;
+        for (SearchWorkspace.NodeRecord<T> record = forward.records.get(meetingNode); record != null;
+             record = record.parent) {
+            buffer.add(record.node);
+        }
+        List<T> path = new ArrayList<>(buffer.size());
+        for (int i = buffer.size() - 1; i >= 0; i--) {
+            path.add(buffer.get(i));
+        }
+        buffer.clear();
+        SearchWorkspace.NodeRecord<T> meeting = backward.records.get(meetingNode);
+        for (SearchWorkspace.NodeRecord<T> record = meeting.parent; record != null; record = record.parent) {
+            path.add(record.node);
+        }
+        return path;
+    }
+
+    // returns counters describing the last query run by the calling thread, summed over both directions
+    public SearchStats getLastStats() {
+        Workspaces<T> both = workspaces.get();
+        return new SearchStats(openSetType, both.forward.openSet, both.backward.openSet);
+    }
+
+    public OpenSetType getOpenSetType() {
+        return openSetType;
+    }
+
+    /**
+     * The pair of workspaces used by one thread.
+     */
+    private static final class Workspaces<T extends Node> {
+        final SearchWorkspace<T> forward, backward;
+
+        Workspaces(OpenSetType openSetType) {
+            forward = new SearchWorkspace<>(openSetType);
+            backward = new SearchWorkspace<>(openSetType);
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package searcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Implements D* Lite, an incremental search that keeps its results between queries. When edge costs change, only
+ * the part of the search affected by the change is repaired, instead of searching again from scratch. The start may
+ * also move along the path (e.g. as a vehicle drives it) without losing any of the search.
+ *
+ * The search runs backwards from the goal. Every node reached has a g-value (its cost to the goal as of the last
+ * expansion) and an rhs-value (a one-step lookahead: the cheapest cost through any of its successors). A node whose
+ * two values differ is inconsistent and sits in the priority queue. computePath() expands inconsistent nodes until
+ * the start is consistent and nothing in the queue could still improve it (nodes whose key ties with the start's are
+ * expanded too). After an edge cost change,
+ * updateEdge() recomputes the rhs-value of the edge's source, so the next computePath() only expands nodes whose
+ * cost to the goal has actually changed.
+ *
+ * Since the search runs from the goal, the heuristic is evaluated as getHeuristic(node, start) to estimate the cost
+ * from the start to node. This is only admissible if costs are symmetric, as they are for an undirected graph.
+ * If the heuristic itself changes (see SearchFramework.getHeuristicSource(), e.g. a Map dropping its landmarks), the
+ * keys in the queue no longer bound anything, so the next computePath() recomputes all of them first. Predecessors are taken from getPredecessors(). An IncrementalSearcher is bound to one goal and is not thread-safe.
+ */
+public class IncrementalSearcher<T extends Node> {
+
+    // relative difference up to which a key counts as equal to the start's. A heuristic that is exact along a path
+    // makes the keys of the nodes on it tie with the start's, and rounding must not end the search before they have
+    // been expanded
+    private static final float KEY_TOLERANCE = 1e-5f;
+
+    private final SearchFramework<T> searchContext;
+    private final T goal;
+    // start of the path. Moves as the path is travelled
+    private T start;
+    // key modifier: sum of the heuristic distances the start has moved. Keeps old keys valid lower bounds
+    private float keyModifier;
+    // what the heuristic was computed from when the keys in the queue were
+    private Object heuristicSource;
+    // state of every node reached so far, kept between queries
+    private final HashMap<T, Record<T>> records = new HashMap<>();
+    private final Queue<T> queue = new Queue<>();
+    // number of nodes expanded by the last computePath()
+    private int lastExpansions;
+
+    // creates a searcher for paths from start to goal. Nothing is searched until computePath() is called
+    public IncrementalSearcher(SearchFramework<T> searchContext, T start, T goal) {
+        this.searchContext = searchContext;
+        this.start = start;
+        this.goal = goal;
+        heuristicSource = searchContext.getHeuristicSource();
+        Record<T> goalRecord = getRecord(goal);
+        goalRecord.rhs = 0;
+        queue.push(goalRecord, key1(goalRecord), key2(goalRecord));
+    }
+
+    // brings the search up to date and returns the cheapest path from the current start to the goal as a list of
+    // successive nodes, empty if there is none
+    public List<T> computePath() {
+        lastExpansions = 0;
+        Object source = searchContext.getHeuristicSource();
+        if (source != heuristicSource) {
+            heuristicSource = source;
+            rekey();
+        }
+        Record<T> startRecord = getRecord(start);
+        while (!queue.isEmpty() && (queue.topKey1() <= key1(startRecord) * (1 + KEY_TOLERANCE) ||
+                startRecord.rhs != startRecord.g)) {
+            Record<T> current = queue.peek();
+            float oldKey1 = queue.topKey1(), oldKey2 = queue.topKey2();
+            float newKey1 = key1(current), newKey2 = key2(current);
+            if (oldKey1 < newKey1 || (oldKey1 == newKey1 && oldKey2 < newKey2)) {
+                // the key was computed for an earlier start and is out of date
+                queue.update(current, newKey1, newKey2);
+            } else if (current.g > current.rhs) {
+                // overconsistent: the node's cost went down, which can only lower its predecessors' rhs-values
+                lastExpansions++;
+                current.g = current.rhs;
+                queue.remove(current);
+                for (T predecessor : searchContext.getPredecessors(current.node)) {
+                    Record<T> record = getRecord(predecessor);
+                    if (!predecessor.equals(goal)) {
+                        record.rhs = Math.min(record.rhs,
+                                searchContext.getEdgeCost(predecessor, current.node) + current.g);
+                        updateVertex(record);
+                    }
+                }
+            } else {
+                // underconsistent: the node's cost went up. Every node whose rhs-value may have depended on it is
+                // recomputed, including the node itself
+                lastExpansions++;
+                current.g = Float.POSITIVE_INFINITY;
+                recomputeRhs(current);
+                updateVertex(current);
+                for (T predecessor : searchContext.getPredecessors(current.node)) {
+                    Record<T> record = getRecord(predecessor);
+                    recomputeRhs(record);
+                    updateVertex(record);
+                }
+            }
+        }
+        return extractPath();
+    }
+
+    // tells the searcher that the cost of the edge from one node to the other has changed, or that the edge has been
+    // added or removed. For an undirected graph, call it for both directions. Takes effect on the next computePath()
+    public void updateEdge(T from, T to) {
+        Record<T> record = records.get(from);
+        // nodes the search hasn't reached yet will pick up the new cost when they are reached
+        if (record != null) {
+            recomputeRhs(record);
+            updateVertex(record);
+        }
+    }
+
+    // moves the start to the given node, e.g. the next node on the path as it is travelled. The search results are
+    // kept. Takes effect on the next computePath()
+    public void moveStart(T newStart) {
+        keyModifier += searchContext.getHeuristic(newStart, start);
+        start = newStart;
+    }
+
+    public T getStart() {
+        return start;
+    }
+
+    public T getGoal() {
+        return goal;
+    }
+
+    // returns cost of the path found by the last computePath(), or Float.POSITIVE_INFINITY if there is none
+    public float getPathCost() {
+        Record<T> record = records.get(start);
+        return record == null ? Float.POSITIVE_INFINITY : record.g;
+    }
+
+    // returns number of nodes expanded by the last computePath(). Compare with SearchStats.getPops() of a fresh search
+    public int getLastExpansionCount() {
+        return lastExpansions;
+    }
+
+    // returns number of nodes the search has reached since it was created
+    public int getReachedCount() {
+        return records.size();
+    }
+
+    // sets rhs to the cheapest cost to the goal through any of the node's successors. The goal's rhs stays 0
+    private void recomputeRhs(Record<T> record) {
+        if (record.node.equals(goal)) {
+            return;
+        }
+        float rhs = Float.POSITIVE_INFINITY;
+        for (T successor : searchContext.getNeighbors(record.node)) {
+            Record<T> next = records.get(successor);
+            if (next != null) {
+                rhs = Math.min(rhs, searchContext.getEdgeCost(record.node, successor) + next.g);
+            }
+        }
+        record.rhs = rhs;
+    }
+
+    // recomputes the key of every node in the queue with the current heuristic and start. Keys only go up through
+    // computePath()'s lazy updates, which is not enough once the heuristic has changed: a key that went down would
+    // stay too deep, and the search could end before the node is expanded
+    private void rekey() {
+        keyModifier = 0;
+        for (int i = 0; i < queue.size(); i++) {
+            Record<T> record = queue.get(i);
+            queue.setKeys(i, key1(record), key2(record));
+        }
+        queue.heapify();
+    }
+
+    // puts the node into the queue if it is inconsistent, or takes it out if it is consistent
+    private void updateVertex(Record<T> record) {
+        if (record.g != record.rhs) {
+            queue.push(record, key1(record), key2(record));
+        } else if (record.heapIndex >= 0) {
+            queue.remove(record);
+        }
+    }
+
+    private float key1(Record<T> record) {
+        float min = Math.min(record.g, record.rhs);
+        return min + searchContext.getHeuristic(record.node, start) + keyModifier;
+    }
+
+    private float key2(Record<T> record) {
+        return Math.min(record.g, record.rhs);
+    }
+
+    // follows the cheapest successors from the start to the goal
+    private List<T> extractPath() {
+        List<T> path = new ArrayList<>();
+        Record<T> current = records.get(start);
+        if (current == null || current.g == Float.POSITIVE_INFINITY) {
+            return path;
+        }
+        path.add(start);
+        // a consistent search can't loop, but a bound guards against inconsistent costs
+        for (int steps = 0; !current.node.equals(goal) && steps < records.size(); steps++) {
+            Record<T> best = null;
+            float bestCost = Float.POSITIVE_INFINITY;
+            for (T successor : searchContext.getNeighbors(current.node)) {
+                Record<T> next = records.get(successor);
+                if (next != null) {
+                    float cost = searchContext.getEdgeCost(current.node, successor) + next.g;
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        best = next;
+                    }
+                }
+            }
+            if (best == null) {
+                return new ArrayList<>();
+            }
+            path.add(best.node);
+            current = best;
+        }
+        return current.node.equals(goal) ? path : new ArrayList<>();
+    }
+
+    private Record<T> getRecord(T node) {
+        Record<T> record = records.get(node);
+        if (record == null) {
+            record = new Record<>(node);
+            records.put(node, record);
+        }
+        return record;
+    }
+
+    /**
+     * Search state of a node, kept for as long as the searcher exists.
+     */
+    private static final class Record<T> {
+        final T node;
+        float g = Float.POSITIVE_INFINITY, rhs = Float.POSITIVE_INFINITY;
+        // position in the queue, -1 if not in it
+        int heapIndex = -1;
+
+        Record(T node) {
+            this.node = node;
+        }
+    }
+
+    /**
+     * Indexed binary heap of records ordered lexicographically by a pair of keys, supporting update and removal of
+     * any record.
+     */
+    private static final class Queue<T> {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Record<T>[] heap = new Record[64];
+        private float[] keys1 = new float[64], keys2 = new float[64];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        // returns the record at the given position of the heap
+        Record<T> get(int index) {
+            return heap[index];
+        }
+
+        // sets the keys of the record at the given position without restoring the heap order. Call heapify() after
+        void setKeys(int index, float key1, float key2) {
+            keys1[index] = key1;
+            keys2[index] = key2;
+        }
+
+        // restores the heap order after setKeys()
+        void heapify() {
+            for (int index = size / 2 - 1; index >= 0; index--) {
+                siftDown(index);
+            }
+        }
+
+        Record<T> peek() {
+            return heap[0];
+        }
+
+        float topKey1() {
+            return keys1[0];
+        }
+
+        float topKey2() {
+            return keys2[0];
+        }
+
+        // adds the record, or changes its key if it is already in the queue
+        void push(Record<T> record, float key1, float key2) {
+            if (record.heapIndex >= 0) {
+                update(record, key1, key2);
+                return;
+            }
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+                keys1 = Arrays.copyOf(keys1, size * 2);
+                keys2 = Arrays.copyOf(keys2, size * 2);
+            }
+            place(size, record, key1, key2);
+            siftUp(size++);
+        }
+
+        void update(Record<T> record, float key1, float key2) {
+            int index = record.heapIndex;
+            int direction = compare(key1, key2, keys1[index], keys2[index]);
+            keys1[index] = key1;
+            keys2[index] = key2;
+            if (direction < 0) {
+                siftUp(index);
+            } else {
+                siftDown(index);
+            }
+        }
+
+        void remove(Record<T> record) {
+            int index = record.heapIndex;
+            record.heapIndex = -1;
+            size--;
+            if (index < size) {
+                Record<T> moved = heap[size];
+                place(index, moved, keys1[size], keys2[size]);
+                siftUp(index);
+                siftDown(moved.heapIndex);
+            }
+            heap[size] = null;
+        }
+
+        private static int compare(float a1, float a2, float b1, float b2) {
+            int result = Float.compare(a1, b1);
+            return result != 0 ? result : Float.compare(a2, b2);
+        }
+
+        private void place(int index, Record<T> record, float key1, float key2) {
+            heap[index] = record;
+            keys1[index] = key1;
+            keys2[index] = key2;
+            record.heapIndex = index;
+        }
+
+        private void siftUp(int index) {
+            Record<T> record = heap[index];
+            float key1 = keys1[index], key2 = keys2[index];
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (compare(keys1[parent], keys2[parent], key1, key2) <= 0) {
+                    break;
+                }
+                place(index, heap[parent], keys1[parent], keys2[parent]);
+                index = parent;
+            }
+            place(index, record, key1, key2);
+        }
+
+        private void siftDown(int index) {
+            Record<T> record = heap[index];
+            float key1 = keys1[index], key2 = keys2[index];
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && compare(keys1[child + 1], keys2[child + 1], keys1[child], keys2[child]) < 0) {
+                    child++;
+                }
+                if (compare(keys1[child], keys2[child], key1, key2) >= 0) {
+                    break;
+                }
+                place(index, heap[child], keys1[child], keys2[child]);
+                index = child;
+            }
+            place(index, record, key1, key2);
+        }
+    }
+}
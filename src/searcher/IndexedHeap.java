@@ -0,0 +1,167 @@
+package searcher;
+
+import java.util.Arrays;
+
+/**
+ * A d-ary min-heap of NodeRecords keyed by f-score. Each record stores its own position in the heap (heapIndex), so
+ * pushing a record that is already in the heap becomes a real decrease-key instead of a duplicate entry. The heap
+ * therefore never holds more entries than there are distinct nodes on the frontier.
+ */
+class IndexedHeap<T> implements OpenSet<T> {
+
+    // number of children per heap node (2 for a binary heap, 4 for a 4-ary heap)
+    private final int arity;
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private SearchWorkspace.NodeRecord<T>[] heap = new SearchWorkspace.NodeRecord[64];
+    private float[] keys;
+    private int size;
+    private int pushes, pops, decreaseKeys, peakSize;
+
+    IndexedHeap(int arity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("Heap arity must be at least 2");
+        }
+        this.arity = arity;
+        keys = new float[64];
+    }
+
+    @Override
+    public void push(SearchWorkspace.NodeRecord<T> record, float f) {
+        int index = record.heapIndex;
+        if (index >= 0) { // already in the heap: decrease its key
+            if (f < keys[index]) {
+                keys[index] = f;
+                siftUp(index);
+                decreaseKeys++;
+            }
+        } else {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            heap[size] = record;
+            keys[size] = f;
+            record.heapIndex = size;
+            siftUp(size++);
+            pushes++;
+            peakSize = Math.max(peakSize, size);
+        }
+    }
+
+    @Override
+    public SearchWorkspace.NodeRecord<T> pop() {
+        if (size == 0) {
+            return null;
+        }
+        SearchWorkspace.NodeRecord<T> min = heap[0];
+        min.heapIndex = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            keys[0] = keys[size];
+            heap[0].heapIndex = 0;
+            siftDown(0);
+        }
+        heap[size] = null;
+        pops++;
+        return min;
+    }
+
+    @Override
+    public float peekKey() {
+        return size == 0 ? Float.POSITIVE_INFINITY : keys[0];
+    }
+
+    // moves the entry at index up until its parent's key is no larger
+    private void siftUp(int index) {
+        SearchWorkspace.NodeRecord<T> record = heap[index];
+        float key = keys[index];
+        while (index > 0) {
+            int parent = (index - 1) / arity;
+            if (keys[parent] <= key) {
+                break;
+            }
+            heap[index] = heap[parent];
+            keys[index] = keys[parent];
+            heap[index].heapIndex = index;
+            index = parent;
+        }
+        heap[index] = record;
+        keys[index] = key;
+        record.heapIndex = index;
+    }
+
+    // moves the entry at index down until none of its children has a smaller key
+    private void siftDown(int index) {
+        SearchWorkspace.NodeRecord<T> record = heap[index];
+        float key = keys[index];
+        while (true) {
+            int first = index * arity + 1;
+            if (first >= size) {
+                break;
+            }
+            int last = Math.min(first + arity, size);
+            int min = first;
+            for (int child = first + 1; child < last; child++) {
+                if (keys[child] < keys[min]) {
+                    min = child;
+                }
+            }
+            if (keys[min] >= key) {
+                break;
+            }
+            heap[index] = heap[min];
+            keys[index] = keys[min];
+            heap[index].heapIndex = index;
+            index = min;
+        }
+        heap[index] = record;
+        keys[index] = key;
+        record.heapIndex = index;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            heap[i].heapIndex = -1;
+            heap[i] = null;
+        }
+        size = 0;
+        pushes = pops = decreaseKeys = peakSize = 0;
+    }
+
+    @Override
+    public int getPushCount() {
+        return pushes;
+    }
+
+    @Override
+    public int getPopCount() {
+        return pops;
+    }
+
+    @Override
+    public int getDecreaseKeyCount() {
+        return decreaseKeys;
+    }
+
+    @Override // entries are updated in place, so there are never any stale ones
+    public int getStalePopCount() {
+        return 0;
+    }
+
+    @Override
+    public int getPeakSize() {
+        return peakSize;
+    }
+}
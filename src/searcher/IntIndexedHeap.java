@@ -0,0 +1,160 @@
+package searcher;
+
+import java.util.Arrays;
+
+/**
+ * A d-ary min-heap of int node ids keyed by f-score, with decrease-key. The position of every node is kept in an
+ * array indexed by node id, so the heap never holds more than one entry per node.
+ */
+class IntIndexedHeap {
+
+    // number of children per heap node
+    private final int arity;
+    private int[] heap;
+    private float[] keys;
+    // position of each node in the heap, or -1 if it isn't in it
+    private int[] positions;
+    private int size;
+    private int pushes, pops, decreaseKeys, peakSize;
+
+    IntIndexedHeap(int arity, int numNodes) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("Heap arity must be at least 2");
+        }
+        this.arity = arity;
+        heap = new int[64];
+        keys = new float[64];
+        positions = new int[numNodes];
+        Arrays.fill(positions, -1);
+    }
+
+    // adds node with the given key, or decreases its key if it is already in the heap and key is lower
+    void push(int node, float key) {
+        int index = positions[node];
+        if (index >= 0) {
+            if (key < keys[index]) {
+                keys[index] = key;
+                siftUp(index);
+                decreaseKeys++;
+            }
+        } else {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            heap[size] = node;
+            keys[size] = key;
+            positions[node] = size;
+            siftUp(size++);
+            pushes++;
+            peakSize = Math.max(peakSize, size);
+        }
+    }
+
+    // removes and returns the node with the lowest key, or -1 if the heap is empty
+    int pop() {
+        if (size == 0) {
+            return -1;
+        }
+        int min = heap[0];
+        positions[min] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            keys[0] = keys[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+        pops++;
+        return min;
+    }
+
+    // returns key of the node pop() would return next, or Float.POSITIVE_INFINITY if the heap is empty
+    float peekKey() {
+        return size == 0 ? Float.POSITIVE_INFINITY : keys[0];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // returns whether the given node is currently in the heap
+    boolean contains(int node) {
+        return positions[node] >= 0;
+    }
+
+    // removes all entries and resets the counters. Only touches the positions of nodes still in the heap
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+        pushes = pops = decreaseKeys = peakSize = 0;
+    }
+
+    private void siftUp(int index) {
+        int node = heap[index];
+        float key = keys[index];
+        while (index > 0) {
+            int parent = (index - 1) / arity;
+            if (keys[parent] <= key) {
+                break;
+            }
+            heap[index] = heap[parent];
+            keys[index] = keys[parent];
+            positions[heap[index]] = index;
+            index = parent;
+        }
+        heap[index] = node;
+        keys[index] = key;
+        positions[node] = index;
+    }
+
+    private void siftDown(int index) {
+        int node = heap[index];
+        float key = keys[index];
+        while (true) {
+            int first = index * arity + 1;
+            if (first >= size) {
+                break;
+            }
+            int last = Math.min(first + arity, size);
+            int min = first;
+            for (int child = first + 1; child < last; child++) {
+                if (keys[child] < keys[min]) {
+                    min = child;
+                }
+            }
+            if (keys[min] >= key) {
+                break;
+            }
+            heap[index] = heap[min];
+            keys[index] = keys[min];
+            positions[heap[index]] = index;
+            index = min;
+        }
+        heap[index] = node;
+        keys[index] = key;
+        positions[node] = index;
+    }
+
+    int getPushCount() {
+        return pushes;
+    }
+
+    int getPopCount() {
+        return pops;
+    }
+
+    int getDecreaseKeyCount() {
+        return decreaseKeys;
+    }
+
+    int getPeakSize() {
+        return peakSize;
+    }
+}
@@ -0,0 +1,25 @@
+package searcher;
+
+/**
+ * Variant of the SearchFramework for graphs whose nodes are numbered 0..getNodeCount()-1 and whose outgoing edges
+ * are stored contiguously, as in a compressed sparse row layout. The edges leaving node n are numbered
+ * getFirstEdge(n) up to (but excluding) getFirstEdge(n + 1). Lets an IntSearcher walk the graph without allocating.
+ */
+public interface IntSearchFramework {
+
+    // returns number of nodes in the graph
+    int getNodeCount();
+
+    // returns index of the first edge leaving node. getFirstEdge(getNodeCount()) is the total number of edges
+    int getFirstEdge(int node);
+
+    // returns node the given edge leads to
+    int getEdgeTarget(int edge);
+
+    // returns cost of traversing the given edge
+    float getEdgeCost(int edge);
+
+    // returns float value of node's heuristic towards goal
+    // heuristic must be admissible and consistent
+    float getHeuristic(int node, int goal);
+}
@@ -0,0 +1,65 @@
+package searcher;
+
+import java.util.Arrays;
+
+/**
+ * Per-thread search state for an IntSearcher, stored in arrays indexed by node id. Instead of clearing the arrays
+ * between queries, every query gets a new generation number: a node's g-score and parent are only valid if its
+ * reached stamp equals the current generation, and it is closed only if its closed stamp does. Resetting is
+ * therefore O(1) apart from emptying the heap.
+ */
+class IntSearchWorkspace {
+
+    final float[] g;
+    final int[] parents;
+    final IntIndexedHeap openSet;
+    // scratch buffer the path is retraced into (goal first)
+    int[] pathBuffer = new int[64];
+
+    private final int[] reachedStamps;
+    private final int[] closedStamps;
+    private int generation;
+
+    IntSearchWorkspace(int numNodes, int heapArity) {
+        g = new float[numNodes];
+        parents = new int[numNodes];
+        reachedStamps = new int[numNodes];
+        closedStamps = new int[numNodes];
+        openSet = new IntIndexedHeap(heapArity, numNodes);
+    }
+
+    // number of nodes this workspace was sized for
+    int capacity() {
+        return g.length;
+    }
+
+    // starts a new query
+    void reset() {
+        openSet.clear();
+        if (++generation == Integer.MAX_VALUE) { // stamps would wrap around: start over from a clean slate
+            Arrays.fill(reachedStamps, 0);
+            Arrays.fill(closedStamps, 0);
+            generation = 1;
+        }
+    }
+
+    // returns the best known cost to reach node in the current query, infinite if it hasn't been reached
+    float getG(int node) {
+        return reachedStamps[node] == generation ? g[node] : Float.POSITIVE_INFINITY;
+    }
+
+    // records a new best cost and parent for node
+    void setG(int node, float cost, int parent) {
+        reachedStamps[node] = generation;
+        g[node] = cost;
+        parents[node] = parent;
+    }
+
+    boolean isClosed(int node) {
+        return closedStamps[node] == generation;
+    }
+
+    void close(int node) {
+        closedStamps[node] = generation;
+    }
+}
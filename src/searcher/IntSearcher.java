@@ -0,0 +1,152 @@
+package searcher;
+
+import java.util.Arrays;
+
+/**
+ * A* search over an IntSearchFramework. Works like the Searcher, but all search state is kept in primitive arrays
+ * indexed by node id and the open set is an IntIndexedHeap, so a query allocates nothing apart from the returned
+ * path. Each thread gets its own workspace, sized to the graph and reused for every query.
+ */
+public class IntSearcher {
+
+    // graph being searched
+    private final IntSearchFramework searchContext;
+    private final OpenSetType openSetType;
+    private final ThreadLocal<IntSearchWorkspace> workspaces = new ThreadLocal<>();
+
+    // creates an IntSearcher using an indexed binary heap for its open set
+    public IntSearcher(IntSearchFramework searchContext) {
+        this(searchContext, OpenSetType.BINARY_HEAP);
+    }
+
+    // creates an IntSearcher using the given type of open set. Only the indexed heaps are supported
+    public IntSearcher(IntSearchFramework searchContext, OpenSetType openSetType) throws IllegalArgumentException {
+        if (openSetType == OpenSetType.LAZY_PRIORITY_QUEUE) {
+            throw new IllegalArgumentException("IntSearcher requires an indexed heap");
+        }
+        this.searchContext = searchContext;
+        this.openSetType = openSetType;
+    }
+
+    // runs search from start to goal. Returns the ids of successive nodes on the path, empty if no solution found
+    public int[] runSearch(int start, int goal) {
+        return runSearch(searchContext, start, goal);
+    }
+
+    // runs search from start to goal over the given graph instead of the searcher's own. The graph must have the same
+    // number of nodes; it may differ in its edge costs, e.g. a snapshot of live traffic weights taken for this query
+    // throws IllegalArgumentException if the graph has a different number of nodes
+    public int[] runSearch(IntSearchFramework graph, int start, int goal) throws IllegalArgumentException {
+        if (graph.getNodeCount() != searchContext.getNodeCount()) {
+            throw new IllegalArgumentException("Graph has a different number of nodes");
+        }
+        IntSearchWorkspace workspace = getWorkspace();
+        workspace.reset();
+        IntIndexedHeap openSet = workspace.openSet;
+        workspace.setG(start, 0, -1);
+        openSet.push(start, graph.getHeuristic(start, goal));
+        int current;
+        while ((current = openSet.pop()) >= 0) {
+            if (current == goal) {
+                return retracePath(goal, workspace);
+            }
+            workspace.close(current);
+            float currentG = workspace.g[current];
+            int lastEdge = graph.getFirstEdge(current + 1);
+            for (int edge = graph.getFirstEdge(current); edge < lastEdge; edge++) {
+                int neighbor = graph.getEdgeTarget(edge);
+                if (workspace.isClosed(neighbor)) {
+                    continue;
+                }
+                float g = currentG + graph.getEdgeCost(edge);
+                if (g < workspace.getG(neighbor)) {
+                    workspace.setG(neighbor, g, current);
+                    openSet.push(neighbor, g + graph.getHeuristic(neighbor, goal));
+                }
+            }
+        }
+        return new int[0];
+    }
+
+    // runs Dijkstra's algorithm from source over the whole graph, ignoring the heuristic. Fills distances with the
+    // cost of the cheapest path to every node (Float.POSITIVE_INFINITY if unreachable) and, if it isn't null,
+    // parents with the node each one is reached from (-1 for the source and unreachable nodes). Both arrays must
+    // hold at least getNodeCount() entries. Returns the number of nodes reached
+    public int computeDistances(int source, float[] distances, int[] parents) {
+        IntSearchWorkspace workspace = getWorkspace();
+        workspace.reset();
+        IntIndexedHeap openSet = workspace.openSet;
+        Arrays.fill(distances, 0, searchContext.getNodeCount(), Float.POSITIVE_INFINITY);
+        if (parents != null) {
+            Arrays.fill(parents, 0, searchContext.getNodeCount(), -1);
+        }
+        workspace.setG(source, 0, -1);
+        openSet.push(source, 0);
+        int reached = 0;
+        int current;
+        while ((current = openSet.pop()) >= 0) {
+            workspace.close(current);
+            float currentG = workspace.g[current];
+            distances[current] = currentG;
+            if (parents != null) {
+                parents[current] = workspace.parents[current];
+            }
+            reached++;
+            int lastEdge = searchContext.getFirstEdge(current + 1);
+            for (int edge = searchContext.getFirstEdge(current); edge < lastEdge; edge++) {
+                int neighbor = searchContext.getEdgeTarget(edge);
+                if (workspace.isClosed(neighbor)) {
+                    continue;
+                }
+                float g = currentG + searchContext.getEdgeCost(edge);
+                if (g < workspace.getG(neighbor)) {
+                    workspace.setG(neighbor, g, current);
+                    openSet.push(neighbor, g);
+                }
+            }
+        }
+        return reached;
+    }
+
+    // returns counters describing the last query run by the calling thread
+    public SearchStats getLastStats() {
+        IntIndexedHeap openSet = getWorkspace().openSet;
+        return new SearchStats(openSetType, openSet.getPushCount(), openSet.getPopCount(),
+                openSet.getDecreaseKeyCount(), 0, openSet.getPeakSize());
+    }
+
+    public OpenSetType getOpenSetType() {
+        return openSetType;
+    }
+
+    public IntSearchFramework getSearchContext() {
+        return searchContext;
+    }
+
+    // returns the calling thread's workspace, creating it if needed or if the graph has grown since
+    private IntSearchWorkspace getWorkspace() {
+        IntSearchWorkspace workspace = workspaces.get();
+        if (workspace == null || workspace.capacity() != searchContext.getNodeCount()) {
+            workspace = new IntSearchWorkspace(searchContext.getNodeCount(),
+                    openSetType == OpenSetType.QUATERNARY_HEAP ? 4 : 2);
+            workspaces.set(workspace);
+        }
+        return workspace;
+    }
+
+    // follows parents back from the goal and returns the path in start-to-goal order
+    private int[] retracePath(int goal, IntSearchWorkspace workspace) {
+        int length = 0;
+        for (int node = goal; node >= 0; node = workspace.parents[node]) {
+            if (length == workspace.pathBuffer.length) {
+                workspace.pathBuffer = Arrays.copyOf(workspace.pathBuffer, length * 2);
+            }
+            workspace.pathBuffer[length++] = node;
+        }
+        int[] path = new int[length];
+        for (int i = 0; i < length; i++) {
+            path[i] = workspace.pathBuffer[length - 1 - i];
+        }
+        return path;
+    }
+}
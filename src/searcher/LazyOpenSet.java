@@ -0,0 +1,112 @@
+package searcher;
+
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+
+/**
+ * OpenSet backed by a java.util.PriorityQueue. A record is pushed again every time its priority improves, and the
+ * outdated entries are only discarded once they reach the top of the queue. Entries are pooled and recycled after
+ * clear().
+ */
+class LazyOpenSet<T> implements OpenSet<T> {
+
+    private final PriorityQueue<Entry<T>> queue = new PriorityQueue<>(16, (e1, e2) -> Float.compare(e1.f, e2.f));
+    // entries allocated by previous queries. The first entriesUsed are in use
+    private final ArrayList<Entry<T>> entryPool = new ArrayList<>();
+    private int entriesUsed;
+    private int pushes, pops, stalePops, peakSize;
+
+    @Override // always adds a new entry. The record's current g-score is captured so the entry can be recognized
+    // as stale if the record is improved later on
+    public void push(SearchWorkspace.NodeRecord<T> record, float f) {
+        if (entriesUsed == entryPool.size()) {
+            entryPool.add(new Entry<>());
+        }
+        Entry<T> entry = entryPool.get(entriesUsed++);
+        entry.record = record;
+        entry.g = record.g;
+        entry.f = f;
+        queue.add(entry);
+        pushes++;
+        peakSize = Math.max(peakSize, queue.size());
+    }
+
+    @Override // polls until an entry is found whose record hasn't been closed or improved since it was pushed
+    public SearchWorkspace.NodeRecord<T> pop() {
+        while (!queue.isEmpty()) {
+            Entry<T> entry = queue.poll();
+            if (entry.record.closed || entry.g > entry.record.g) {
+                stalePops++;
+            } else {
+                pops++;
+                return entry.record;
+            }
+        }
+        return null;
+    }
+
+    @Override // discards stale entries sitting at the top of the queue before peeking
+    public float peekKey() {
+        while (!queue.isEmpty()) {
+            Entry<T> entry = queue.peek();
+            if (entry.record.closed || entry.g > entry.record.g) {
+                queue.poll();
+                stalePops++;
+            } else {
+                return entry.f;
+            }
+        }
+        return Float.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public void clear() {
+        queue.clear();
+        for (int i = 0; i < entriesUsed; i++) {
+            entryPool.get(i).record = null;
+        }
+        entriesUsed = 0;
+        pushes = pops = stalePops = peakSize = 0;
+    }
+
+    @Override
+    public int getPushCount() {
+        return pushes;
+    }
+
+    @Override
+    public int getPopCount() {
+        return pops;
+    }
+
+    @Override // entries are never updated in place
+    public int getDecreaseKeyCount() {
+        return 0;
+    }
+
+    @Override
+    public int getStalePopCount() {
+        return stalePops;
+    }
+
+    @Override
+    public int getPeakSize() {
+        return peakSize;
+    }
+
+    private static final class Entry<T> {
+        SearchWorkspace.NodeRecord<T> record;
+        float g;
+        float f;
+    }
+}
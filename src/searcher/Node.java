@@ -2,31 +2,12 @@ package searcher;
 
 /**
  * The Searcher finds paths through a series of Nodes that must extend this abstract class.
- * This class provides Searcher functionality: it stores the node's priority value, used
- * in the search algorithm, and it records the node's parent, used to retrace the algorithm's
- * steps.
+ * A Node carries no search state of its own: priority values and parents are kept by the Searcher in per-query
+ * storage, so the same graph can be searched by any number of threads at once. Nodes are used as hash keys during
+ * a search, so subclasses overriding equals() must override hashCode() consistently.
  */
 public abstract class Node {
 
-    private float priorityVal;
-    private Node parent;
-
     public Node() {
     }
-
-    public void setPriorityVal(float priorityVal) {
-        this.priorityVal = priorityVal;
-    }
-
-    public float getPriorityVal() {
-        return priorityVal;
-    }
-
-    public Node getParent() {
-        return parent;
-    }
-
-    public void setParent(Node parent) {
-        this.parent = parent;
-    }
 }
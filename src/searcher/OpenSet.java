@@ -0,0 +1,42 @@
+package searcher;
+
+/**
+ * The set of nodes that have been found but not yet expanded, ordered by f-score. Implementations keep counters of
+ * the operations performed on them since the last clear(), so that the different variants can be compared.
+ */
+interface OpenSet<T> {
+
+    // adds the record with the given f-score. If the record is already in the set and f is lower than its current
+    // f-score, its priority is decreased instead
+    void push(SearchWorkspace.NodeRecord<T> record, float f);
+
+    // removes and returns the record with the lowest f-score, or null if the set is empty
+    SearchWorkspace.NodeRecord<T> pop();
+
+    // returns the f-score of the record pop() would return next, or Float.POSITIVE_INFINITY if the set is empty
+    float peekKey();
+
+    // returns whether there are no more records to pop
+    boolean isEmpty();
+
+    // number of entries currently held, including any stale ones
+    int size();
+
+    // removes all entries and resets the counters
+    void clear();
+
+    // number of new entries added
+    int getPushCount();
+
+    // number of records returned by pop()
+    int getPopCount();
+
+    // number of priorities decreased in place
+    int getDecreaseKeyCount();
+
+    // number of outdated entries that were discarded while popping
+    int getStalePopCount();
+
+    // largest number of entries held at once
+    int getPeakSize();
+}
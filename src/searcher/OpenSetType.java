@@ -0,0 +1,29 @@
+package searcher;
+
+/**
+ * The open set implementations a Searcher can be configured with.
+ */
+public enum OpenSetType {
+
+    // java.util.PriorityQueue that pushes a duplicate entry every time a node is relaxed and drops outdated
+    // entries when they are polled. The heap may grow well beyond the number of nodes on the frontier
+    LAZY_PRIORITY_QUEUE,
+    // indexed binary heap with decrease-key. Holds at most one entry per frontier node
+    BINARY_HEAP,
+    // indexed 4-ary heap with decrease-key. Shallower than the binary heap, which makes decrease-key cheaper
+    QUATERNARY_HEAP;
+
+    // creates a new, empty open set of this type
+    <T> OpenSet<T> create() {
+        switch (this) {
+            case LAZY_PRIORITY_QUEUE:
+                return new LazyOpenSet<>();
+            case BINARY_HEAP:
+                return new IndexedHeap<>(2);
+            case QUATERNARY_HEAP:
+                return new IndexedHeap<>(4);
+            default:
+                throw new IllegalStateException("Unknown open set type " + this);
+        }
+    }
+}
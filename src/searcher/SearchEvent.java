@@ -0,0 +1,61 @@
+package searcher;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder event committed for every query run by a Searcher while a recording has the event enabled
+ * (it is enabled by default). The event's duration covers the whole of runSearch(). When no recording is running,
+ * the only cost is a check of whether the event is enabled.
+ */
+@Name("searcher.Search")
+@Label("Search")
+@Category("Searcher")
+@Description("A single query run by a Searcher")
+@StackTrace(false)
+class SearchEvent extends Event {
+
+    @Label("Start")
+    String start;
+
+    @Label("Goal")
+    String goal;
+
+    @Label("Path Length")
+    @Description("Number of nodes on the path, 0 if none was found")
+    int pathLength;
+
+    @Label("Path Cost")
+    float pathCost;
+
+    @Label("Start Heuristic")
+    float startHeuristic;
+
+    @Label("Nodes Expanded")
+    int expanded;
+
+    @Label("Nodes Generated")
+    int generated;
+
+    @Label("Stale Pops")
+    int stalePops;
+
+    @Label("Peak Open Set Size")
+    int peakOpenSetSize;
+
+    @Label("Heuristic Calls")
+    int heuristicCalls;
+
+    @Label("Search Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long searchTime;
+
+    @Label("Retrace Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long retraceTime;
+}
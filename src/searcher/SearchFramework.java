@@ -11,6 +11,12 @@ public interface SearchFramework<T extends Node> {
     // return list of neighbors node has access to
     List<T> getNeighbors(T node);
 
+    // returns list of nodes that have an edge leading to node. Used by searches that run backwards from the goal.
+    // Defaults to getNeighbors(), which is correct for undirected graphs. Directed graphs must override it
+    default List<T> getPredecessors(T node) {
+        return getNeighbors(node);
+    }
+
     // returns edge cost between the two nodes
     float getEdgeCost(T node1, T node2);
 
@@ -18,6 +24,18 @@ public interface SearchFramework<T extends Node> {
     // heuristic must be admissible and consistent
     float getHeuristic(T node);
 
+    // returns float value of node's heuristic towards the given goal. Used by queries that carry their own goal,
+    // so implementations must not depend on any goal stored in the framework
+    // heuristic must be admissible and consistent
+    float getHeuristic(T node, T goal);
+
+    // returns the object the heuristic is currently computed from, e.g. a table of precomputed bounds. Searches that
+    // keep heuristic values between queries compare it by identity, and recompute them all once it changes. Defaults
+    // to null, for a heuristic that never changes
+    default Object getHeuristicSource() {
+        return null;
+    }
+
     // returns whether the given Node meets the goal condition
     boolean isGoal(T node);
 }
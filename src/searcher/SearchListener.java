@@ -0,0 +1,22 @@
+package searcher;
+
+import java.util.List;
+
+/**
+ * Receives events from a Searcher's queries, e.g. to trace which parts of a graph a slow query explores. Set with
+ * Searcher.setListener(). Callbacks run on the thread running the query, inside the search loop, so they should be
+ * cheap and must be thread-safe if the Searcher is shared between threads.
+ */
+public interface SearchListener<T extends Node> {
+
+    // called when a query starts. goal is null if the query searches for the framework's goal
+    default void searchStarted(T start, T goal) {
+    }
+
+    // called every time a node is taken off the open set and expanded, with the cost of reaching it and its f-score
+    void nodeExpanded(T node, float g, float f);
+
+    // called when a query has finished, with the path found (empty if there was none) and its statistics
+    default void searchFinished(T start, T goal, List<T> path, SearchStats stats) {
+    }
+}
@@ -0,0 +1,27 @@
+package searcher;
+
+/**
+ * A single point-to-point query: the node to start from and the node to reach.
+ */
+public class SearchQuery<T extends Node> {
+
+    private final T start, goal;
+
+    public SearchQuery(T start, T goal) {
+        this.start = start;
+        this.goal = goal;
+    }
+
+    public T getStart() {
+        return start;
+    }
+
+    public T getGoal() {
+        return goal;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchQuery(" + start + "->" + goal + ")";
+    }
+}
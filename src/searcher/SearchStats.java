@@ -0,0 +1,130 @@
+package searcher;
+
+/**
+ * Counters describing the work done by a single query. Obtained from a Searcher after runSearch() returns; the
+ * values describe the last query run on the calling thread. Searchers that don't record heuristic calls or phase
+ * times report 0 for them.
+ */
+public class SearchStats {
+
+    private final OpenSetType openSetType;
+    private final int pushes, pops, decreaseKeys, stalePops, peakOpenSetSize, heuristicCalls;
+    private final float startHeuristic, pathCost;
+    private final long searchNanos, retraceNanos;
+
+    SearchStats(OpenSetType openSetType, int pushes, int pops, int decreaseKeys, int stalePops, int peakOpenSetSize) {
+        this(openSetType, pushes, pops, decreaseKeys, stalePops, peakOpenSetSize, 0, 0, 0, 0, 0);
+    }
+
+    SearchStats(OpenSetType openSetType, int pushes, int pops, int decreaseKeys, int stalePops, int peakOpenSetSize,
+                int heuristicCalls, float startHeuristic, float pathCost, long searchNanos, long retraceNanos) {
+        this.openSetType = openSetType;
+        this.pushes = pushes;
+        this.pops = pops;
+        this.decreaseKeys = decreaseKeys;
+        this.stalePops = stalePops;
+        this.peakOpenSetSize = peakOpenSetSize;
+        this.heuristicCalls = heuristicCalls;
+        this.startHeuristic = startHeuristic;
+        this.pathCost = pathCost;
+        this.searchNanos = searchNanos;
+        this.retraceNanos = retraceNanos;
+    }
+
+    // counters of a single-direction search, along with what the Searcher recorded in the workspace
+    SearchStats(OpenSetType openSetType, SearchWorkspace<?> workspace) {
+        this(openSetType, workspace.openSet.getPushCount(), workspace.openSet.getPopCount(),
+                workspace.openSet.getDecreaseKeyCount(), workspace.openSet.getStalePopCount(),
+                workspace.openSet.getPeakSize(), workspace.heuristicCalls, workspace.startHeuristic,
+                workspace.pathCost, workspace.searchNanos, workspace.retraceNanos);
+    }
+
+    // sums up the counters of the given open sets (one for a plain search, two for a bidirectional one)
+    SearchStats(OpenSetType openSetType, OpenSet<?>... openSets) {
+        this.openSetType = openSetType;
+        int pushes = 0, pops = 0, decreaseKeys = 0, stalePops = 0, peakOpenSetSize = 0;
+        for (OpenSet<?> openSet : openSets) {
+            pushes += openSet.getPushCount();
+            pops += openSet.getPopCount();
+            decreaseKeys += openSet.getDecreaseKeyCount();
+            stalePops += openSet.getStalePopCount();
+            peakOpenSetSize += openSet.getPeakSize();
+        }
+        this.pushes = pushes;
+        this.pops = pops;
+        this.decreaseKeys = decreaseKeys;
+        this.stalePops = stalePops;
+        this.peakOpenSetSize = peakOpenSetSize;
+        heuristicCalls = 0;
+        startHeuristic = pathCost = 0;
+        searchNanos = retraceNanos = 0;
+    }
+
+    public OpenSetType getOpenSetType() {
+        return openSetType;
+    }
+
+    // number of entries added to the open set, i.e. the number of nodes generated
+    public int getPushes() {
+        return pushes;
+    }
+
+    // number of nodes popped from the open set (excluding stale entries), i.e. the number of nodes expanded
+    public int getPops() {
+        return pops;
+    }
+
+    // number of priorities decreased in place. Always 0 for LAZY_PRIORITY_QUEUE
+    public int getDecreaseKeys() {
+        return decreaseKeys;
+    }
+
+    // number of outdated entries discarded while popping. Always 0 for the indexed heaps
+    public int getStalePops() {
+        return stalePops;
+    }
+
+    // largest number of entries the open set held at once. For a bidirectional search, the sum of both peaks
+    public int getPeakOpenSetSize() {
+        return peakOpenSetSize;
+    }
+
+    // number of times the heuristic was evaluated
+    public int getHeuristicCalls() {
+        return heuristicCalls;
+    }
+
+    // heuristic estimate from the start node to the goal
+    public float getStartHeuristic() {
+        return startHeuristic;
+    }
+
+    // cost of the path found, or Float.POSITIVE_INFINITY if there was none
+    public float getPathCost() {
+        return pathCost;
+    }
+
+    // ratio of the start node's heuristic to the actual path cost. The closer to 1, the fewer nodes the search has to
+    // expand. 0 if no path was found
+    public float getHeuristicAccuracy() {
+        return pathCost > 0 && pathCost < Float.POSITIVE_INFINITY ? startHeuristic / pathCost : 0;
+    }
+
+    // wall time spent expanding nodes, in nanoseconds
+    public long getSearchNanos() {
+        return searchNanos;
+    }
+
+    // wall time spent retracing and copying out the path, in nanoseconds
+    public long getRetraceNanos() {
+        return retraceNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchStats(" + openSetType + ": pushes=" + pushes + ", pops=" + pops + ", decreaseKeys=" +
+                decreaseKeys + ", stalePops=" + stalePops + ", peakOpenSetSize=" + peakOpenSetSize +
+                ", heuristicCalls=" + heuristicCalls + ", startHeuristic=" + startHeuristic + ", pathCost=" +
+                pathCost + ", searchNanos=" + searchNanos + ", retraceNanos=" + retraceNanos + ")";
+    }
+}
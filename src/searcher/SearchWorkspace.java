@@ -0,0 +1,78 @@
+package searcher;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Holds all the state a Searcher needs while running a single query: the open set, the per-node search records
+ * (g-score, parent, heap position and whether the node has been closed) and a scratch buffer used to retrace the
+ * path. A workspace belongs to exactly one thread and is reset between queries rather than reallocated. Records
+ * handed out during a query are recycled by the next one, so a warmed-up workspace produces very little garbage.
+ */
+class SearchWorkspace<T extends Node> {
+
+    // search state of every node reached in the current query, keyed by node
+    final HashMap<T, NodeRecord<T>> records = new HashMap<>();
+    // stores nodes that have been found but not yet visited, ordered by f-score
+    final OpenSet<T> openSet;
+    // scratch buffer the path is retraced into (goal first)
+    final ArrayList<T> pathBuffer = new ArrayList<>();
+    // statistics of the current query, on top of the open set's own counters (see SearchStats)
+    int heuristicCalls;
+    float startHeuristic, pathCost;
+    long searchNanos, retraceNanos;
+
+    // records allocated by previous queries. The first recordsUsed are in use
+    private final ArrayList<NodeRecord<T>> recordPool = new ArrayList<>();
+    private int recordsUsed;
+
+    SearchWorkspace(OpenSetType openSetType) {
+        openSet = openSetType.create();
+    }
+
+    // clears all state from the previous query. Pooled objects are kept for reuse
+    void reset() {
+        records.clear();
+        openSet.clear();
+        pathBuffer.clear();
+        heuristicCalls = 0;
+        startHeuristic = 0;
+        pathCost = Float.POSITIVE_INFINITY;
+        searchNanos = retraceNanos = 0;
+        for (int i = 0; i < recordsUsed; i++) {
+            recordPool.get(i).node = null;
+            recordPool.get(i).parent = null;
+        }
+        recordsUsed = 0;
+    }
+
+    // returns the record for the given node, taking a fresh one from the pool if the node hasn't been reached yet
+    NodeRecord<T> getRecord(T node) {
+        NodeRecord<T> record = records.get(node);
+        if (record == null) {
+            if (recordsUsed == recordPool.size()) {
+                recordPool.add(new NodeRecord<>());
+            }
+            record = recordPool.get(recordsUsed++);
+            record.node = node;
+            record.g = Float.POSITIVE_INFINITY;
+            record.parent = null;
+            record.heapIndex = -1;
+            record.closed = false;
+            records.put(node, record);
+        }
+        return record;
+    }
+
+    /**
+     * Search state of a single node: the best known cost to reach it, the record it was reached from, its position
+     * in an indexed open set (-1 if it isn't in one) and whether it has been expanded.
+     */
+    static final class NodeRecord<T> {
+        T node;
+        float g;
+        NodeRecord<T> parent;
+        int heapIndex;
+        boolean closed;
+    }
+}
@@ -4,74 +4,164 @@ import java.util.*;
 
 /**
  * Implements an A* search to search through the nodes starting with startNode.
- * Fully visited nodes are put in the closed Hashtable. todo: explanation!
+ * The search runs as a loop, so its stack depth is constant no matter how many nodes are expanded. All state used
+ * during a query lives in a SearchWorkspace. Each thread calling runSearch() gets its own workspace, which is reset
+ * between queries rather than reallocated. Fully visited nodes are marked closed in the workspace and are never
+ * expanded twice. Parents and g-scores are stored in the workspace rather than on the nodes, so one Searcher and
+ * one graph can serve concurrent queries from many threads (see BatchSearcher).
+ *
+ * The open set implementation is chosen with an OpenSetType. The indexed heaps support decrease-key and hold at most
+ * one entry per frontier node; LAZY_PRIORITY_QUEUE keeps the old push-duplicates behavior for comparison.
+ *
+ * Every query records its counters, heuristic calls and the time spent searching and retracing the path in the
+ * workspace, at the cost of a few increments and clock reads. They are available from getLastStats() afterwards.
+ * A SearchListener can follow each query node by node, and a SearchEvent is committed to Java Flight Recorder for
+ * every query while a recording is running. Neither costs more than a check when it isn't in use.
  */
 public class Searcher<T extends Node> {
 
     // provides "context" to the nodes the Searcher is traversing
     private SearchFramework<T> searchContext;
-    // stores nodes that have been removed from the priority queue
-    private Hashtable<T, Float> visitedNodes;
-    // stores nodes that have been found but not yet visited
-    private PriorityQueue<T> unVisitedNodes;
-    // comparator used in PriorityQueue--simply compares node priority vals
-    private Comparator<T> queueComparator = new Comparator<T>() {
-        @Override
-        public int compare(T o1, T o2) {
-            return Float.compare(o1.getPriorityVal(), o2.getPriorityVal());
-        }
-    };
+    // type of open set used by every workspace
+    private final OpenSetType openSetType;
+    // workspace of the calling thread. Created on a thread's first query and reused for every query after that
+    private final ThreadLocal<SearchWorkspace<T>> workspaces;
+    // notified of the progress of every query, if set
+    private volatile SearchListener<T> listener;
 
-    // constructor requires only a searchFramework
+    // creates a Searcher using an indexed binary heap for its open set
     public Searcher(SearchFramework<T> searchContext) {
+        this(searchContext, OpenSetType.BINARY_HEAP);
+    }
+
+    // creates a Searcher using the given type of open set
+    public Searcher(SearchFramework<T> searchContext, OpenSetType openSetType) {
         this.searchContext = searchContext;
+        this.openSetType = openSetType;
+        workspaces = ThreadLocal.withInitial(() -> new SearchWorkspace<>(openSetType));
     }
 
     // runs search from startNode. Returns a List of successive nodes.
-    // list will be empty if no solution found
+    // list will be empty if no solution found. The goal is defined by the SearchFramework's isGoal() method
     public List<T> runSearch(T startNode) {
-        visitedNodes = new Hashtable<>();
-        unVisitedNodes = new PriorityQueue<>(1, queueComparator);
-        unVisitedNodes.add(startNode);
-        T end = search();
-        return retracePath(end);
+        return runSearch(startNode, null);
+    }
+
+    // runs search from startNode to goalNode. Returns a List of successive nodes, empty if no solution found.
+    // Relies only on the goal passed in, so any number of threads may run queries with different goals against
+    // the same SearchFramework at once. If goalNode is null, the framework's own goal is used instead
+    public List<T> runSearch(T startNode, T goalNode) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        SearchListener<T> listener = this.listener;
+        if (listener != null) {
+            listener.searchStarted(startNode, goalNode);
+        }
+        long started = System.nanoTime();
+        SearchWorkspace<T> workspace = workspaces.get();
+        workspace.reset();
+        SearchWorkspace.NodeRecord<T> start = workspace.getRecord(startNode);
+        start.g = 0;
+        workspace.startHeuristic = heuristic(startNode, goalNode, workspace);
+        workspace.openSet.push(start, workspace.startHeuristic);
+        SearchWorkspace.NodeRecord<T> end = search(workspace, goalNode, listener);
+        long searched = System.nanoTime();
+        List<T> path = retracePath(end, workspace);
+        workspace.searchNanos = searched - started;
+        workspace.retraceNanos = System.nanoTime() - searched;
+        if (end != null) {
+            workspace.pathCost = end.g;
+        }
+
+        if (event.shouldCommit()) {
+            event.start = String.valueOf(startNode);
+            event.goal = String.valueOf(goalNode);
+            event.pathLength = path.size();
+            event.pathCost = workspace.pathCost;
+            event.startHeuristic = workspace.startHeuristic;
+            event.expanded = workspace.openSet.getPopCount();
+            event.generated = workspace.openSet.getPushCount();
+            event.stalePops = workspace.openSet.getStalePopCount();
+            event.peakOpenSetSize = workspace.openSet.getPeakSize();
+            event.heuristicCalls = workspace.heuristicCalls;
+            event.searchTime = workspace.searchNanos;
+            event.retraceTime = workspace.retraceNanos;
+            event.commit();
+        }
+        if (listener != null) {
+            listener.searchFinished(startNode, goalNode, path, new SearchStats(openSetType, workspace));
+        }
+        return path;
     }
 
-    // recursively calls search until victory or defeat
-    // if victory, returns goal node. if defeat, returns null
-    private T search() {
-        if (unVisitedNodes.size() == 0) {
-            return null;
-        } else {
-            // get min node
-            T next_min = unVisitedNodes.poll();
-            if (visitedNodes.containsKey(next_min)) { // discard if already visited
-                return search();
-            } else if (searchContext.isGoal(next_min)) {
-                return next_min;
-            } else {
-                for (T neighbor : searchContext.getNeighbors(next_min)) {
-                    if (!visitedNodes.containsKey(neighbor)) { // todo: account for possible back edges. quick way to check equality
-                        neighbor.setPriorityVal(next_min.getPriorityVal() + searchContext.getEdgeCost(next_min, neighbor)
-                                + searchContext.getHeuristic(neighbor));
-                        neighbor.setParent(next_min);
-                        unVisitedNodes.add(neighbor);
-                    }
+    // polls nodes from the open set in order of priority until the goal is reached or the open set runs dry.
+    // if victory, returns goal node's record. if defeat, returns null
+    private SearchWorkspace.NodeRecord<T> search(SearchWorkspace<T> workspace, T goalNode,
+                                                 SearchListener<T> listener) {
+        SearchWorkspace.NodeRecord<T> current;
+        // f-score of the node about to be popped. Only looked up for the listener
+        float f = listener == null ? 0 : workspace.openSet.peekKey();
+        // get min node. The open set takes care of discarding outdated entries
+        while ((current = workspace.openSet.pop()) != null) {
+            if (goalNode == null ? searchContext.isGoal(current.node) : goalNode.equals(current.node)) {
+                return current;
+            }
+            current.closed = true;
+            if (listener != null) {
+                listener.nodeExpanded(current.node, current.g, f);
+            }
+            for (T neighbor : searchContext.getNeighbors(current.node)) {
+                SearchWorkspace.NodeRecord<T> next = workspace.getRecord(neighbor);
+                if (next.closed) {
+                    continue;
+                }
+                float g = current.g + searchContext.getEdgeCost(current.node, neighbor);
+                if (g < next.g) { // only push if this is the cheapest way found so far
+                    next.g = g;
+                    next.parent = current;
+                    workspace.openSet.push(next, g + heuristic(neighbor, goalNode, workspace));
                 }
-                visitedNodes.put(next_min, next_min.getPriorityVal()); // todo: move this to before search of neighbors?
-                return search();
+            }
+            if (listener != null) {
+                f = workspace.openSet.peekKey();
             }
         }
+        return null;
+    }
+
+    // returns heuristic of node towards the given goal, or towards the framework's goal if none is given
+    private float heuristic(T node, T goalNode, SearchWorkspace<T> workspace) {
+        workspace.heuristicCalls++;
+        return goalNode == null ? searchContext.getHeuristic(node) : searchContext.getHeuristic(node, goalNode);
+    }
+
+    // sets the listener notified of the progress of every query, or null to remove it. Without a listener the
+    // search loop only pays for a null check per expanded node
+    public void setListener(SearchListener<T> listener) {
+        this.listener = listener;
+    }
+
+    // returns counters describing the last query run by the calling thread
+    public SearchStats getLastStats() {
+        return new SearchStats(openSetType, workspaces.get());
     }
 
-    // retraces path to get to this node and returns it in a list
-    private List<T> retracePath(T endNode) {
-        List<T> path = new LinkedList<>();
-        T parent = endNode;
-        while (parent != null) {
-            path.add(0, parent);
-            parent = (T) parent.getParent();
+    public OpenSetType getOpenSetType() {
+        return openSetType;
+    }
+
+    // retraces path to get to this record and returns it in a list. The path is collected into the workspace's
+    // scratch buffer (goal first) and then copied out in start-to-goal order
+    private List<T> retracePath(SearchWorkspace.NodeRecord<T> endRecord, SearchWorkspace<T> workspace) {
+        ArrayList<T> buffer = workspace.pathBuffer;
+        for (SearchWorkspace.NodeRecord<T> record = endRecord; record != null; record = record.parent) {
+            buffer.add(record.node);
+        }
+        List<T> path = new ArrayList<>(buffer.size());
+        for (int i = buffer.size() - 1; i >= 0; i--) {
+            path.add(buffer.get(i));
         }
+        buffer.clear();
         return path;
     }
 }
@@ -0,0 +1,60 @@
+package pathfinder;
+
+import org.junit.jupiter.api.Test;
+import searcher.IntSearcher;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContractionHierarchyTest {
+
+    // queries on a generated map must give the same travel times as A* with landmarks, which is exact
+    @Test
+    void matchesAStarTravelTimes() {
+        CompactMap graph = MapGenerator.generate(MapGenerator.Kind.GEOMETRIC, 2000, 3).toCompactMap();
+        graph.setLandmarks(Landmarks.select(graph, 8, Landmarks.Selection.AVOID, 1));
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+        IntSearcher searcher = new IntSearcher(graph);
+        Random random = new Random(5);
+        for (int query = 0; query < 100; query++) {
+            int start = random.nextInt(graph.getNodeCount()), goal = random.nextInt(graph.getNodeCount());
+            int[] expected = searcher.runSearch(start, goal);
+            int[] path = hierarchy.runSearch(start, goal);
+            if (expected.length == 0) {
+                assertEquals(0, path.length);
+                assertEquals(Float.POSITIVE_INFINITY, hierarchy.getTravelTime(start, goal));
+                continue;
+            }
+            float expectedTime = travelTime(graph, expected);
+            assertEquals(start, path[0]);
+            assertEquals(goal, path[path.length - 1]);
+            assertEquals(expectedTime, travelTime(graph, path), 1e-3f * expectedTime);
+            assertEquals(expectedTime, hierarchy.getTravelTime(start, goal), 1e-3f * expectedTime);
+        }
+    }
+
+    @Test
+    void rejectsNodesAddedAfterBuilding() {
+        Map map = MapGenerator.generate(MapGenerator.Kind.GRID, 100, 1).toMap();
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(CompactMap.fromMap(map));
+        map.addNode("Later", 0, 0);
+        assertThrows(NoSuchElementException.class,
+                () -> hierarchy.runSearch(map.getNode(0), map.getNode("Later"), map));
+        List<LocationNode> path = hierarchy.runSearch(map.getNode(0), map.getNode(0), map);
+        assertEquals(List.of(map.getNode(0)), path);
+    }
+
+    // returns the sum of the edge costs along path
+    private static float travelTime(CompactMap graph, int[] path) {
+        float time = 0;
+        for (int i = 0; i + 1 < path.length; i++) {
+            int edge = graph.findEdge(path[i], path[i + 1]);
+            assertTrue(edge >= 0, "path uses an edge that doesn't exist");
+            time += graph.getEdgeCost(edge);
+        }
+        return time;
+    }
+}
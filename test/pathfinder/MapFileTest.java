@@ -0,0 +1,40 @@
+package pathfinder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapFileTest {
+
+    // a map written to a binary file and read back has the same nodes and edges, speed limits included
+    @Test
+    void roundTrip(@TempDir Path directory) throws IOException {
+        Map map = MapGenerator.generate(MapGenerator.Kind.GEOMETRIC, 1000, 2).toMap();
+        map.setSpeedLimit(map.getNode(0).getAddress(), map.getNeighbors(map.getNode(0)).get(0).getAddress(), 0.7f);
+        String fileName = directory.resolve("map.bin").toString();
+        MapFile.write(map, fileName);
+        assertTrue(MapFile.isMapFile(fileName));
+
+        Map loaded = MapFile.open(fileName).toMap();
+        assertEquals(map.getNodeCount(), loaded.getNodeCount());
+        assertEquals(map.getEdgeCount(), loaded.getEdgeCount());
+        for (LocationNode node : map.getNodes()) {
+            LocationNode copy = loaded.getNode(node.getId());
+            assertEquals(node.getAddress(), copy.getAddress());
+            assertEquals(node.getX(), copy.getX());
+            assertEquals(node.getY(), copy.getY());
+            for (LocationNode neighbor : map.getNeighbors(node)) {
+                Edge edge = map.getEdge(node, neighbor);
+                Edge copied = loaded.getEdge(copy, loaded.getNode(neighbor.getId()));
+                assertEquals(edge.getStreetName(), copied.getStreetName());
+                assertEquals(edge.getSpeedLimit(), copied.getSpeedLimit());
+                assertEquals(edge.getDistance(), copied.getDistance());
+                assertEquals(edge.getTime(), copied.getTime());
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package searcher;
+
+import org.junit.jupiter.api.Test;
+import pathfinder.*;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalSearcherTest {
+
+    // after edges are slowed down and the start moves along the path, the repaired path must cost as much as one
+    // found by a fresh search. Halfway through, new landmark tables change the heuristic under the searcher
+    @Test
+    void matchesFreshSearchAfterEdgeUpdates() {
+        Map map = MapGenerator.generate(MapGenerator.Kind.GRID, 2500, 9).toMap();
+        map.setLandmarks(Landmarks.select(CompactMap.fromMap(map), 8, Landmarks.Selection.AVOID, 1));
+        Searcher<LocationNode> fresh = new Searcher<>(map);
+        Random random = new Random(4);
+        LocationNode goal = map.getNode(map.getNodeCount() - 1);
+        IncrementalSearcher<LocationNode> incremental = new IncrementalSearcher<>(map, map.getNode(0), goal);
+        List<LocationNode> path = incremental.computePath();
+        for (int step = 0; step < 20 && path.size() > 2; step++) {
+            for (int k = 0; k < 3; k++) {
+                LocationNode node = path.get(random.nextInt(path.size() - 1));
+                List<LocationNode> neighbors = map.getNeighbors(node);
+                LocationNode neighbor = neighbors.get(random.nextInt(neighbors.size()));
+                float speedLimit = map.getEdge(node, neighbor).getSpeedLimit() * (0.2f + 0.8f * random.nextFloat());
+                map.setSpeedLimit(node.getAddress(), neighbor.getAddress(), speedLimit);
+                incremental.updateEdge(node, neighbor);
+                incremental.updateEdge(neighbor, node);
+            }
+            if (step == 10) {
+                map.setLandmarks(Landmarks.select(CompactMap.fromMap(map), 8, Landmarks.Selection.AVOID, 2));
+            }
+            incremental.moveStart(path.get(1));
+            path = incremental.computePath();
+            float expected = cost(map, fresh.runSearch(incremental.getStart(), goal));
+            assertEquals(expected, cost(map, path), 1e-3f * expected);
+            assertEquals(expected, incremental.getPathCost(), 1e-3f * expected);
+        }
+    }
+
+    private static float cost(Map map, List<LocationNode> path) {
+        float cost = 0;
+        for (int i = 0; i + 1 < path.size(); i++) {
+            cost += map.getEdgeCost(path.get(i), path.get(i + 1));
+        }
+        return cost;
+    }
+}